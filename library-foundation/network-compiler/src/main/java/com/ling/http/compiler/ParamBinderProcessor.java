@@ -0,0 +1,428 @@
+package com.ling.http.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 为 IRequestApi 实现类生成 IParamBinder，避免运行时通过反射读取字段
+ */
+public final class ParamBinderProcessor extends AbstractProcessor {
+
+    private static final String REQUEST_API = "com.ling.http.config.IRequestApi";
+    private static final String PARAM_BINDER = "com.ling.http.config.IParamBinder";
+    private static final String BINDER_SUFFIX = "_ParamBinder";
+
+    private static final String HTTP_RENAME = "com.ling.http.annotation.HttpRename";
+    private static final String HTTP_IGNORE = "com.ling.http.annotation.HttpIgnore";
+    private static final String HTTP_HEADER = "com.ling.http.annotation.HttpHeader";
+
+    /** 流参数类型，需要和 EasyUtils.isMultipartClass 保持一致 */
+    private static final List<String> MULTIPART_CLASSES = Arrays.asList(
+            "java.io.File",
+            "com.ling.http.model.FileContentResolver",
+            "java.io.InputStream",
+            "okhttp3.RequestBody",
+            "okhttp3.MultipartBody.Part");
+
+    private Elements mElements;
+    private Types mTypes;
+    private Filer mFiler;
+    private Messager mMessager;
+
+    /** 已经生成过的类，避免多轮处理时重复生成 */
+    private final Set<String> mGenerated = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+        mFiler = processingEnv.getFiler();
+        mMessager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // 需要扫描所有实现了 IRequestApi 接口的类，而不是某个注解
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement requestApi = mElements.getTypeElement(REQUEST_API);
+        if (requestApi == null) {
+            return false;
+        }
+        TypeMirror requestApiType = mTypes.erasure(requestApi.asType());
+
+        List<TypeElement> typeElements = new ArrayList<>();
+        for (Element element : roundEnv.getRootElements()) {
+            collectTypes(element, typeElements);
+        }
+
+        for (TypeElement typeElement : typeElements) {
+            if (typeElement.getKind() != ElementKind.CLASS ||
+                    typeElement.getModifiers().contains(Modifier.ABSTRACT) ||
+                    !isAccessible(typeElement) ||
+                    !mTypes.isAssignable(mTypes.erasure(typeElement.asType()), requestApiType)) {
+                continue;
+            }
+
+            String binaryName = mElements.getBinaryName(typeElement).toString();
+            if (!mGenerated.add(binaryName)) {
+                continue;
+            }
+
+            try {
+                generateBinder(typeElement, binaryName);
+            } catch (IOException e) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to generate " + binaryName + BINDER_SUFFIX + ": " + e.getMessage(), typeElement);
+            }
+        }
+        // 不消费任何注解，让其他注解处理器可以正常处理
+        return false;
+    }
+
+    /**
+     * 递归收集所有的类（包括内部类）
+     */
+    private void collectTypes(Element element, List<TypeElement> typeElements) {
+        if (!(element instanceof TypeElement)) {
+            return;
+        }
+        typeElements.add((TypeElement) element);
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            collectTypes(enclosedElement, typeElements);
+        }
+    }
+
+    /**
+     * 生成参数绑定器
+     */
+    private void generateBinder(TypeElement typeElement, String binaryName) throws IOException {
+        String packageName = getPackageName(typeElement);
+        String apiName = typeElement.getQualifiedName().toString();
+        String binderName = (packageName.isEmpty() ? binaryName :
+                binaryName.substring(packageName.length() + 1)) + BINDER_SUFFIX;
+
+        // 父类的字段在前，和反射解析的顺序保持一致
+        List<VariableElement> fields = new ArrayList<>();
+        TypeElement clazz = typeElement;
+        while (clazz != null && !Object.class.getName().equals(clazz.getQualifiedName().toString())) {
+            fields.addAll(0, ElementFilter.fieldsIn(clazz.getEnclosedElements()));
+            TypeMirror superclass = clazz.getSuperclass();
+            clazz = superclass.getKind() == TypeKind.DECLARED ?
+                    (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+
+        Set<String> fieldNames = new HashSet<>();
+        for (VariableElement field : fields) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) && modifiers.contains(Modifier.FINAL)) {
+                continue;
+            }
+            if (!fieldNames.add(field.getSimpleName().toString())) {
+                // 子类字段遮蔽了父类的同名字段，无法通过 api.xxx 区分，交给运行时通过反射处理
+                mMessager.printMessage(Diagnostic.Kind.NOTE, "Skip generating " + binderName +
+                        ", field is hidden by subclass: " + field.getSimpleName(), typeElement);
+                return;
+            }
+        }
+
+        boolean multipart = false;
+        StringBuilder body = new StringBuilder();
+        for (VariableElement field : fields) {
+            Set<Modifier> modifiers = field.getModifiers();
+            // 如果这是一个常量字段，则直接忽略掉，例如 Parcelable 接口中的 CREATOR 字段
+            if (modifiers.contains(Modifier.STATIC) && modifiers.contains(Modifier.FINAL)) {
+                continue;
+            }
+
+            if (!multipart && isMultipartField(field.asType())) {
+                multipart = true;
+            }
+
+            String key = getRenameValue(field);
+            if (key == null) {
+                key = field.getSimpleName().toString();
+                // 规避内部类的外部类引用和 Kotlin 自动生成的伴生对象
+                if (key.matches("this\\$\\d+") || "Companion".equals(key)) {
+                    continue;
+                }
+            }
+
+            boolean header = hasAnnotation(field, HTTP_HEADER);
+            if (hasAnnotation(field, HTTP_IGNORE)) {
+                body.append("        target.").append(header ? "removeHeader" : "removeParam")
+                        .append("(").append(quote(key)).append(");\n");
+                continue;
+            }
+
+            String accessor = getAccessor(typeElement, field, packageName);
+            if (accessor == null) {
+                // 字段无法直接访问并且没有对应的 get 方法，交给运行时通过反射处理
+                mMessager.printMessage(Diagnostic.Kind.NOTE, "Skip generating " + binderName +
+                        ", field is not accessible: " + field.getSimpleName(), typeElement);
+                return;
+            }
+
+            body.append("        target.").append(header ? "addHeader" : "addParam")
+                    .append("(").append(quote(key)).append(", api.").append(accessor).append(");\n");
+        }
+
+        JavaFileObject sourceFile = mFiler.createSourceFile(
+                packageName.isEmpty() ? binderName : packageName + "." + binderName, typeElement);
+        try (Writer writer = sourceFile.openWriter()) {
+            writer.write("// Generated code from network-compiler. Do not modify!\n");
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("@SuppressWarnings({\"rawtypes\", \"unchecked\", \"static-access\"})\n");
+            writer.write("public final class " + binderName + " implements " + PARAM_BINDER + "<" + apiName + "> {\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public boolean isMultipart() {\n");
+            writer.write("        return " + multipart + ";\n");
+            writer.write("    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public void bind(" + apiName + " api, " + PARAM_BINDER + ".Target target) {\n");
+            writer.write(body.toString());
+            writer.write("    }\n");
+            writer.write("}\n");
+        }
+    }
+
+    /**
+     * 获取字段的访问方式（直接访问字段或者通过 get 方法），无法访问则返回空
+     */
+    private String getAccessor(TypeElement typeElement, VariableElement field, String packageName) {
+        if (isMemberAccessible(field, packageName)) {
+            return field.getSimpleName().toString();
+        }
+
+        String name = field.getSimpleName().toString();
+        String capitalize = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        boolean booleanField = field.asType().getKind() == TypeKind.BOOLEAN;
+
+        for (ExecutableElement method : ElementFilter.methodsIn(mElements.getAllMembers(typeElement))) {
+            String methodName = method.getSimpleName().toString();
+            if (!method.getParameters().isEmpty() ||
+                    method.getModifiers().contains(Modifier.STATIC) ||
+                    !mTypes.isSameType(method.getReturnType(), field.asType()) ||
+                    !isMemberAccessible(method, packageName)) {
+                continue;
+            }
+            if (methodName.equals("get" + capitalize) ||
+                    (booleanField && (methodName.equals("is" + capitalize) || methodName.equals(name)))) {
+                return methodName + "()";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 判断成员在生成类所在的包中是否可以访问
+     */
+    private boolean isMemberAccessible(Element member, String packageName) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        // protected 和包访问权限的成员，只有在同一个包下才能访问
+        return packageName.equals(getPackageName(member));
+    }
+
+    /**
+     * 判断类在所在的包中是否可以访问（私有内部类、局部类和匿名类无法被外部直接引用）
+     */
+    private boolean isAccessible(TypeElement typeElement) {
+        Element element = typeElement;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return typeElement.getNestingKind() == NestingKind.TOP_LEVEL ||
+                typeElement.getNestingKind() == NestingKind.MEMBER;
+    }
+
+    /**
+     * 判断字段是否为流参数，需要和 EasyUtils.isMultipartParameter 的逻辑保持一致
+     */
+    private boolean isMultipartField(TypeMirror fieldType) {
+        if (fieldType.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        DeclaredType declaredType = (DeclaredType) fieldType;
+        TypeElement fieldElement = (TypeElement) declaredType.asElement();
+
+        List<TypeMirror> interfaces = new ArrayList<>(fieldElement.getInterfaces());
+        interfaces.add(fieldElement.asType());
+        for (TypeMirror interfaceType : interfaces) {
+            String name = getErasureName(interfaceType);
+            if (List.class.getName().equals(name)) {
+                // 如果实现了 List 接口，则取第一个位置的泛型
+                if (isMultipartClass(getTypeArgument(declaredType, 0))) {
+                    return true;
+                }
+            } else if (Map.class.getName().equals(name)) {
+                // 如果实现了 Map 接口，则取第二个位置的泛型
+                if (isMultipartClass(getTypeArgument(declaredType, 1))) {
+                    return true;
+                }
+            }
+        }
+
+        TypeMirror type = fieldType;
+        while (type.getKind() == TypeKind.DECLARED) {
+            if (isMultipartClass(type)) {
+                return true;
+            }
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            if (Object.class.getName().equals(element.getQualifiedName().toString())) {
+                break;
+            }
+            type = element.getSuperclass();
+        }
+        return false;
+    }
+
+    /**
+     * 获取指定位置上的泛型
+     */
+    private TypeMirror getTypeArgument(DeclaredType declaredType, int position) {
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (position >= typeArguments.size()) {
+            return null;
+        }
+        TypeMirror typeArgument = typeArguments.get(position);
+        if (typeArgument instanceof WildcardType) {
+            // 获取上界通配符
+            return ((WildcardType) typeArgument).getExtendsBound();
+        }
+        return typeArgument;
+    }
+
+    private boolean isMultipartClass(TypeMirror type) {
+        return type != null && MULTIPART_CLASSES.contains(getErasureName(type));
+    }
+
+    private String getErasureName(TypeMirror type) {
+        TypeMirror erasure = mTypes.erasure(type);
+        if (erasure.getKind() != TypeKind.DECLARED) {
+            return erasure.toString();
+        }
+        return ((TypeElement) ((DeclaredType) erasure).asElement()).getQualifiedName().toString();
+    }
+
+    private boolean hasAnnotation(Element element, String annotationName) {
+        return getAnnotation(element, annotationName) != null;
+    }
+
+    /**
+     * 获取 HttpRename 注解上的名称，没有则返回空
+     */
+    private String getRenameValue(Element element) {
+        AnnotationMirror annotation = getAnnotation(element, HTTP_RENAME);
+        if (annotation == null) {
+            return null;
+        }
+        for (ExecutableElement key : annotation.getElementValues().keySet()) {
+            if ("value".equals(key.getSimpleName().toString())) {
+                AnnotationValue value = annotation.getElementValues().get(key);
+                return String.valueOf(value.getValue());
+            }
+        }
+        return null;
+    }
+
+    private AnnotationMirror getAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationElement = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationName.equals(annotationElement.getQualifiedName().toString())) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private String getPackageName(Element element) {
+        PackageElement packageElement = mElements.getPackageOf(element);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    /**
+     * 将字符串转换成 Java 字面量
+     */
+    private static String quote(String text) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    builder.append(c);
+                    break;
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,5 @@
+# network-compiler 生成的参数绑定器是通过 "接口类名 + _ParamBinder" 反射创建的
+-keepnames class * implements com.ling.http.config.IRequestApi
+-keep class * implements com.ling.http.config.IParamBinder {
+    <init>();
+}
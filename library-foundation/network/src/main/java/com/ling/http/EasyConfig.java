@@ -4,9 +4,13 @@ import com.ling.http.config.ILogStrategy;
 import com.ling.http.config.IRequestHandler;
 import com.ling.http.config.IRequestInterceptor;
 import com.ling.http.config.IRequestServer;
+import com.ling.http.config.IRetryPolicy;
 import com.ling.http.config.LogStrategy;
 import com.ling.http.config.RequestServer;
+import com.ling.http.config.RetryPolicy;
+import com.ling.http.model.ChecksumCache;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
@@ -62,10 +66,23 @@ public final class EasyConfig {
     /** 日志 TAG */
     private String mLogTag = "EasyHttp";
 
+    /** 请求堆栈的获取深度（0 表示不获取） */
+    private int mStackTraceDepth = Integer.MAX_VALUE;
+    /** 请求堆栈的采样率（每 N 个请求获取一次） */
+    private int mStackTraceSampleRate = 1;
+
+    /** 是否合并正在进行中的相同请求 */
+    private boolean mFlightShared = true;
+
     /** 重试次数 */
     private int mRetryCount;
     /** 重试时间 */
     private long mRetryTime = 2000;
+    /** 重试策略 */
+    private IRetryPolicy mRetryPolicy;
+
+    /** 文件校验值缓存 */
+    private ChecksumCache mChecksumCache;
 
     private EasyConfig(OkHttpClient client) {
         mClient = client;
@@ -159,6 +176,38 @@ public final class EasyConfig {
         return this;
     }
 
+    /**
+     * 设置请求堆栈的获取深度，用于在日志中定位发起请求的代码（0 表示不获取，默认获取完整的堆栈）
+     */
+    public EasyConfig setStackTraceDepth(int depth) {
+        if (depth < 0) {
+            // 堆栈深度必须大于等于 0
+            throw new IllegalArgumentException("The stack trace depth must be greater than 0");
+        }
+        mStackTraceDepth = depth;
+        return this;
+    }
+
+    /**
+     * 设置请求堆栈的采样率，每 N 个请求才获取一次堆栈（默认每个请求都获取）
+     */
+    public EasyConfig setStackTraceSampleRate(int rate) {
+        if (rate < 1) {
+            // 采样率必须大于等于 1
+            throw new IllegalArgumentException("The stack trace sample rate must be greater than 1");
+        }
+        mStackTraceSampleRate = rate;
+        return this;
+    }
+
+    /**
+     * 设置是否合并正在进行中的相同 GET 请求（默认开启，单个接口可以通过 {@link com.ling.http.config.IRequestFlight} 关闭）
+     */
+    public EasyConfig setFlightShared(boolean shared) {
+        mFlightShared = shared;
+        return this;
+    }
+
     public EasyConfig setRetryCount(int count) {
         if (count < 0) {
             // 重试次数必须大于等于 0 次
@@ -177,6 +226,22 @@ public final class EasyConfig {
         return this;
     }
 
+    /**
+     * 设置请求重试策略（默认为 {@link RetryPolicy}）
+     */
+    public EasyConfig setRetryPolicy(IRetryPolicy policy) {
+        mRetryPolicy = policy;
+        return this;
+    }
+
+    /**
+     * 设置文件校验值缓存的保存位置（默认只缓存在内存中）
+     */
+    public EasyConfig setChecksumCacheFile(File file) {
+        mChecksumCache = new ChecksumCache(file);
+        return this;
+    }
+
     public IRequestServer getServer() {
         return mServer;
     }
@@ -213,6 +278,18 @@ public final class EasyConfig {
         return mLogTag;
     }
 
+    public int getStackTraceDepth() {
+        return mStackTraceDepth;
+    }
+
+    public int getStackTraceSampleRate() {
+        return mStackTraceSampleRate;
+    }
+
+    public boolean isFlightShared() {
+        return mFlightShared;
+    }
+
     public int getRetryCount() {
         return mRetryCount;
     }
@@ -221,6 +298,14 @@ public final class EasyConfig {
         return mRetryTime;
     }
 
+    public IRetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    public ChecksumCache getChecksumCache() {
+        return mChecksumCache;
+    }
+
     public void into() {
         if (mClient == null) {
             throw new IllegalArgumentException("The OkHttp client object cannot be empty");
@@ -245,6 +330,14 @@ public final class EasyConfig {
         if (mLogStrategy == null) {
             mLogStrategy = new LogStrategy();
         }
+
+        if (mRetryPolicy == null) {
+            mRetryPolicy = new RetryPolicy();
+        }
+
+        if (mChecksumCache == null) {
+            mChecksumCache = new ChecksumCache(null);
+        }
         EasyConfig.setInstance(this);
     }
 }
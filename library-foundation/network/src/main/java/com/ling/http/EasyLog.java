@@ -1,11 +1,15 @@
 package com.ling.http;
 
+import androidx.annotation.Nullable;
+
 import com.ling.http.request.HttpRequest;
 
+import java.util.Arrays;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * author : wangchengzhen
@@ -21,6 +25,12 @@ public final class EasyLog {
             0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
             Executors.defaultThreadFactory(), new ThreadPoolExecutor.DiscardPolicy());
 
+    /** 框架的包名，截取堆栈时用于跳过框架内部的调用 */
+    private static final String PACKAGE_NAME = EasyLog.class.getName().substring(0, EasyLog.class.getName().lastIndexOf('.'));
+
+    /** 堆栈采样计数器 */
+    private static final AtomicInteger STACK_TRACE_COUNTER = new AtomicInteger();
+
     /**
      * 打印分割线
      */
@@ -75,12 +85,45 @@ public final class EasyLog {
      * 打印堆栈
      */
     public static void printStackTrace(HttpRequest<?> httpRequest, StackTraceElement[] stackTrace) {
-        if (!EasyConfig.getInstance().isLogEnabled()) {
+        if (stackTrace == null || !EasyConfig.getInstance().isLogEnabled()) {
             return;
         }
         EXECUTOR.execute(() -> EasyConfig.getInstance().getLogStrategy().printStackTrace(getLogTag(httpRequest), stackTrace));
     }
 
+    /**
+     * 获取发起请求的调用堆栈（日志关闭、关闭了堆栈获取或者没有命中采样时返回空，避免无谓的堆栈开销）
+     */
+    @Nullable
+    public static StackTraceElement[] getStackTrace() {
+        EasyConfig config = EasyConfig.getInstance();
+        if (!config.isLogEnabled()) {
+            return null;
+        }
+
+        int depth = config.getStackTraceDepth();
+        if (depth <= 0) {
+            return null;
+        }
+
+        int sampleRate = config.getStackTraceSampleRate();
+        if (sampleRate > 1 && STACK_TRACE_COUNTER.getAndIncrement() % sampleRate != 0) {
+            return null;
+        }
+
+        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        if (depth == Integer.MAX_VALUE) {
+            return stackTrace;
+        }
+
+        // 跳过框架内部的调用，只保留调用方的前 N 个堆栈
+        int start = 0;
+        while (start < stackTrace.length && stackTrace[start].getClassName().startsWith(PACKAGE_NAME)) {
+            start++;
+        }
+        return Arrays.copyOfRange(stackTrace, start, Math.min(stackTrace.length, start + depth));
+    }
+
     private static String getLogTag(HttpRequest<?> httpRequest) {
         String logTag = EasyConfig.getInstance().getLogTag();
         if (httpRequest == null) {
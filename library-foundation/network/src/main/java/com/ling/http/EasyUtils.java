@@ -9,6 +9,9 @@ import androidx.annotation.Nullable;
 
 import com.ling.http.annotation.HttpIgnore;
 import com.ling.http.annotation.HttpRename;
+import com.ling.http.model.Checksum;
+import com.ling.http.model.ChecksumCache;
+import com.ling.http.model.ChecksumType;
 import com.ling.http.model.FileContentResolver;
 
 import org.json.JSONArray;
@@ -30,16 +33,19 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
 import java.net.URLEncoder;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ForwardingSink;
+import okio.Sink;
 
 /**
  * author : wangchengzhen
@@ -52,6 +58,13 @@ public final class EasyUtils {
     /** Handler 对象 */
     private static final Handler HANDLER = new Handler(Looper.getMainLooper());
 
+    /** 后台延迟任务线程池 */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EasyHttp-Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * 在主线程中执行
      */
@@ -66,6 +79,20 @@ public final class EasyUtils {
         HANDLER.postDelayed(r, delayMillis);
     }
 
+    /**
+     * 移除还没有执行的任务
+     */
+    public static void removeCallbacks(Runnable r) {
+        HANDLER.removeCallbacks(r);
+    }
+
+    /**
+     * 在后台线程中延迟一段时间执行
+     */
+    public static void schedule(Runnable r, long delayMillis) {
+        SCHEDULER.schedule(r, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * 判断当前是否为主线程
      */
@@ -442,35 +469,66 @@ public final class EasyUtils {
      * 获取文件的 md5
      */
     public static String getFileMd5(InputStream inputStream) {
+        return getChecksum(inputStream, ChecksumType.MD5);
+    }
+
+    /**
+     * 计算输入流的校验值（读取完成后会关闭流）
+     */
+    public static String getChecksum(InputStream inputStream, ChecksumType type) {
         if (inputStream == null) {
             return "";
         }
-        DigestInputStream digestInputStream = null;
         try {
-            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            digestInputStream = new DigestInputStream(inputStream, messageDigest);
+            Checksum checksum = new Checksum(type);
             byte[] buffer = new byte[1024 * 256];
-            while (true) {
-                if (!(digestInputStream.read(buffer) > 0)) {
-                    break;
-                }
+            int readLength;
+            while ((readLength = inputStream.read(buffer)) != -1) {
+                checksum.write(buffer, 0, readLength);
             }
-            messageDigest = digestInputStream.getMessageDigest();
-            byte[] md5 = messageDigest.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : md5) {
-                sb.append(String.format("%02X", b));
-            }
-            return sb.toString().toLowerCase();
-        } catch (NoSuchAlgorithmException | IOException e) {
+            return checksum.getHexString();
+        } catch (IOException e) {
             e.printStackTrace();
         } finally {
             EasyUtils.closeStream(inputStream);
-            EasyUtils.closeStream(digestInputStream);
         }
         return null;
     }
 
+    /**
+     * 获取文件的校验值（文件没有发生变化时直接使用缓存的校验值，无需重新读取文件）
+     */
+    public static String getFileChecksum(File file, ChecksumType type) throws FileNotFoundException {
+        // 通过 ContentResolver 打开的文件无法获取到大小和修改时间
+        ChecksumCache cache = file instanceof FileContentResolver ? null : EasyConfig.getInstance().getChecksumCache();
+        if (cache != null) {
+            String checksum = cache.get(file, type);
+            if (checksum != null) {
+                return checksum;
+            }
+        }
+        String checksum = getChecksum(openFileInputStream(file), type);
+        if (cache != null && !TextUtils.isEmpty(checksum)) {
+            cache.put(file, type, checksum);
+        }
+        return checksum;
+    }
+
+    /**
+     * 创建一个边写入边计算校验值的 Sink
+     */
+    public static Sink checksumSink(Sink sink, Checksum checksum) {
+        return new ForwardingSink(sink) {
+
+            @Override
+            public void write(@NonNull Buffer source, long byteCount) throws IOException {
+                // 直接读取缓冲区中将要写出的前 byteCount 个字节，不会消耗缓冲区
+                source.copyTo(checksum, 0, byteCount);
+                super.write(source, byteCount);
+            }
+        };
+    }
+
     /**
      * 打开文件的输入流
      */
@@ -6,6 +6,7 @@ import com.ling.http.EasyLog;
 import com.ling.http.EasyUtils;
 import com.ling.http.lifecycle.HttpLifecycleManager;
 import com.ling.http.listener.OnUpdateListener;
+import com.ling.http.model.ProgressDispatcher;
 import com.ling.http.request.HttpRequest;
 
 import java.io.IOException;
@@ -31,13 +32,13 @@ public class ProgressBody extends RequestBody {
     private final OnUpdateListener<?> mListener;
     private final LifecycleOwner mLifecycleOwner;
 
-    /** 总字节数 */
-    private long mTotalByte;
-    /** 已上传字节数 */
-    private long mUpdateByte;
-    /** 上传进度值 */
+    /** 上传进度值（只在主线程中访问） */
     private int mUpdateProgress;
 
+    /** 进度分发器（每帧最多回调一次） */
+    private final ProgressDispatcher mDispatcher = new ProgressDispatcher(this::dispatchProgress,
+            ProgressDispatcher.FRAME_INTERVAL, 0);
+
     public ProgressBody(HttpRequest<?> httpRequest, RequestBody body, LifecycleOwner lifecycleOwner, OnUpdateListener<?> listener) {
         mHttpRequest = httpRequest;
         mRequestBody = body;
@@ -57,10 +58,32 @@ public class ProgressBody extends RequestBody {
 
     @Override
     public void writeTo(BufferedSink sink) throws IOException {
-        mTotalByte = contentLength();
+        mDispatcher.reset(contentLength(), 0);
         sink = Okio.buffer(new WrapperSink(sink));
         mRequestBody.writeTo(sink);
         sink.flush();
+        // 保证最终的进度一定会被回调
+        mDispatcher.flush();
+    }
+
+    /**
+     * 分发上传进度（在主线程中调用）
+     */
+    private void dispatchProgress(long totalByte, long updateByte) {
+        if (mListener != null && HttpLifecycleManager.isLifecycleActive(mLifecycleOwner)) {
+            mListener.onByte(totalByte, updateByte);
+        }
+        int progress = EasyUtils.getProgressProgress(totalByte, updateByte);
+        // 只有上传进度发生改变的时候才回调此方法，避免引起不必要的 View 重绘
+        if (progress != mUpdateProgress) {
+            mUpdateProgress = progress;
+            if (mListener != null && HttpLifecycleManager.isLifecycleActive(mLifecycleOwner)) {
+                mListener.onProgress(progress);
+            }
+            EasyLog.printLog(mHttpRequest, "Uploading in progress, uploaded: " +
+                    updateByte + " / " + totalByte +
+                    ", progress: " + progress + "%");
+        }
     }
 
     private class WrapperSink extends ForwardingSink {
@@ -72,23 +95,7 @@ public class ProgressBody extends RequestBody {
         @Override
         public void write(Buffer source, long byteCount) throws IOException {
             super.write(source, byteCount);
-            mUpdateByte += byteCount;
-            EasyUtils.post(() -> {
-                if (mListener != null && HttpLifecycleManager.isLifecycleActive(mLifecycleOwner)) {
-                    mListener.onByte(mTotalByte, mUpdateByte);
-                }
-                int progress = EasyUtils.getProgressProgress(mTotalByte, mUpdateByte);
-                // 只有上传进度发生改变的时候才回调此方法，避免引起不必要的 View 重绘
-                if (progress != mUpdateProgress) {
-                    mUpdateProgress = progress;
-                    if (mListener != null && HttpLifecycleManager.isLifecycleActive(mLifecycleOwner)) {
-                        mListener.onProgress(progress);
-                    }
-                    EasyLog.printLog(mHttpRequest, "Uploading in progress, uploaded: " +
-                            mUpdateByte + " / " + mTotalByte +
-                            ", progress: " + progress + "%");
-                }
-            });
+            mDispatcher.addByte(byteCount);
         }
     }
 }
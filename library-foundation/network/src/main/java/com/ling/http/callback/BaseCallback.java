@@ -1,6 +1,7 @@
 package com.ling.http.callback;
 
-import com.ling.http.EasyConfig;
+import android.os.SystemClock;
+
 import com.ling.http.EasyLog;
 import com.ling.http.EasyUtils;
 import com.ling.http.lifecycle.HttpLifecycleManager;
@@ -8,7 +9,6 @@ import com.ling.http.model.CallProxy;
 import com.ling.http.request.HttpRequest;
 
 import java.io.IOException;
-import java.net.SocketTimeoutException;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -31,6 +31,9 @@ public abstract class BaseCallback implements Callback {
     /** 当前重试次数 */
     private int mRetryCount;
 
+    /** 第一次请求的时间 */
+    private final long mStartTime = SystemClock.elapsedRealtime();
+
     public BaseCallback(HttpRequest<?> request) {
         mHttpRequest = request;
         HttpLifecycleManager.bind(mHttpRequest.getLifecycleOwner());
@@ -52,6 +55,12 @@ public abstract class BaseCallback implements Callback {
 
     @Override
     public void onResponse(Call call, Response response) {
+        // 服务器返回了需要重试的错误码（例如 503）
+        if (!response.isSuccessful() && retry(call, null, response)) {
+            EasyUtils.closeStream(response);
+            return;
+        }
+
         try {
             // 收到响应
             onResponse(response);
@@ -66,33 +75,57 @@ public abstract class BaseCallback implements Callback {
 
     @Override
     public void onFailure(Call call, IOException e) {
-        // 服务器请求超时重试
-        if (e instanceof SocketTimeoutException && mRetryCount < EasyConfig.getInstance().getRetryCount()) {
-            // 设置延迟 N 秒后重试该请求
-            EasyUtils.postDelayed(() -> {
-
-                // 前提是宿主还没有被销毁
-                if (!HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
-                    // 宿主已被销毁，请求无法进行
-                    EasyLog.printLog(mHttpRequest, "LifecycleOwner has been destroyed and the request cannot be made");
-                    return;
-                }
-
-                mRetryCount++;
-                Call newCall = call.clone();
-                mCall.setCall(newCall);
-                newCall.enqueue(BaseCallback.this);
-                // 请求超时，正在执行延迟重试
-                EasyLog.printLog(mHttpRequest, "The request timed out, a delayed retry is being performed, the number of retries: " +
-                        mRetryCount + " / " + EasyConfig.getInstance().getRetryCount());
-
-            }, EasyConfig.getInstance().getRetryTime());
-
+        if (retry(call, e, null)) {
             return;
         }
         onFailure(e);
     }
 
+    /**
+     * 按照重试策略重试请求
+     *
+     * @return          是否进行了重试
+     */
+    private boolean retry(Call call, IOException e, Response response) {
+        if (call.isCanceled()) {
+            return false;
+        }
+
+        long delay = mHttpRequest.getRetryPolicy().getRetryDelay(mHttpRequest, mRetryCount,
+                SystemClock.elapsedRealtime() - mStartTime, e, response);
+        if (delay < 0) {
+            return false;
+        }
+
+        mRetryCount++;
+        // 请求失败，正在执行延迟重试
+        EasyLog.printLog(mHttpRequest, "The request failed, a delayed retry is being performed, the number of retries: " +
+                mRetryCount + ", delay: " + delay + " ms");
+
+        // 在后台线程中延迟重试，避免占用主线程
+        EasyUtils.schedule(() -> {
+
+            // 前提是宿主还没有被销毁
+            if (!HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
+                // 宿主已被销毁，请求无法进行
+                EasyLog.printLog(mHttpRequest, "LifecycleOwner has been destroyed and the request cannot be made");
+                onAbandon();
+                return;
+            }
+
+            Call newCall = call.clone();
+            mCall.setCall(newCall);
+            newCall.enqueue(BaseCallback.this);
+
+        }, delay);
+        return true;
+    }
+
+    /**
+     * 请求被放弃（宿主在延迟重试期间被销毁，之后不会再回调成功或者失败）
+     */
+    protected void onAbandon() {}
+
     /**
      * 请求开始
      */
@@ -2,22 +2,45 @@ package com.ling.http.callback;
 
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+
+import com.ling.http.EasyConfig;
 import com.ling.http.EasyLog;
 import com.ling.http.EasyUtils;
 import com.ling.http.config.IRequestInterceptor;
 import com.ling.http.exception.MD5Exception;
 import com.ling.http.exception.NullBodyException;
+import com.ling.http.exception.ResponseException;
 import com.ling.http.lifecycle.HttpLifecycleManager;
 import com.ling.http.listener.OnDownloadListener;
+import com.ling.http.model.Checksum;
+import com.ling.http.model.ChecksumType;
+import com.ling.http.model.DownloadRecord;
+import com.ling.http.model.FileContentResolver;
+import com.ling.http.model.ProgressDispatcher;
 import com.ling.http.request.HttpRequest;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
 
 /**
  * author : wangchengzhen
@@ -33,23 +56,50 @@ public final class DownloadCallback extends BaseCallback {
     /** 文件 MD5 正则表达式 */
     private static final String FILE_MD5_REGEX = "^[\\w]{32}$";
 
+    /** 文件小于这个大小时不进行分段下载 */
+    private static final long MIN_PARALLEL_SIZE = 1024 * 1024;
+
+    /** 每下载多少字节保存一次断点记录 */
+    private static final long RECORD_SAVE_INTERVAL = 512 * 1024;
+
     /** 保存的文件 */
     private File mFile;
 
-    /** 校验的 MD5 */
-    private String mMd5;
+    /** 文件校验算法 */
+    private ChecksumType mChecksumType = ChecksumType.MD5;
+    /** 文件校验值 */
+    private String mChecksumValue;
 
     /** 下载监听回调 */
     private OnDownloadListener mListener;
 
-    /** 下载总字节 */
-    private long mTotalByte;
+    /** 下载进度（只在主线程中访问） */
+    private int mDownloadProgress;
 
-    /** 已下载字节 */
-    private long mDownloadByte;
+    /** 读写缓冲区大小 */
+    private int mBufferSize = 8192;
 
-    /** 下载进度 */
-    private int mDownloadProgress;
+    /** 是否使用范围请求写入文件（断点续传或者分段下载） */
+    private boolean mRangeEnabled;
+    /** 是否保存断点记录 */
+    private boolean mResumable;
+    /** 分段下载的线程数 */
+    private int mThreadCount = 1;
+    /** 断点下载记录 */
+    private DownloadRecord mRecord;
+    /** 当前请求负责下载的段 */
+    private int mMainSegment;
+
+    /** 边下载边计算的校验值（不需要校验时为空） */
+    private Checksum mChecksum;
+
+    /** 进度回调的最小时间间隔（0 表示不限制） */
+    private long mProgressInterval;
+    /** 进度回调的最小百分比间隔（0 表示不限制） */
+    private int mProgressStep;
+
+    /** 进度分发器（分段下载时会被多个线程同时更新） */
+    private ProgressDispatcher mDispatcher;
 
     public DownloadCallback(HttpRequest<?> request) {
         super(request);
@@ -62,7 +112,12 @@ public final class DownloadCallback extends BaseCallback {
     }
 
     public DownloadCallback setMd5(String md5) {
-        mMd5 = md5;
+        return setChecksum(ChecksumType.MD5, md5);
+    }
+
+    public DownloadCallback setChecksum(ChecksumType type, String checksum) {
+        mChecksumType = type;
+        mChecksumValue = checksum;
         return this;
     }
 
@@ -71,6 +126,29 @@ public final class DownloadCallback extends BaseCallback {
         return this;
     }
 
+    public DownloadCallback setBufferSize(int bufferSize) {
+        mBufferSize = bufferSize;
+        return this;
+    }
+
+    public DownloadCallback setRange(boolean resumable, int threadCount, DownloadRecord record) {
+        mRangeEnabled = resumable || threadCount > 1;
+        mResumable = resumable;
+        mThreadCount = Math.max(threadCount, 1);
+        mRecord = record;
+        return this;
+    }
+
+    public DownloadCallback setProgressInterval(long intervalMillis) {
+        mProgressInterval = intervalMillis;
+        return this;
+    }
+
+    public DownloadCallback setProgressStep(int step) {
+        mProgressStep = step;
+        return this;
+    }
+
     @Override
     protected void onStart(Call call) {
         EasyUtils.post(() -> {
@@ -93,12 +171,12 @@ public final class DownloadCallback extends BaseCallback {
         }
 
         // 如果没有指定文件的 md5 值
-        if (mMd5 == null) {
+        if (mChecksumValue == null && mChecksumType == ChecksumType.MD5) {
             // 获取响应头中的文件 MD5 值
             String md5 = response.header("Content-MD5");
             // 这个 md5 值必须是文件的 md5 值
             if (!TextUtils.isEmpty(md5) && md5.matches(FILE_MD5_REGEX)) {
-                mMd5 = md5;
+                mChecksumValue = md5;
             }
         }
 
@@ -111,14 +189,17 @@ public final class DownloadCallback extends BaseCallback {
             throw new NullBodyException("The response body is empty");
         }
 
-        mTotalByte = body.contentLength();
-        if (mTotalByte < 0) {
-            mTotalByte = 0;
+        if (!response.isSuccessful()) {
+            if (response.code() == 416) {
+                // 请求的范围已经无效，下次重新开始下载
+                DownloadRecord.delete(mFile);
+            }
+            throw new ResponseException("The download request failed, responseCode: " + response.code(), response);
         }
 
         // 如果这个文件已经下载过，并且经过校验 MD5 是同一个文件的话，就直接回调下载成功监听
-        if (!TextUtils.isEmpty(mMd5) && mFile.isFile() &&
-                mMd5.equalsIgnoreCase(EasyUtils.getFileMd5(EasyUtils.openFileInputStream(mFile)))) {
+        if (mRecord == null && !TextUtils.isEmpty(mChecksumValue) && mFile.isFile() &&
+                mChecksumValue.equalsIgnoreCase(EasyUtils.getFileChecksum(mFile, mChecksumType))) {
             EasyUtils.post(() -> {
                 if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
                     return;
@@ -131,38 +212,38 @@ public final class DownloadCallback extends BaseCallback {
             return;
         }
 
-        int readLength;
-        mDownloadByte = 0;
-        byte[] bytes = new byte[8192];
-        InputStream inputStream = body.byteStream();
-        OutputStream outputStream = EasyUtils.openFileOutputStream(mFile);
-        while ((readLength = inputStream.read(bytes)) != -1) {
-            mDownloadByte += readLength;
-            outputStream.write(bytes, 0, readLength);
-            EasyUtils.post(() -> {
-                if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
-                    return;
-                }
-                mListener.onByte(mFile, mTotalByte, mDownloadByte);
-                int progress = EasyUtils.getProgressProgress(mTotalByte, mDownloadByte);
-                // 只有下载进度发生改变的时候才回调此方法，避免引起不必要的 View 重绘
-                if (progress != mDownloadProgress) {
-                    mDownloadProgress = progress;
-                    mListener.onProgress(mFile, mDownloadProgress);
-                    EasyLog.printLog(mHttpRequest, mFile.getPath() +
-                            ", downloaded: " + mDownloadByte + " / " + mTotalByte +
-                            ", progress: " + progress + " %");
-                }
-            });
+        // 只有需要校验的时候才计算校验值，并且是在写入的过程中计算，无需下载完再读一遍文件
+        mChecksum = TextUtils.isEmpty(mChecksumValue) ? null : new Checksum(mChecksumType);
+        mDispatcher = new ProgressDispatcher(this::dispatchProgress, mProgressInterval, mProgressStep);
+
+        DownloadRecord record = mRangeEnabled ? prepareRecord(response, body) : null;
+        if (record != null) {
+            downloadRanges(response, body, record);
+        } else {
+            downloadStream(body);
         }
-        EasyUtils.closeStream(inputStream);
-        EasyUtils.closeStream(outputStream);
+        // 保证最终的进度一定会被回调
+        mDispatcher.flush();
 
-        String md5 = EasyUtils.getFileMd5(EasyUtils.openFileInputStream(mFile));
-        if (!TextUtils.isEmpty(mMd5) && !mMd5.equalsIgnoreCase(md5)) {
-            // 文件 MD5 值校验失败
-            throw new MD5Exception("MD5 verify failure", md5);
+        if (!TextUtils.isEmpty(mChecksumValue)) {
+            String checksum;
+            if (mChecksum != null) {
+                checksum = mChecksum.getHexString();
+                // 记录下来，下次判断文件是否已经下载过时无需再读取文件
+                if (!(mFile instanceof FileContentResolver)) {
+                    EasyConfig.getInstance().getChecksumCache().put(mFile, mChecksumType, checksum);
+                }
+            } else {
+                checksum = EasyUtils.getFileChecksum(mFile, mChecksumType);
+            }
+            if (!mChecksumValue.equalsIgnoreCase(checksum)) {
+                // 文件已经损坏，不能再继续断点下载
+                DownloadRecord.delete(mFile);
+                // 文件校验值校验失败
+                throw new MD5Exception(mChecksumType + " verify failure", checksum);
+            }
         }
+        DownloadRecord.delete(mFile);
 
         EasyUtils.post(() -> {
             if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
@@ -173,6 +254,279 @@ public final class DownloadCallback extends BaseCallback {
         });
     }
 
+    /**
+     * 从头开始顺序写入文件
+     */
+    private void downloadStream(ResponseBody body) throws IOException {
+        mDispatcher.reset(Math.max(body.contentLength(), 0), 0);
+        BufferedSource source = body.source();
+        Sink sink = Okio.sink(EasyUtils.openFileOutputStream(mFile));
+        if (mChecksum != null) {
+            sink = EasyUtils.checksumSink(sink, mChecksum);
+        }
+        Buffer buffer = new Buffer();
+        try {
+            while (true) {
+                // 先凑够一个缓冲区再写入文件，减少写入和进度计算的次数
+                source.request(mBufferSize);
+                long readLength = source.read(buffer, mBufferSize);
+                if (readLength == -1) {
+                    break;
+                }
+                sink.write(buffer, readLength);
+                mDispatcher.addByte(readLength);
+            }
+        } finally {
+            EasyUtils.closeStream(source);
+            EasyUtils.closeStream(sink);
+        }
+    }
+
+    /**
+     * 准备分段下载的记录
+     *
+     * @return          返回空表示服务器不支持，需要从头开始顺序下载
+     */
+    private DownloadRecord prepareRecord(Response response, ResponseBody body) throws Exception {
+        if (response.code() == 206) {
+            // 服务器同意了断点续传，从返回的位置继续写入
+            long start = getContentRangeStart(response.header("Content-Range"));
+            int index = start >= 0 && mRecord != null ? mRecord.findSegment(start) : -1;
+            if (index == -1) {
+                DownloadRecord.delete(mFile);
+                throw new ResponseException("The Content-Range does not match the download record", response);
+            }
+            mRecord.setPosition(index, start);
+            mMainSegment = index;
+            EasyLog.printLog(mHttpRequest, mFile.getPath() + " resume download from " + start);
+            return mRecord;
+        }
+
+        // 服务器返回了完整的文件，之前的下载记录已经作废
+        DownloadRecord.delete(mFile);
+        mRecord = null;
+
+        long contentLength = body.contentLength();
+        if (contentLength <= 0) {
+            return null;
+        }
+
+        String validator = response.header("ETag");
+        if (validator == null) {
+            validator = response.header("Last-Modified");
+        }
+        boolean acceptRanges = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+        // 分段数不能超过同一个主机允许的并发请求数，否则后面的分段只能排队等待
+        int threadCount = Math.min(mThreadCount, mHttpRequest.getRequestClient()
+                .getOkHttpClient().dispatcher().getMaxRequestsPerHost());
+        DownloadRecord record = DownloadRecord.create(mFile, validator, contentLength,
+                acceptRanges && contentLength >= MIN_PARALLEL_SIZE ? threadCount : 1);
+
+        // 预先分配好文件的大小
+        RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "rw");
+        try {
+            randomAccessFile.setLength(contentLength);
+        } finally {
+            EasyUtils.closeStream(randomAccessFile);
+        }
+        mRecord = record;
+        mMainSegment = 0;
+        return record;
+    }
+
+    /**
+     * 分段写入文件（当前请求负责一段，其他未完成的段各自发起一个范围请求）
+     */
+    private void downloadRanges(Response response, ResponseBody body, DownloadRecord record) throws Exception {
+        mDispatcher.reset(record.getTotalByte(), record.getDownloadByte());
+
+        // 多段同时下载时无法按顺序计算校验值，只能在下载完成后再计算
+        if (record.getSegmentCount() > 1) {
+            mChecksum = null;
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "rw");
+        FileChannel channel = randomAccessFile.getChannel();
+        List<Call> calls = new ArrayList<>();
+        boolean succeed = false;
+        try {
+            if (mChecksum != null) {
+                // 断点续传的时候，先把已经下载的部分计算进去
+                primeChecksum(channel, record.getPosition(0));
+            }
+
+            AtomicReference<Exception> error = new AtomicReference<>();
+            int count = record.getSegmentCount();
+            CountDownLatch latch = new CountDownLatch(count);
+            for (int i = 0; i < count; i++) {
+                if (i == mMainSegment || record.isComplete(i)) {
+                    latch.countDown();
+                    continue;
+                }
+                calls.add(enqueueSegment(response.request(), channel, record, i, latch, error));
+            }
+
+            writeSegment(channel, body.source(), record, mMainSegment);
+
+            while (!latch.await(200, TimeUnit.MILLISECONDS)) {
+                if (getCall().isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+            }
+            if (error.get() != null) {
+                throw error.get();
+            }
+            succeed = true;
+        } finally {
+            if (!succeed) {
+                for (Call call : calls) {
+                    call.cancel();
+                }
+                if (mResumable) {
+                    try {
+                        record.save();
+                    } catch (IOException e) {
+                        EasyLog.printThrowable(mHttpRequest, e);
+                    }
+                }
+            }
+            EasyUtils.closeStream(randomAccessFile);
+        }
+    }
+
+    /**
+     * 发起某一段的范围请求
+     */
+    private Call enqueueSegment(Request originalRequest, FileChannel channel, DownloadRecord record,
+                                int index, CountDownLatch latch, AtomicReference<Exception> error) {
+        Request.Builder builder = originalRequest.newBuilder()
+                .header("Range", "bytes=" + record.getPosition(index) + "-" + record.getEnd(index));
+        if (record.getValidator() != null) {
+            builder.header("If-Range", record.getValidator());
+        } else {
+            builder.removeHeader("If-Range");
+        }
+
+        Call call = mHttpRequest.getRequestClient().getOkHttpClient().newCall(builder.build());
+        call.enqueue(new Callback() {
+
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                error.compareAndSet(null, e);
+                latch.countDown();
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                try {
+                    if (response.code() != 206) {
+                        // 服务器没有按照范围返回，文件可能已经发生了变化
+                        DownloadRecord.delete(mFile);
+                        throw new ResponseException("The server did not return the requested range, responseCode: " +
+                                response.code(), response);
+                    }
+                    ResponseBody body = response.body();
+                    if (body == null) {
+                        throw new NullBodyException("The response body is empty");
+                    }
+                    writeSegment(channel, body.source(), record, index);
+                } catch (Exception e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    EasyUtils.closeStream(response);
+                    latch.countDown();
+                }
+            }
+        });
+        return call;
+    }
+
+    /**
+     * 将某一段的内容写入到文件的对应位置
+     */
+    private void writeSegment(FileChannel channel, BufferedSource source, DownloadRecord record, int index) throws IOException {
+        long position = record.getPosition(index);
+        long end = record.getEnd(index);
+        long savedPosition = position;
+        ByteBuffer buffer = ByteBuffer.allocate(mBufferSize);
+        byte[] bytes = buffer.array();
+        while (position <= end) {
+            int readLength = source.read(bytes, 0, (int) Math.min(bytes.length, end - position + 1));
+            if (readLength == -1) {
+                throw new EOFException("The response body ended before the range was complete");
+            }
+            buffer.clear();
+            buffer.limit(readLength);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (mChecksum != null) {
+                mChecksum.write(bytes, 0, readLength);
+            }
+            record.setPosition(index, position);
+            mDispatcher.addByte(readLength);
+            if (mResumable && position - savedPosition >= RECORD_SAVE_INTERVAL) {
+                record.save();
+                savedPosition = position;
+            }
+        }
+    }
+
+    /**
+     * 将文件中已经下载的部分计算进校验值
+     */
+    private void primeChecksum(FileChannel channel, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(mBufferSize);
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - position));
+            int readLength = channel.read(buffer, position);
+            if (readLength == -1) {
+                throw new EOFException("The downloaded file is shorter than the download record");
+            }
+            mChecksum.write(buffer.array(), 0, readLength);
+            position += readLength;
+        }
+    }
+
+    /**
+     * 解析 Content-Range 响应头的开始位置（例如 bytes 100-199/1000）
+     */
+    private static long getContentRangeStart(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int index = contentRange.indexOf('-');
+        if (index == -1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), index).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 分发进度回调（在主线程中调用）
+     */
+    private void dispatchProgress(long totalByte, long downloadByte) {
+        if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
+            return;
+        }
+        mListener.onByte(mFile, totalByte, downloadByte);
+        int progress = EasyUtils.getProgressProgress(totalByte, downloadByte);
+        // 只有下载进度发生改变的时候才回调此方法，避免引起不必要的 View 重绘
+        if (progress != mDownloadProgress) {
+            mDownloadProgress = progress;
+            mListener.onProgress(mFile, mDownloadProgress);
+            EasyLog.printLog(mHttpRequest, mFile.getPath() +
+                    ", downloaded: " + downloadByte + " / " + totalByte +
+                    ", progress: " + progress + " %");
+        }
+    }
+
     @Override
     protected void onFailure(final Exception e) {
         EasyLog.printThrowable(mHttpRequest, e);
@@ -1,17 +1,26 @@
 package com.ling.http.callback;
 
+import com.ling.http.EasyConfig;
 import com.ling.http.EasyLog;
 import com.ling.http.EasyUtils;
+import com.ling.http.config.IRequestFlight;
 import com.ling.http.config.IRequestInterceptor;
 import com.ling.http.lifecycle.HttpLifecycleManager;
 import com.ling.http.listener.OnHttpListener;
 import com.ling.http.model.CacheMode;
+import com.ling.http.model.HttpMethod;
 import com.ling.http.request.HttpRequest;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import okhttp3.Call;
+import okhttp3.Request;
 import okhttp3.Response;
 
 /**
@@ -23,6 +32,9 @@ import okhttp3.Response;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public final class NormalCallback extends BaseCallback {
 
+    /** 正在进行中的请求（key 为请求方式 + 地址 + 请求头 + 解析类型） */
+    private static final Map<String, NormalCallback> IN_FLIGHT = new HashMap<>();
+
     /** 请求配置 */
     private final HttpRequest mHttpRequest;
     /** 接口回调 */
@@ -30,6 +42,14 @@ public final class NormalCallback extends BaseCallback {
     /** 解析类型 */
     private Type mReflectType;
 
+    /** 已经回调过的缓存结果（只有在后台刷新缓存时才不为空） */
+    private Object mStaleResult;
+
+    /** 合并请求的 key */
+    private String mFlightKey;
+    /** 合并到当前请求上的回调（只有发起网络请求的回调才不为空） */
+    private List<NormalCallback> mFlightFollowers;
+
     public NormalCallback(HttpRequest request) {
         super(request);
         mHttpRequest = request;
@@ -44,8 +64,16 @@ public final class NormalCallback extends BaseCallback {
     @Override
     public void start() {
         CacheMode cacheMode = mHttpRequest.getRequestCache().getCacheMode();
+        if (cacheMode == CacheMode.STALE_WHILE_REVALIDATE) {
+            startRevalidate();
+            return;
+        }
+
         if (cacheMode != CacheMode.USE_CACHE_ONLY &&
                 cacheMode != CacheMode.USE_CACHE_FIRST) {
+            if (joinFlight()) {
+                return;
+            }
             super.start();
             return;
         }
@@ -90,6 +118,41 @@ public final class NormalCallback extends BaseCallback {
         }
     }
 
+    /**
+     * 先回调缓存，再请求网络刷新缓存
+     */
+    private void startRevalidate() {
+        if (mListener == null) {
+            super.start();
+            return;
+        }
+
+        try {
+            Object result = mHttpRequest.getRequestHandler().readCache(mHttpRequest,
+                    mReflectType, mHttpRequest.getRequestCache().getCacheTime());
+            EasyLog.printLog(mHttpRequest, "ReadCache result：" + result);
+            mStaleResult = result;
+        } catch (Exception cacheException) {
+            EasyLog.printLog(mHttpRequest, "ReadCache error");
+            EasyLog.printThrowable(mHttpRequest, cacheException);
+        }
+
+        super.start();
+
+        Object staleResult = mStaleResult;
+        if (staleResult == null) {
+            return;
+        }
+
+        // 读取缓存成功（排在 onStart 回调之后）
+        EasyUtils.post(() -> {
+            if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
+                return;
+            }
+            mListener.onSucceed(staleResult, true);
+        });
+    }
+
     @Override
     protected void onStart(Call call) {
         EasyUtils.post(() -> {
@@ -115,10 +178,15 @@ public final class NormalCallback extends BaseCallback {
         final Object result = mHttpRequest.getRequestHandler().requestSucceed(
                 mHttpRequest, response, mReflectType);
 
+        // 需要在写入缓存之前和缓存的结果进行比较
+        boolean changed = mStaleResult == null || mHttpRequest.getRequestHandler().isResultChanged(
+                mHttpRequest, response, mStaleResult, result);
+
         CacheMode cacheMode = mHttpRequest.getRequestCache().getCacheMode();
         if (cacheMode == CacheMode.USE_CACHE_ONLY ||
                 cacheMode == CacheMode.USE_CACHE_FIRST ||
-                cacheMode == CacheMode.USE_CACHE_AFTER_FAILURE) {
+                cacheMode == CacheMode.USE_CACHE_AFTER_FAILURE ||
+                cacheMode == CacheMode.STALE_WHILE_REVALIDATE) {
             try {
                 boolean writeSucceed = mHttpRequest.getRequestHandler().writeCache(mHttpRequest, response, result);
                 EasyLog.printLog(mHttpRequest, "WriteCache result：" + writeSucceed);
@@ -128,12 +196,19 @@ public final class NormalCallback extends BaseCallback {
             }
         }
 
+        if (!changed) {
+            // 内容和缓存相比没有变化，无需再次回调成功
+            EasyLog.printLog(mHttpRequest, "The response has not changed since the cache was read");
+            EasyUtils.post(this::dispatchEnd);
+            return;
+        }
+
+        List<NormalCallback> followers = leaveFlight();
         EasyUtils.post(() -> {
-            if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
-                return;
+            dispatchSucceed(result, false);
+            for (NormalCallback follower : followers) {
+                follower.dispatchSucceed(result, false);
             }
-            mListener.onSucceed(result, false);
-            mListener.onEnd(getCall());
         });
     }
 
@@ -141,6 +216,14 @@ public final class NormalCallback extends BaseCallback {
     protected void onFailure(Exception exception) {
         // 打印错误堆栈
         EasyLog.printThrowable(mHttpRequest, exception);
+
+        List<NormalCallback> followers = leaveFlight();
+        if (!followers.isEmpty() && getCall().isCanceled()) {
+            // 请求被发起方取消了，不能让其他宿主的请求也跟着失败
+            followers = restartFollowers(followers, true);
+        }
+        final List<NormalCallback> finalFollowers = followers;
+
         // 如果设置了只在网络请求失败才去读缓存
         if (exception instanceof IOException && mHttpRequest.getRequestCache().getCacheMode() == CacheMode.USE_CACHE_AFTER_FAILURE) {
             try {
@@ -149,11 +232,10 @@ public final class NormalCallback extends BaseCallback {
                 EasyLog.printLog(mHttpRequest, "ReadCache result：" + result);
                 if (result != null) {
                     EasyUtils.post(() -> {
-                        if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
-                            return;
+                        dispatchSucceed(result, true);
+                        for (NormalCallback follower : finalFollowers) {
+                            follower.dispatchSucceed(result, true);
                         }
-                        mListener.onSucceed(result, true);
-                        mListener.onEnd(getCall());
                     });
                     return;
                 }
@@ -168,12 +250,139 @@ public final class NormalCallback extends BaseCallback {
             EasyLog.printThrowable(mHttpRequest, finalException);
         }
 
+        if (mStaleResult != null) {
+            // 已经回调过缓存的结果，后台刷新失败不再回调失败
+            EasyUtils.post(this::dispatchEnd);
+            return;
+        }
+
         EasyUtils.post(() -> {
-            if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
-                return;
+            dispatchFail(finalException);
+            for (NormalCallback follower : finalFollowers) {
+                follower.dispatchFail(finalException);
             }
-            mListener.onFail(finalException);
-            mListener.onEnd(getCall());
         });
     }
+
+    @Override
+    protected void onAbandon() {
+        // 发起方的宿主在延迟重试期间被销毁了，其他宿主的请求需要单独发起，否则会一直等不到回调
+        restartFollowers(leaveFlight(), false);
+    }
+
+    /**
+     * 回调请求成功
+     */
+    private void dispatchSucceed(Object result, boolean cache) {
+        if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
+            return;
+        }
+        mListener.onSucceed(result, cache);
+        mListener.onEnd(getCall());
+    }
+
+    /**
+     * 回调请求结束
+     */
+    private void dispatchEnd() {
+        if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
+            return;
+        }
+        mListener.onEnd(getCall());
+    }
+
+    /**
+     * 回调请求失败
+     */
+    private void dispatchFail(Exception exception) {
+        if (mListener == null || !HttpLifecycleManager.isLifecycleActive(mHttpRequest.getLifecycleOwner())) {
+            return;
+        }
+        mListener.onFail(exception);
+        mListener.onEnd(getCall());
+    }
+
+    /**
+     * 尝试合并到正在进行中的相同请求上
+     *
+     * @return          是否合并成功（合并成功则无需再发起网络请求）
+     */
+    private boolean joinFlight() {
+        if (!isFlightShared()) {
+            return false;
+        }
+
+        Request request = getCall().request();
+        mFlightKey = request.method() + " " + request.url() + "\n" + request.headers() + mReflectType;
+
+        synchronized (IN_FLIGHT) {
+            NormalCallback leader = IN_FLIGHT.get(mFlightKey);
+            if (leader == null) {
+                // 当前没有相同的请求，由自己来发起网络请求
+                IN_FLIGHT.put(mFlightKey, this);
+                mFlightFollowers = new ArrayList<>();
+                return false;
+            }
+            leader.mFlightFollowers.add(this);
+        }
+
+        EasyLog.printLog(mHttpRequest, "The same request is in flight, the response will be shared");
+        onStart(getCall());
+        return true;
+    }
+
+    /**
+     * 结束当前的合并请求，并返回合并到当前请求上的回调
+     */
+    private List<NormalCallback> leaveFlight() {
+        if (mFlightKey == null) {
+            return Collections.emptyList();
+        }
+        synchronized (IN_FLIGHT) {
+            if (IN_FLIGHT.get(mFlightKey) == this) {
+                IN_FLIGHT.remove(mFlightKey);
+            }
+            List<NormalCallback> followers = mFlightFollowers;
+            mFlightFollowers = null;
+            mFlightKey = null;
+            return followers != null ? followers : Collections.emptyList();
+        }
+    }
+
+    /**
+     * 发起方的请求被取消或者放弃后，让其他宿主的请求单独发起（被取消时和发起方相同标记的请求同样视为被取消）
+     *
+     * @param canceled  发起方的请求是否被取消
+     * @return          需要跟随发起方一起回调失败的请求
+     */
+    private List<NormalCallback> restartFollowers(List<NormalCallback> followers, boolean canceled) {
+        String tag = canceled ? mHttpRequest.getTag() : null;
+        List<NormalCallback> cancelled = new ArrayList<>();
+        for (NormalCallback follower : followers) {
+            if (tag != null && tag.equals(follower.mHttpRequest.getTag())) {
+                cancelled.add(follower);
+                continue;
+            }
+            if (!HttpLifecycleManager.isLifecycleActive(follower.mHttpRequest.getLifecycleOwner())) {
+                continue;
+            }
+            // 已经回调过 onStart，这里直接发起网络请求
+            follower.getCall().enqueue(follower);
+        }
+        return cancelled;
+    }
+
+    /**
+     * 当前请求是否允许合并
+     */
+    private boolean isFlightShared() {
+        if (mListener == null || !EasyConfig.getInstance().isFlightShared()) {
+            return false;
+        }
+        if (!HttpMethod.GET.toString().equals(mHttpRequest.getRequestMethod())) {
+            return false;
+        }
+        Object api = mHttpRequest.getRequestApi();
+        return !(api instanceof IRequestFlight) || ((IRequestFlight) api).isFlightShared();
+    }
 }
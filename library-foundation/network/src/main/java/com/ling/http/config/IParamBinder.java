@@ -0,0 +1,51 @@
+package com.ling.http.config;
+
+import androidx.annotation.NonNull;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 请求参数绑定器（由 network-compiler 在编译期生成，不存在时会回退到反射解析）
+ */
+public interface IParamBinder<A extends IRequestApi> {
+
+    /** 生成类的名称后缀，例如 LoginApi 对应的绑定器为 LoginApi_ParamBinder */
+    String CLASS_SUFFIX = "_ParamBinder";
+
+    /**
+     * 是否存在流参数
+     */
+    boolean isMultipart();
+
+    /**
+     * 将请求接口中的字段写入到请求头和请求参数中
+     */
+    void bind(@NonNull A api, @NonNull Target target);
+
+    /**
+     * 绑定目标
+     */
+    interface Target {
+
+        /**
+         * 添加请求头（值为空则忽略）
+         */
+        void addHeader(@NonNull String key, Object value);
+
+        /**
+         * 移除请求头
+         */
+        void removeHeader(@NonNull String key);
+
+        /**
+         * 添加请求参数（值为空则忽略）
+         */
+        void addParam(@NonNull String key, Object value);
+
+        /**
+         * 移除请求参数
+         */
+        void removeParam(@NonNull String key);
+    }
+}
@@ -0,0 +1,15 @@
+package com.ling.http.config;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 请求合并配置
+ */
+public interface IRequestFlight {
+
+    /**
+     * 是否允许和正在进行中的相同请求合并（相同的 GET 请求只会发起一次，结果分发给所有的监听器）
+     */
+    boolean isFlightShared();
+}
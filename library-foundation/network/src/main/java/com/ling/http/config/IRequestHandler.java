@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.ling.http.EasyUtils;
+import com.ling.http.model.CacheMode;
 import com.ling.http.request.HttpRequest;
 
 import java.lang.reflect.Type;
@@ -64,6 +65,20 @@ public interface IRequestHandler {
         return false;
     }
 
+    /**
+     * 判断网络请求的结果和缓存的结果相比是否发生了变化（用于 {@link CacheMode#STALE_WHILE_REVALIDATE} 模式）
+     *
+     * @param httpRequest   请求接口对象
+     * @param response      响应对象
+     * @param cacheResult   缓存的结果对象
+     * @param result        请求结果对象
+     * @return              是否发生了变化
+     */
+    default boolean isResultChanged(@NonNull HttpRequest<?> httpRequest, @NonNull Response response,
+                                    @NonNull Object cacheResult, @NonNull Object result) {
+        return cacheResult.hashCode() != result.hashCode() || !cacheResult.equals(result);
+    }
+
     /**
      * 清空缓存
      */
@@ -0,0 +1,32 @@
+package com.ling.http.config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ling.http.request.HttpRequest;
+
+import java.io.IOException;
+
+import okhttp3.Response;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 请求重试策略
+ */
+public interface IRetryPolicy {
+
+    /**
+     * 获取重试的延迟时间
+     *
+     * @param httpRequest   请求接口对象
+     * @param retryCount    已经重试的次数
+     * @param elapsedMillis 从第一次请求到现在经过的时间（以毫秒为单位）
+     * @param exception     请求异常（请求失败时不为空）
+     * @param response      响应对象（服务器返回错误码时不为空）
+     * @return              重试的延迟时间（以毫秒为单位），小于 0 表示不重试
+     */
+    long getRetryDelay(@NonNull HttpRequest<?> httpRequest, int retryCount, long elapsedMillis,
+                       @Nullable IOException exception, @Nullable Response response);
+}
@@ -0,0 +1,455 @@
+package com.ling.http.config;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ling.http.EasyLog;
+import com.ling.http.EasyUtils;
+import com.ling.http.model.CacheMode;
+import com.ling.http.request.HttpRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 两级缓存的请求处理器（内存中缓存解析后的对象，磁盘中缓存原始的响应内容）
+ */
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public final class RequestCacheHandler implements IRequestHandler {
+
+    /** 磁盘缓存文件的版本号 */
+    private static final int DISK_VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** 被代理的请求处理器 */
+    private final IRequestHandler mHandler;
+
+    /** 内存缓存 */
+    private final LruCache<String, MemoryEntry> mMemoryCache;
+
+    /** 磁盘缓存目录 */
+    private final File mDiskDirectory;
+    /** 磁盘缓存最大容量 */
+    private final long mMaxDiskSize;
+
+    /** 请求成功时读取到的原始响应内容（等待写入缓存） */
+    private final Map<Response, PendingBody> mPendingBodies = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** 内存缓存命中次数 */
+    private final AtomicLong mMemoryHitCount = new AtomicLong();
+    /** 磁盘缓存命中次数 */
+    private final AtomicLong mDiskHitCount = new AtomicLong();
+    /** 缓存未命中次数 */
+    private final AtomicLong mMissCount = new AtomicLong();
+    /** 缓存淘汰次数（包含过期和容量不足） */
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    /**
+     * @param handler           实际处理请求的对象
+     * @param diskDirectory     磁盘缓存目录
+     * @param maxMemoryCount    内存中最多缓存的对象个数
+     * @param maxDiskSize       磁盘缓存最大容量（以字节为单位）
+     */
+    public RequestCacheHandler(@NonNull IRequestHandler handler, @NonNull File diskDirectory,
+                               int maxMemoryCount, long maxDiskSize) {
+        if (maxMemoryCount <= 0 || maxDiskSize <= 0) {
+            // 缓存容量必须大于 0
+            throw new IllegalArgumentException("The cache capacity must be greater than 0");
+        }
+        mHandler = handler;
+        mDiskDirectory = diskDirectory;
+        mMaxDiskSize = maxDiskSize;
+        mMemoryCache = new LruCache<String, MemoryEntry>(maxMemoryCount) {
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, MemoryEntry oldValue, MemoryEntry newValue) {
+                if (evicted) {
+                    mEvictionCount.incrementAndGet();
+                }
+            }
+        };
+    }
+
+    public RequestCacheHandler(@NonNull IRequestHandler handler, @NonNull File diskDirectory) {
+        this(handler, diskDirectory, 64, 10 * 1024 * 1024);
+    }
+
+    @NonNull
+    @Override
+    public Object requestSucceed(@NonNull HttpRequest<?> httpRequest, @NonNull Response response, @NonNull Type type) throws Exception {
+        ResponseBody body = response.body();
+        if (!isCacheEnabled(httpRequest) || !response.isSuccessful() || body == null || !isBufferType(type)) {
+            return mHandler.requestSucceed(httpRequest, response, type);
+        }
+
+        // 先把响应内容读取出来，解析和写入缓存都使用这份内容
+        byte[] bytes = body.bytes();
+        mPendingBodies.put(response, new PendingBody(bytes, type));
+        Response bufferedResponse = response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), bytes))
+                .build();
+        try {
+            return mHandler.requestSucceed(httpRequest, bufferedResponse, type);
+        } catch (Exception e) {
+            mPendingBodies.remove(response);
+            throw e;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Exception requestFail(@NonNull HttpRequest<?> httpRequest, @NonNull Exception e) {
+        return mHandler.requestFail(httpRequest, e);
+    }
+
+    @Nullable
+    @Override
+    public Object readCache(@NonNull HttpRequest<?> httpRequest, @NonNull Type type, long cacheTime) {
+        String key = httpRequest.getCacheKey();
+        if (key == null) {
+            return null;
+        }
+
+        MemoryEntry memoryEntry = mMemoryCache.get(key);
+        if (memoryEntry != null) {
+            if (isExpired(memoryEntry.time, cacheTime)) {
+                mMemoryCache.remove(key);
+                mEvictionCount.incrementAndGet();
+            } else if (type.equals(memoryEntry.type)) {
+                mMemoryHitCount.incrementAndGet();
+                return memoryEntry.result;
+            }
+        }
+
+        File file = getDiskFile(key);
+        DiskEntry diskEntry = readDiskEntry(file);
+        if (diskEntry == null || !key.equals(diskEntry.key)) {
+            mMissCount.incrementAndGet();
+            return null;
+        }
+        if (isExpired(diskEntry.time, cacheTime)) {
+            file.delete();
+            mEvictionCount.incrementAndGet();
+            mMissCount.incrementAndGet();
+            return null;
+        }
+
+        Response response = new Response.Builder()
+                .request(new Request.Builder().url(diskEntry.url).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(diskEntry.contentType != null ?
+                        MediaType.parse(diskEntry.contentType) : null, diskEntry.body))
+                .build();
+        try {
+            Object result = mHandler.requestSucceed(httpRequest, response, type);
+            mMemoryCache.put(key, new MemoryEntry(result, type, diskEntry.time, getDigest(diskEntry.body)));
+            mDiskHitCount.incrementAndGet();
+            return result;
+        } catch (Exception e) {
+            // 缓存内容已经无法解析，直接删除
+            EasyLog.printThrowable(httpRequest, e);
+            file.delete();
+            mMissCount.incrementAndGet();
+            return null;
+        } finally {
+            EasyUtils.closeStream(response);
+        }
+    }
+
+    @Override
+    public boolean writeCache(@NonNull HttpRequest<?> httpRequest, @NonNull Response response, @NonNull Object result) {
+        PendingBody pendingBody = mPendingBodies.remove(response);
+        String key = httpRequest.getCacheKey();
+        if (pendingBody == null || key == null) {
+            return false;
+        }
+
+        long time = System.currentTimeMillis();
+        mMemoryCache.put(key, new MemoryEntry(result, pendingBody.type, time, pendingBody.getDigest()));
+
+        MediaType contentType = response.body() != null ? response.body().contentType() : null;
+        DiskEntry diskEntry = new DiskEntry(key, response.request().url().toString(),
+                contentType != null ? contentType.toString() : null, time, pendingBody.body);
+        if (!writeDiskEntry(getDiskFile(key), diskEntry)) {
+            return false;
+        }
+        trimDiskCache();
+        return true;
+    }
+
+    @Override
+    public boolean isResultChanged(@NonNull HttpRequest<?> httpRequest, @NonNull Response response,
+                                   @NonNull Object cacheResult, @NonNull Object result) {
+        PendingBody pendingBody = mPendingBodies.get(response);
+        String key = httpRequest.getCacheKey();
+        MemoryEntry memoryEntry = key != null ? mMemoryCache.get(key) : null;
+        if (pendingBody == null || memoryEntry == null || memoryEntry.result != cacheResult) {
+            return mHandler.isResultChanged(httpRequest, response, cacheResult, result);
+        }
+        // 比较原始响应内容的摘要
+        return !pendingBody.getDigest().equals(memoryEntry.digest);
+    }
+
+    @Override
+    public void clearCache() {
+        mMemoryCache.evictAll();
+        File[] files = mDiskDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mHandler.clearCache();
+    }
+
+    @Override
+    public Type getType(Object object) {
+        return mHandler.getType(object);
+    }
+
+    /**
+     * 获取内存缓存命中次数
+     */
+    public long getMemoryHitCount() {
+        return mMemoryHitCount.get();
+    }
+
+    /**
+     * 获取磁盘缓存命中次数
+     */
+    public long getDiskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    /**
+     * 获取缓存未命中次数
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * 获取缓存淘汰次数
+     */
+    public long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    /**
+     * 当前请求是否需要使用缓存
+     */
+    private static boolean isCacheEnabled(HttpRequest<?> httpRequest) {
+        CacheMode cacheMode = httpRequest.getRequestCache().getCacheMode();
+        return cacheMode != CacheMode.DEFAULT && cacheMode != CacheMode.NO_CACHE;
+    }
+
+    /**
+     * 判断解析类型是否可以先把响应内容读取出来（流和响应对象本身不能被缓存）
+     */
+    private static boolean isBufferType(Type type) {
+        return !Response.class.equals(type) && !Headers.class.equals(type) && !InputStream.class.equals(type);
+    }
+
+    /**
+     * 判断缓存是否已经过期
+     */
+    private static boolean isExpired(long time, long cacheTime) {
+        return cacheTime > 0 && System.currentTimeMillis() - time > cacheTime;
+    }
+
+    private File getDiskFile(String key) {
+        return new File(mDiskDirectory, getDigest(key.getBytes(UTF_8)));
+    }
+
+    private static String getDigest(byte[] bytes) {
+        return EasyUtils.getFileMd5(new ByteArrayInputStream(bytes));
+    }
+
+    @Nullable
+    private static DiskEntry readDiskEntry(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream inputStream = null;
+        try {
+            inputStream = new DataInputStream(new FileInputStream(file));
+            if (inputStream.readInt() != DISK_VERSION) {
+                return null;
+            }
+            long time = inputStream.readLong();
+            String key = new String(readBytes(inputStream), UTF_8);
+            String url = inputStream.readUTF();
+            String contentType = inputStream.readBoolean() ? inputStream.readUTF() : null;
+            byte[] body = readBytes(inputStream);
+            return new DiskEntry(key, url, contentType, time, body);
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        } finally {
+            EasyUtils.closeStream(inputStream);
+        }
+    }
+
+    private boolean writeDiskEntry(File file, DiskEntry entry) {
+        EasyUtils.createFolder(mDiskDirectory);
+        // 先写到临时文件中，避免写入过程中被读取到不完整的内容（每次写入使用不同的临时文件，相同 key 并发写入时不会互相覆盖）
+        File tempFile = null;
+        DataOutputStream outputStream = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", mDiskDirectory);
+            outputStream = new DataOutputStream(new FileOutputStream(tempFile));
+            outputStream.writeInt(DISK_VERSION);
+            outputStream.writeLong(entry.time);
+            writeBytes(outputStream, entry.key.getBytes(UTF_8));
+            outputStream.writeUTF(entry.url);
+            outputStream.writeBoolean(entry.contentType != null);
+            if (entry.contentType != null) {
+                outputStream.writeUTF(entry.contentType);
+            }
+            writeBytes(outputStream, entry.body);
+            outputStream.close();
+            outputStream = null;
+            if (tempFile.renameTo(file)) {
+                return true;
+            }
+            tempFile.delete();
+            return false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return false;
+        } finally {
+            EasyUtils.closeStream(outputStream);
+        }
+    }
+
+    /**
+     * 磁盘缓存超出容量时，按照最后写入时间淘汰
+     */
+    private synchronized void trimDiskCache() {
+        File[] files = mDiskDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxDiskSize) {
+            return;
+        }
+        Arrays.sort(files, (o1, o2) -> Long.compare(o1.lastModified(), o2.lastModified()));
+        for (File file : files) {
+            if (size <= mMaxDiskSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+                mEvictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream inputStream) throws IOException {
+        byte[] bytes = new byte[inputStream.readInt()];
+        inputStream.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream outputStream, byte[] bytes) throws IOException {
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    /**
+     * 等待写入缓存的响应内容
+     */
+    private static final class PendingBody {
+
+        private final byte[] body;
+        private final Type type;
+        private String digest;
+
+        private PendingBody(byte[] body, Type type) {
+            this.body = body;
+            this.type = type;
+        }
+
+        private synchronized String getDigest() {
+            if (digest == null) {
+                digest = RequestCacheHandler.getDigest(body);
+            }
+            return digest;
+        }
+    }
+
+    /**
+     * 内存缓存条目
+     */
+    private static final class MemoryEntry {
+
+        private final Object result;
+        private final Type type;
+        private final long time;
+        /** 原始响应内容的摘要 */
+        private final String digest;
+
+        private MemoryEntry(Object result, Type type, long time, String digest) {
+            this.result = result;
+            this.type = type;
+            this.time = time;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * 磁盘缓存条目
+     */
+    private static final class DiskEntry {
+
+        private final String key;
+        private final String url;
+        private final String contentType;
+        private final long time;
+        private final byte[] body;
+
+        private DiskEntry(String key, String url, String contentType, long time, byte[] body) {
+            this.key = key;
+            this.url = url;
+            this.contentType = contentType;
+            this.time = time;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ling.http.config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ling.http.EasyConfig;
+import com.ling.http.model.HttpMethod;
+import com.ling.http.request.HttpRequest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.Response;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 默认的请求重试策略（指数退避 + 随机抖动）
+ * <p>
+ * 重试次数和初始延迟使用 {@link EasyConfig#getRetryCount()} 和 {@link EasyConfig#getRetryTime()}，
+ * 连接失败、请求超时、服务器返回 429 / 502 / 503 / 504 时才会重试，默认只重试幂等的请求方式
+ */
+public class RetryPolicy implements IRetryPolicy {
+
+    /** 单次重试的最大延迟时间 */
+    private long mMaxDelay = 30 * 1000;
+    /** 从第一次请求开始允许重试的最长时间 */
+    private long mMaxElapsedTime = 60 * 1000;
+    /** 是否重试非幂等的请求方式（例如 POST） */
+    private boolean mRetryNonIdempotent;
+
+    public RetryPolicy setMaxDelay(long maxDelay) {
+        if (maxDelay < 0) {
+            // 延迟时间必须大于等于 0 毫秒
+            throw new IllegalArgumentException("The max delay must be greater than 0");
+        }
+        mMaxDelay = maxDelay;
+        return this;
+    }
+
+    public RetryPolicy setMaxElapsedTime(long maxElapsedTime) {
+        if (maxElapsedTime < 0) {
+            // 重试时间必须大于等于 0 毫秒
+            throw new IllegalArgumentException("The max elapsed time must be greater than 0");
+        }
+        mMaxElapsedTime = maxElapsedTime;
+        return this;
+    }
+
+    public RetryPolicy setRetryNonIdempotent(boolean retry) {
+        mRetryNonIdempotent = retry;
+        return this;
+    }
+
+    @Override
+    public long getRetryDelay(@NonNull HttpRequest<?> httpRequest, int retryCount, long elapsedMillis,
+                              @Nullable IOException exception, @Nullable Response response) {
+        if (retryCount >= EasyConfig.getInstance().getRetryCount()) {
+            return -1;
+        }
+        if (!mRetryNonIdempotent && !isIdempotent(httpRequest.getRequestMethod())) {
+            return -1;
+        }
+
+        long delay;
+        if (response != null) {
+            if (!isRetryCode(response.code())) {
+                return -1;
+            }
+            long retryAfter = getRetryAfter(response);
+            delay = retryAfter >= 0 ? retryAfter : getBackoffDelay(retryCount);
+        } else if (isRetryException(exception)) {
+            delay = getBackoffDelay(retryCount);
+        } else {
+            return -1;
+        }
+
+        if (elapsedMillis + delay > mMaxElapsedTime) {
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * 获取退避的延迟时间（在 0 到指数延迟之间随机取值，避免大量客户端同时重试）
+     */
+    protected long getBackoffDelay(int retryCount) {
+        long baseDelay = EasyConfig.getInstance().getRetryTime();
+        long delay = baseDelay << Math.min(retryCount, 30);
+        if (delay < 0 || delay > mMaxDelay) {
+            delay = mMaxDelay;
+        }
+        if (delay <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(delay + 1);
+    }
+
+    /**
+     * 判断异常是否需要重试
+     */
+    protected boolean isRetryException(@Nullable IOException exception) {
+        return exception instanceof SocketTimeoutException || exception instanceof ConnectException;
+    }
+
+    /**
+     * 判断响应码是否需要重试
+     */
+    protected boolean isRetryCode(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * 判断请求方式是否幂等
+     */
+    protected boolean isIdempotent(String method) {
+        return !HttpMethod.POST.toString().equals(method) && !HttpMethod.PATCH.toString().equals(method);
+    }
+
+    /**
+     * 解析 Retry-After 响应头（支持秒数和 HTTP 日期两种格式）
+     *
+     * @return              延迟时间（以毫秒为单位），没有或者无法解析时返回 -1
+     */
+    private static long getRetryAfter(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(retryAfter) * 1000);
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，尝试按照 HTTP 日期进行解析
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date date = format.parse(retryAfter);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
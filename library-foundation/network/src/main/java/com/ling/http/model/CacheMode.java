@@ -37,5 +37,13 @@ public enum CacheMode {
     /**
      * 只在网络请求失败才去读缓存
      */
-    USE_CACHE_AFTER_FAILURE
+    USE_CACHE_AFTER_FAILURE,
+
+    /**
+     * 先使用缓存，同时在后台刷新
+     * <p>
+     * 已有缓存的情况下：先读缓存 —> 回调成功 —> 请求网络 —> 刷新缓存 —> 内容有变化才再次回调成功
+     * 没有缓存的情况下：请求网络 -> 写入缓存 -> 回调成功
+     */
+    STALE_WHILE_REVALIDATE
 }
@@ -0,0 +1,111 @@
+package com.ling.http.model;
+
+import androidx.annotation.NonNull;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 流式计算的校验值（写入到这个流中的内容都会被计算进校验值）
+ */
+public final class Checksum extends OutputStream {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** CRC32C 查找表 */
+    private static final int[] CRC32C_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+            }
+            CRC32C_TABLE[i] = crc;
+        }
+    }
+
+    private final ChecksumType mType;
+
+    /** 摘要算法（CRC32C 时为空） */
+    private final MessageDigest mDigest;
+
+    /** CRC32C 的当前值 */
+    private int mCrc = 0xFFFFFFFF;
+
+    public Checksum(@NonNull ChecksumType type) {
+        mType = type;
+        switch (type) {
+            case MD5:
+                mDigest = getMessageDigest("MD5");
+                break;
+            case SHA_256:
+                mDigest = getMessageDigest("SHA-256");
+                break;
+            default:
+                mDigest = null;
+                break;
+        }
+    }
+
+    @NonNull
+    public ChecksumType getType() {
+        return mType;
+    }
+
+    @Override
+    public void write(int b) {
+        if (mDigest != null) {
+            mDigest.update((byte) b);
+            return;
+        }
+        mCrc = (mCrc >>> 8) ^ CRC32C_TABLE[(mCrc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void write(@NonNull byte[] bytes, int offset, int length) {
+        if (mDigest != null) {
+            mDigest.update(bytes, offset, length);
+            return;
+        }
+        int crc = mCrc;
+        for (int i = offset; i < offset + length; i++) {
+            crc = (crc >>> 8) ^ CRC32C_TABLE[(crc ^ bytes[i]) & 0xFF];
+        }
+        mCrc = crc;
+    }
+
+    /**
+     * 获取校验值的十六进制字符串（获取之后会重置）
+     */
+    @NonNull
+    public String getHexString() {
+        byte[] bytes;
+        if (mDigest != null) {
+            bytes = mDigest.digest();
+        } else {
+            int crc = ~mCrc;
+            bytes = new byte[] {(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc};
+            mCrc = 0xFFFFFFFF;
+        }
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static MessageDigest getMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // 这些算法是 Java 平台必须支持的，不会走到这里
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ling.http.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ling.http.EasyUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 文件校验值缓存（以文件路径 + 大小 + 修改时间作为依据，文件没有变化就无需重新读取计算）
+ */
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public final class ChecksumCache {
+
+    /** 缓存保存的文件（为空表示只缓存在内存中） */
+    private final File mCacheFile;
+
+    /** 缓存内容 */
+    private Properties mProperties;
+
+    public ChecksumCache(@Nullable File cacheFile) {
+        mCacheFile = cacheFile;
+    }
+
+    /**
+     * 获取文件的校验值（文件已经发生变化或者没有缓存则返回空）
+     */
+    @Nullable
+    public synchronized String get(@NonNull File file, @NonNull ChecksumType type) {
+        String value = getProperties().getProperty(getKey(file, type));
+        if (value == null) {
+            return null;
+        }
+        String prefix = getVersion(file);
+        if (!value.startsWith(prefix)) {
+            return null;
+        }
+        return value.substring(prefix.length());
+    }
+
+    /**
+     * 保存文件的校验值（需要在文件写入完成之后调用）
+     */
+    public synchronized void put(@NonNull File file, @NonNull ChecksumType type, @NonNull String checksum) {
+        getProperties().setProperty(getKey(file, type), getVersion(file) + checksum);
+        save();
+    }
+
+    /**
+     * 删除文件的校验值
+     */
+    public synchronized void remove(@NonNull File file, @NonNull ChecksumType type) {
+        if (getProperties().remove(getKey(file, type)) != null) {
+            save();
+        }
+    }
+
+    private Properties getProperties() {
+        if (mProperties != null) {
+            return mProperties;
+        }
+        mProperties = new Properties();
+        if (mCacheFile == null || !mCacheFile.isFile()) {
+            return mProperties;
+        }
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(mCacheFile);
+            mProperties.load(inputStream);
+        } catch (IOException | IllegalArgumentException e) {
+            // 缓存文件已经损坏，直接丢弃
+            mProperties.clear();
+            mCacheFile.delete();
+        } finally {
+            EasyUtils.closeStream(inputStream);
+        }
+        return mProperties;
+    }
+
+    private void save() {
+        if (mCacheFile == null) {
+            return;
+        }
+        File parentFile = mCacheFile.getParentFile();
+        if (parentFile != null) {
+            EasyUtils.createFolder(parentFile);
+        }
+        // 先写到临时文件中，避免写入过程中断导致缓存损坏
+        File tempFile = new File(mCacheFile.getPath() + ".tmp");
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            mProperties.store(outputStream, null);
+            outputStream.close();
+            outputStream = null;
+            if (!tempFile.renameTo(mCacheFile)) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            tempFile.delete();
+        } finally {
+            EasyUtils.closeStream(outputStream);
+        }
+    }
+
+    private static String getKey(File file, ChecksumType type) {
+        return type + ":" + file.getAbsolutePath();
+    }
+
+    private static String getVersion(File file) {
+        return file.length() + ":" + file.lastModified() + ":";
+    }
+}
@@ -0,0 +1,19 @@
+package com.ling.http.model;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 文件校验算法
+ */
+public enum ChecksumType {
+
+    /** MD5 */
+    MD5,
+
+    /** SHA-256 */
+    SHA_256,
+
+    /** CRC32C（速度最快，适合只需要校验完整性的场景） */
+    CRC32C
+}
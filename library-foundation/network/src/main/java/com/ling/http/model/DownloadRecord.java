@@ -0,0 +1,211 @@
+package com.ling.http.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ling.http.EasyUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 断点下载记录（保存在下载文件旁边的 .download 文件中）
+ */
+@SuppressWarnings("ResultOfMethodCallIgnored")
+public final class DownloadRecord {
+
+    /** 记录文件的后缀 */
+    private static final String SUFFIX = ".download";
+
+    /**
+     * 读取下载记录（没有记录或者记录已经失效则返回空）
+     */
+    @Nullable
+    public static DownloadRecord load(@NonNull File file) {
+        File recordFile = getRecordFile(file);
+        if (!recordFile.isFile()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(recordFile);
+            properties.load(inputStream);
+            long totalByte = Long.parseLong(properties.getProperty("total"));
+            int count = Integer.parseInt(properties.getProperty("segments"));
+            if (totalByte <= 0 || count <= 0 || file.length() != totalByte) {
+                // 记录已经和文件对不上了
+                recordFile.delete();
+                return null;
+            }
+            DownloadRecord record = new DownloadRecord(file, properties.getProperty("validator"), totalByte, count);
+            for (int i = 0; i < count; i++) {
+                record.mStarts[i] = Long.parseLong(properties.getProperty("start." + i));
+                record.mEnds[i] = Long.parseLong(properties.getProperty("end." + i));
+                record.mPositions[i] = Long.parseLong(properties.getProperty("position." + i));
+            }
+            return record;
+        } catch (IOException | RuntimeException e) {
+            recordFile.delete();
+            return null;
+        } finally {
+            EasyUtils.closeStream(inputStream);
+        }
+    }
+
+    /**
+     * 创建下载记录，将文件平均分成多段
+     */
+    @NonNull
+    public static DownloadRecord create(@NonNull File file, @Nullable String validator, long totalByte, int segmentCount) {
+        int count = (int) Math.max(1, Math.min(segmentCount, totalByte));
+        DownloadRecord record = new DownloadRecord(file, validator, totalByte, count);
+        long segmentSize = totalByte / count;
+        for (int i = 0; i < count; i++) {
+            record.mStarts[i] = i * segmentSize;
+            record.mEnds[i] = i == count - 1 ? totalByte - 1 : (i + 1) * segmentSize - 1;
+            record.mPositions[i] = record.mStarts[i];
+        }
+        return record;
+    }
+
+    /**
+     * 删除文件对应的下载记录
+     */
+    public static void delete(@NonNull File file) {
+        getRecordFile(file).delete();
+    }
+
+    private static File getRecordFile(File file) {
+        return new File(file.getPath() + SUFFIX);
+    }
+
+    /** 下载的文件 */
+    private final File mFile;
+    /** 服务器文件的校验值（ETag 或者 Last-Modified） */
+    private final String mValidator;
+    /** 文件总字节 */
+    private final long mTotalByte;
+
+    /** 每段的开始位置 */
+    private final long[] mStarts;
+    /** 每段的结束位置（包含） */
+    private final long[] mEnds;
+    /** 每段已经下载到的位置 */
+    private final long[] mPositions;
+
+    private DownloadRecord(File file, String validator, long totalByte, int count) {
+        mFile = file;
+        mValidator = validator;
+        mTotalByte = totalByte;
+        mStarts = new long[count];
+        mEnds = new long[count];
+        mPositions = new long[count];
+    }
+
+    @Nullable
+    public String getValidator() {
+        return mValidator;
+    }
+
+    public long getTotalByte() {
+        return mTotalByte;
+    }
+
+    public int getSegmentCount() {
+        return mStarts.length;
+    }
+
+    public long getEnd(int index) {
+        return mEnds[index];
+    }
+
+    public synchronized long getPosition(int index) {
+        return mPositions[index];
+    }
+
+    public synchronized void setPosition(int index, long position) {
+        mPositions[index] = position;
+    }
+
+    /**
+     * 判断某一段是否已经下载完成
+     */
+    public synchronized boolean isComplete(int index) {
+        return mPositions[index] > mEnds[index];
+    }
+
+    /**
+     * 获取第一个没有下载完成的段（全部下载完成则返回 -1）
+     */
+    public synchronized int getFirstIncomplete() {
+        for (int i = 0; i < mStarts.length; i++) {
+            if (!isComplete(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 根据文件位置查找所在的段
+     */
+    public int findSegment(long position) {
+        for (int i = 0; i < mStarts.length; i++) {
+            if (position >= mStarts[i] && position <= mEnds[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 获取已经下载的字节数
+     */
+    public synchronized long getDownloadByte() {
+        long downloadByte = 0;
+        for (int i = 0; i < mStarts.length; i++) {
+            downloadByte += mPositions[i] - mStarts[i];
+        }
+        return downloadByte;
+    }
+
+    /**
+     * 保存下载记录（先写到临时文件中，避免写入过程中断导致记录损坏）
+     */
+    public synchronized void save() throws IOException {
+        Properties properties = new Properties();
+        if (mValidator != null) {
+            properties.setProperty("validator", mValidator);
+        }
+        properties.setProperty("total", String.valueOf(mTotalByte));
+        properties.setProperty("segments", String.valueOf(mStarts.length));
+        for (int i = 0; i < mStarts.length; i++) {
+            properties.setProperty("start." + i, String.valueOf(mStarts[i]));
+            properties.setProperty("end." + i, String.valueOf(mEnds[i]));
+            properties.setProperty("position." + i, String.valueOf(mPositions[i]));
+        }
+
+        File recordFile = getRecordFile(mFile);
+        File tempFile = new File(recordFile.getPath() + ".tmp");
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            properties.store(outputStream, null);
+        } finally {
+            EasyUtils.closeStream(outputStream);
+        }
+        if (!tempFile.renameTo(recordFile)) {
+            throw new IOException("Failed to save the download record");
+        }
+    }
+}
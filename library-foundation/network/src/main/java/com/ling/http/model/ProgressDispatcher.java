@@ -0,0 +1,116 @@
+package com.ling.http.model;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.ling.http.EasyUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 进度分发器（读写线程只更新最新的字节数，主线程中同一时间最多只有一个进度回调在排队）
+ */
+public final class ProgressDispatcher implements Runnable {
+
+    /** 一帧的时间 */
+    public static final long FRAME_INTERVAL = 16;
+
+    /** 进度回调（在主线程中调用） */
+    public interface Callback {
+
+        void onProgress(long totalByte, long currentByte);
+    }
+
+    private final Callback mCallback;
+
+    /** 两次回调的最小时间间隔 */
+    private final long mInterval;
+    /** 两次回调的最小百分比间隔 */
+    private final int mStep;
+
+    /** 总字节数 */
+    private volatile long mTotalByte;
+    /** 当前字节数 */
+    private final AtomicLong mCurrentByte = new AtomicLong();
+
+    /** 是否有等待执行的回调 */
+    private final AtomicBoolean mPending = new AtomicBoolean();
+    /** 上一次回调的时间 */
+    private volatile long mLastDispatchTime;
+    /** 上一次投递回调时的进度 */
+    private int mScheduledProgress;
+
+    public ProgressDispatcher(@NonNull Callback callback, long interval, int step) {
+        mCallback = callback;
+        mInterval = interval;
+        mStep = step;
+    }
+
+    /**
+     * 重置进度（开始新一轮读写时调用）
+     */
+    public synchronized void reset(long totalByte, long currentByte) {
+        mTotalByte = totalByte;
+        mCurrentByte.set(currentByte);
+        mScheduledProgress = EasyUtils.getProgressProgress(totalByte, currentByte);
+    }
+
+    /**
+     * 增加已读写的字节数（可以在多个线程中同时调用）
+     */
+    public void addByte(long byteCount) {
+        long currentByte = mCurrentByte.addAndGet(byteCount);
+        if (mStep > 0) {
+            synchronized (this) {
+                int progress = EasyUtils.getProgressProgress(mTotalByte, currentByte);
+                if (progress - mScheduledProgress < mStep) {
+                    return;
+                }
+                mScheduledProgress = progress;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * 立即回调最新的进度（读写完成时调用，保证最终的进度一定会被回调）
+     */
+    public void flush() {
+        EasyUtils.removeCallbacks(this);
+        mPending.set(true);
+        EasyUtils.post(this);
+    }
+
+    public long getTotalByte() {
+        return mTotalByte;
+    }
+
+    public long getCurrentByte() {
+        return mCurrentByte.get();
+    }
+
+    private void schedule() {
+        if (!mPending.compareAndSet(false, true)) {
+            // 已经有回调在排队了，到时候会读取到最新的字节数
+            return;
+        }
+        long delay = mLastDispatchTime + mInterval - SystemClock.uptimeMillis();
+        if (delay > 0) {
+            EasyUtils.postDelayed(this, delay);
+        } else {
+            EasyUtils.post(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        mPending.set(false);
+        mLastDispatchTime = SystemClock.uptimeMillis();
+        mCallback.onProgress(mTotalByte, mCurrentByte.get());
+    }
+}
@@ -0,0 +1,199 @@
+package com.ling.http.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ling.http.EasyUtils;
+import com.ling.http.annotation.HttpHeader;
+import com.ling.http.annotation.HttpIgnore;
+import com.ling.http.annotation.HttpRename;
+import com.ling.http.config.IParamBinder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 请求接口参数绑定计划（按类缓存，避免每次请求都重复反射解析字段）
+ */
+public final class RequestBinding {
+
+    /** 绑定计划缓存 */
+    private static final ConcurrentHashMap<Class<?>, RequestBinding> BINDING_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 获取某个类的参数绑定计划（第一次获取时解析，之后直接复用）
+     */
+    @NonNull
+    public static RequestBinding get(@NonNull Class<?> clazz) {
+        RequestBinding binding = BINDING_CACHE.get(clazz);
+        if (binding != null) {
+            return binding;
+        }
+        binding = new RequestBinding(clazz);
+        RequestBinding oldBinding = BINDING_CACHE.putIfAbsent(clazz, binding);
+        return oldBinding != null ? oldBinding : binding;
+    }
+
+    /**
+     * 清空绑定计划缓存
+     */
+    public static void clear() {
+        BINDING_CACHE.clear();
+    }
+
+    /** 编译期生成的参数绑定器（可能为空） */
+    private final IParamBinder<?> mBinder;
+
+    /** 字段绑定集合（父类字段在前） */
+    private final List<FieldBinding> mFields;
+
+    /** 是否存在流参数 */
+    private final boolean mMultipart;
+
+    private RequestBinding(Class<?> clazz) {
+        mBinder = findBinder(clazz);
+        if (mBinder != null) {
+            // 已经有生成的绑定器，无需再通过反射解析字段
+            mFields = Collections.emptyList();
+            mMultipart = mBinder.isMultipart();
+            return;
+        }
+
+        List<Field> fields = new ArrayList<>();
+        do {
+            Field[] declaredFields = clazz.getDeclaredFields();
+            fields.addAll(0, Arrays.asList(declaredFields));
+            // 遍历获取父类的字段
+            clazz = clazz.getSuperclass();
+        } while (clazz != null && !Object.class.equals(clazz));
+
+        mMultipart = EasyUtils.isMultipartParameter(fields);
+
+        List<FieldBinding> bindings = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            int modifiers = field.getModifiers();
+            // 如果这是一个常量字段，则直接忽略掉，例如 Parcelable 接口中的 CREATOR 字段
+            // https://github.com/getActivity/EasyHttp/issues/112
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                continue;
+            }
+
+            // 获取字段的名称
+            String key;
+            HttpRename annotation = field.getAnnotation(HttpRename.class);
+            if (annotation != null) {
+                key = annotation.value();
+            } else {
+                key = field.getName();
+                // 如果是内部类则会出现一个字段名为 this$0 的外部类对象，会导致无限递归，这里要忽略掉，如果使用静态内部类则不会出现这个问题
+                // 和规避 Kotlin 自动生成的伴生对象：https://github.com/getActivity/EasyHttp/issues/15
+                if (key.matches("this\\$\\d+") || "Companion".equals(key)) {
+                    continue;
+                }
+            }
+
+            // 允许访问私有字段
+            field.setAccessible(true);
+            bindings.add(new FieldBinding(field, key,
+                    field.isAnnotationPresent(HttpHeader.class),
+                    field.isAnnotationPresent(HttpIgnore.class)));
+        }
+        mFields = Collections.unmodifiableList(bindings);
+    }
+
+    /**
+     * 查找编译期生成的参数绑定器
+     */
+    @Nullable
+    private static IParamBinder<?> findBinder(Class<?> clazz) {
+        try {
+            Class<?> binderClass = Class.forName(clazz.getName() + IParamBinder.CLASS_SUFFIX,
+                    true, clazz.getClassLoader());
+            return (IParamBinder<?>) binderClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            // 没有生成绑定器，使用反射的方式解析字段
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 获取编译期生成的参数绑定器（为空则需要通过反射绑定字段）
+     */
+    @Nullable
+    public IParamBinder<?> getBinder() {
+        return mBinder;
+    }
+
+    /**
+     * 获取字段绑定集合
+     */
+    @NonNull
+    public List<FieldBinding> getFields() {
+        return mFields;
+    }
+
+    /**
+     * 是否存在流参数
+     */
+    public boolean isMultipart() {
+        return mMultipart;
+    }
+
+    /**
+     * 单个字段的绑定信息
+     */
+    public static final class FieldBinding {
+
+        /** 字段对象 */
+        private final Field mField;
+        /** 参数名称 */
+        private final String mKey;
+        /** 是否为请求头 */
+        private final boolean mHeader;
+        /** 是否需要忽略 */
+        private final boolean mIgnore;
+
+        private FieldBinding(Field field, String key, boolean header, boolean ignore) {
+            mField = field;
+            mKey = key;
+            mHeader = header;
+            mIgnore = ignore;
+        }
+
+        /**
+         * 获取字段的值
+         */
+        public Object getValue(Object object) throws IllegalAccessException {
+            return mField.get(object);
+        }
+
+        @NonNull
+        public Field getField() {
+            return mField;
+        }
+
+        @NonNull
+        public String getKey() {
+            return mKey;
+        }
+
+        public boolean isHeader() {
+            return mHeader;
+        }
+
+        public boolean isIgnore() {
+            return mIgnore;
+        }
+    }
+}
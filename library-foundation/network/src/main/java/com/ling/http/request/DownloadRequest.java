@@ -16,6 +16,8 @@ import com.ling.http.listener.OnDownloadListener;
 import com.ling.http.listener.OnHttpListener;
 import com.ling.http.model.BodyType;
 import com.ling.http.model.CallProxy;
+import com.ling.http.model.ChecksumType;
+import com.ling.http.model.DownloadRecord;
 import com.ling.http.model.FileContentResolver;
 import com.ling.http.model.HttpHeaders;
 import com.ling.http.model.HttpMethod;
@@ -23,6 +25,7 @@ import com.ling.http.model.HttpParams;
 import com.ling.http.model.ResponseClass;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.Request;
 
@@ -42,12 +45,29 @@ public final class DownloadRequest extends HttpRequest<DownloadRequest> {
     /** 保存的文件 */
     private File mFile;
 
-    /** 校验的 md5 */
-    private String mMd5;
+    /** 文件校验算法 */
+    private ChecksumType mChecksumType = ChecksumType.MD5;
+    /** 文件校验值 */
+    private String mChecksum;
 
     /** 下载监听回调 */
     private OnDownloadListener mListener;
 
+    /** 读写缓冲区大小 */
+    private int mBufferSize = 8192;
+
+    /** 是否支持断点续传 */
+    private boolean mResumable;
+    /** 分段下载的线程数 */
+    private int mThreadCount = 1;
+    /** 断点下载记录 */
+    private DownloadRecord mRecord;
+
+    /** 进度回调的最小时间间隔 */
+    private long mProgressInterval;
+    /** 进度回调的最小百分比间隔 */
+    private int mProgressStep;
+
     /** 请求执行对象 */
     private CallProxy mCallProxy;
 
@@ -111,7 +131,15 @@ public final class DownloadRequest extends HttpRequest<DownloadRequest> {
      * 设置 MD5 值
      */
     public DownloadRequest md5(String md5) {
-        mMd5 = md5;
+        return checksum(ChecksumType.MD5, md5);
+    }
+
+    /**
+     * 设置文件的校验值（下载过程中同时计算，下载完成后进行校验）
+     */
+    public DownloadRequest checksum(ChecksumType type, String checksum) {
+        mChecksumType = type;
+        mChecksum = checksum;
         return this;
     }
 
@@ -123,6 +151,58 @@ public final class DownloadRequest extends HttpRequest<DownloadRequest> {
         return this;
     }
 
+    /**
+     * 设置读写缓冲区大小（默认 8 KB）
+     */
+    public DownloadRequest bufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            // 缓冲区大小必须大于 0
+            throw new IllegalArgumentException("The buffer size must be greater than 0");
+        }
+        mBufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * 设置是否支持断点续传（下载中断后会在文件旁边保存一个 .download 记录文件，下次从中断的位置继续下载）
+     */
+    public DownloadRequest resumable(boolean resumable) {
+        mResumable = resumable;
+        return this;
+    }
+
+    /**
+     * 设置分段下载的线程数（服务器支持范围请求并且文件足够大时才会分段下载）
+     */
+    public DownloadRequest threadCount(int threadCount) {
+        if (threadCount <= 0) {
+            // 线程数必须大于 0
+            throw new IllegalArgumentException("The thread count must be greater than 0");
+        }
+        mThreadCount = threadCount;
+        return this;
+    }
+
+    public DownloadRequest progressInterval(long interval, TimeUnit unit) {
+        return progressInterval(unit.toMillis(interval));
+    }
+
+    /**
+     * 设置进度回调的最小时间间隔（默认不限制，但同一时间最多只有一个进度回调在主线程排队）
+     */
+    public DownloadRequest progressInterval(long intervalMillis) {
+        mProgressInterval = intervalMillis;
+        return this;
+    }
+
+    /**
+     * 设置进度回调的最小百分比间隔（默认不限制）
+     */
+    public DownloadRequest progressStep(int step) {
+        mProgressStep = step;
+        return this;
+    }
+
     /**
      * 开始下载
      */
@@ -133,7 +213,7 @@ public final class DownloadRequest extends HttpRequest<DownloadRequest> {
             EasyLog.printKeyValue(this, "RequestDelay", String.valueOf(delayMillis));
         }
 
-        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        StackTraceElement[] stackTrace = EasyLog.getStackTrace();
 
         EasyUtils.postDelayed(() -> {
             if (!HttpLifecycleManager.isLifecycleActive(getLifecycleOwner())) {
@@ -145,8 +225,12 @@ public final class DownloadRequest extends HttpRequest<DownloadRequest> {
             mCallProxy = new CallProxy(createCall());
             new DownloadCallback(this)
                     .setFile(mFile)
-                    .setMd5(mMd5)
+                    .setChecksum(mChecksumType, mChecksum)
                     .setListener(mListener)
+                    .setBufferSize(mBufferSize)
+                    .setRange(mResumable && isRangeSupported(), isRangeSupported() ? mThreadCount : 1, mRecord)
+                    .setProgressInterval(mProgressInterval)
+                    .setProgressStep(mProgressStep)
                     .setCall(mCallProxy)
                     .start();
         }, delayMillis);
@@ -190,9 +274,29 @@ public final class DownloadRequest extends HttpRequest<DownloadRequest> {
 
     @Override
     protected Request createRequest(String url, String tag, HttpParams params, HttpHeaders headers, BodyType type) {
+        mRecord = null;
+        if (mResumable && isRangeSupported()) {
+            DownloadRecord record = DownloadRecord.load(mFile);
+            int index = record != null ? record.getFirstIncomplete() : -1;
+            if (index != -1) {
+                // 从第一个没有下载完成的段继续下载，如果服务器上的文件发生了变化则会返回完整的文件
+                headers.put("Range", "bytes=" + record.getPosition(index) + "-" + record.getEnd(index));
+                if (record.getValidator() != null) {
+                    headers.put("If-Range", record.getValidator());
+                }
+                mRecord = record;
+            }
+        }
         return mRealRequest.api(getRequestApi()).createRequest(url, tag, params, headers, type);
     }
 
+    /**
+     * 是否可以按照范围写入文件（通过 ContentResolver 打开的文件不支持随机写入）
+     */
+    private boolean isRangeSupported() {
+        return !(mFile instanceof FileContentResolver);
+    }
+
     @Override
     protected void addHttpParams(HttpParams params, String key, Object value, BodyType type) {}
 
@@ -8,10 +8,8 @@ import com.ling.http.EasyConfig;
 import com.ling.http.EasyHttp;
 import com.ling.http.EasyLog;
 import com.ling.http.EasyUtils;
-import com.ling.http.annotation.HttpHeader;
-import com.ling.http.annotation.HttpIgnore;
-import com.ling.http.annotation.HttpRename;
 import com.ling.http.callback.NormalCallback;
+import com.ling.http.config.IParamBinder;
 import com.ling.http.config.IRequestApi;
 import com.ling.http.config.IRequestCache;
 import com.ling.http.config.IRequestClient;
@@ -20,6 +18,7 @@ import com.ling.http.config.IRequestHost;
 import com.ling.http.config.IRequestInterceptor;
 import com.ling.http.config.IRequestServer;
 import com.ling.http.config.IRequestType;
+import com.ling.http.config.IRetryPolicy;
 import com.ling.http.config.RequestApi;
 import com.ling.http.config.RequestServer;
 import com.ling.http.lifecycle.HttpLifecycleManager;
@@ -29,16 +28,13 @@ import com.ling.http.model.CacheMode;
 import com.ling.http.model.CallProxy;
 import com.ling.http.model.HttpHeaders;
 import com.ling.http.model.HttpParams;
+import com.ling.http.model.RequestBinding;
 import com.ling.http.model.ResponseClass;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.CacheControl;
@@ -72,6 +68,8 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
     private IRequestHandler mRequestHandler = EasyConfig.getInstance().getHandler();
     /** 请求拦截策略 */
     private IRequestInterceptor mRequestInterceptor = EasyConfig.getInstance().getInterceptor();
+    /** 请求重试策略 */
+    private IRetryPolicy mRetryPolicy = EasyConfig.getInstance().getRetryPolicy();
 
     /** 请求执行代理类 */
     private CallProxy mCallProxy;
@@ -79,6 +77,9 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
     /** 请求标记 */
     private String mTag;
 
+    /** 请求缓存的 key（创建请求时生成） */
+    private String mCacheKey;
+
     /** 请求延迟 */
     private long mDelayMillis;
 
@@ -124,6 +125,9 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
         if (api instanceof IRequestInterceptor) {
             mRequestInterceptor = (IRequestInterceptor) api;
         }
+        if (api instanceof IRetryPolicy) {
+            mRetryPolicy = (IRetryPolicy) api;
+        }
         return (T) this;
     }
 
@@ -168,6 +172,14 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
         return (T) this;
     }
 
+    /**
+     * 替换默认的重试策略
+     */
+    public T retryPolicy(IRetryPolicy policy) {
+        mRetryPolicy = policy;
+        return (T) this;
+    }
+
     public T delay(long delay, TimeUnit unit) {
         return delay(unit.toMillis(delay));
     }
@@ -205,18 +217,11 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
         HttpParams params = new HttpParams();
         HttpHeaders headers = new HttpHeaders();
 
-        List<Field> fields = new ArrayList<>();
-
-        Class<?> clazz = mRequestApi.getClass();
-        do {
-            Field[] declaredFields = clazz.getDeclaredFields();
-            fields.addAll(0, Arrays.asList(declaredFields));
-            // 遍历获取父类的字段
-            clazz = clazz.getSuperclass();
-        } while (clazz != null && !Object.class.equals(clazz));
+        // 获取请求接口的参数绑定计划（已按类缓存，无需每次都反射解析字段）
+        RequestBinding binding = RequestBinding.get(mRequestApi.getClass());
 
         // 当前请求是否存在流参数
-        params.setMultipart(EasyUtils.isMultipartParameter(fields));
+        params.setMultipart(binding.isMultipart());
 
         // 如果参数中包含流参数并且当前请求方式不是表单的话
         if (params.isMultipart() && type != BodyType.FORM) {
@@ -224,44 +229,28 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
             type = BodyType.FORM;
         }
 
-        for (Field field : fields) {
-            // 允许访问私有字段
-            field.setAccessible(true);
+        IParamBinder<IRequestApi> binder = (IParamBinder<IRequestApi>) binding.getBinder();
+        if (binder != null) {
+            // 使用编译期生成的绑定器，无需通过反射获取字段的值
+            binder.bind(mRequestApi, new ParamTarget(params, headers, type));
+        }
+
+        for (RequestBinding.FieldBinding field : binding.getFields()) {
+            String key = field.getKey();
 
-            int modifiers = field.getModifiers();
-            // 如果这是一个常量字段，则直接忽略掉，例如 Parcelable 接口中的 CREATOR 字段
-            // https://github.com/getActivity/EasyHttp/issues/112
-            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+            // 如果这个字段需要忽略，则进行忽略
+            if (field.isIgnore()) {
+                if (field.isHeader()) {
+                    headers.remove(key);
+                } else {
+                    params.remove(key);
+                }
                 continue;
             }
 
             try {
                 // 获取字段的对象
-                Object value = field.get(mRequestApi);
-
-                // 获取字段的名称
-                String key;
-                HttpRename annotation = field.getAnnotation(HttpRename.class);
-                if (annotation != null) {
-                    key = annotation.value();
-                } else {
-                    key = field.getName();
-                    // 如果是内部类则会出现一个字段名为 this$0 的外部类对象，会导致无限递归，这里要忽略掉，如果使用静态内部类则不会出现这个问题
-                    // 和规避 Kotlin 自动生成的伴生对象：https://github.com/getActivity/EasyHttp/issues/15
-                    if (key.matches("this\\$\\d+") || "Companion".equals(key)) {
-                        continue;
-                    }
-                }
-
-                // 如果这个字段需要忽略，则进行忽略
-                if (field.isAnnotationPresent(HttpIgnore.class)) {
-                    if (field.isAnnotationPresent(HttpHeader.class)) {
-                        headers.remove(key);
-                    } else {
-                        params.remove(key);
-                    }
-                    continue;
-                }
+                Object value = field.getValue(mRequestApi);
 
                 // 前提是这个字段值不能为空（基本数据类型有默认的值，而对象默认的值为 null）
                 if (value == null) {
@@ -270,7 +259,7 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
                 }
 
                 // 如果这是一个请求头参数
-                if (field.isAnnotationPresent(HttpHeader.class)) {
+                if (field.isHeader()) {
                     addHttpHeaders(headers, key, value);
                     continue;
                 }
@@ -287,6 +276,8 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
             mRequestInterceptor.interceptArguments(this, params, headers);
         }
 
+        mCacheKey = createCacheKey(url, params, headers);
+
         Request request = createRequest(url, mTag, params, headers, type);
 
         if (mRequestInterceptor != null) {
@@ -307,7 +298,7 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
             EasyLog.printKeyValue(this, "RequestDelay", String.valueOf(mDelayMillis));
         }
 
-        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        StackTraceElement[] stackTrace = EasyLog.getStackTrace();
         EasyUtils.postDelayed(() -> {
 
             if (!HttpLifecycleManager.isLifecycleActive(mLifecycleOwner)) {
@@ -350,7 +341,7 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
             throw new IllegalStateException("The host has been destroyed and the request cannot proceed");
         }
 
-        EasyLog.printStackTrace(this, new Throwable().getStackTrace());
+        EasyLog.printStackTrace(this, EasyLog.getStackTrace());
 
         Type reflectType = mRequestHandler.getType(responseClass);
 
@@ -359,11 +350,13 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
 
         CacheMode cacheMode = getRequestCache().getCacheMode();
         if (cacheMode == CacheMode.USE_CACHE_ONLY ||
-                cacheMode == CacheMode.USE_CACHE_FIRST) {
+                cacheMode == CacheMode.USE_CACHE_FIRST ||
+                cacheMode == CacheMode.STALE_WHILE_REVALIDATE) {
             try {
                 Object result = mRequestHandler.readCache(this, reflectType, mRequestCache.getCacheTime());
                 EasyLog.printLog(this, "ReadCache result：" + result);
-                if (cacheMode == CacheMode.USE_CACHE_FIRST) {
+                if (cacheMode == CacheMode.USE_CACHE_FIRST ||
+                        (cacheMode == CacheMode.STALE_WHILE_REVALIDATE && result != null)) {
                     // 使用异步请求来刷新缓存
                     new NormalCallback(this)
                             .setCall(mCallProxy)
@@ -382,7 +375,8 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
             Response response = mCallProxy.execute();
             Object result = mRequestHandler.requestSucceed(this, response, reflectType);
 
-            if (cacheMode == CacheMode.USE_CACHE_ONLY || cacheMode == CacheMode.USE_CACHE_AFTER_FAILURE) {
+            if (cacheMode == CacheMode.USE_CACHE_ONLY || cacheMode == CacheMode.USE_CACHE_AFTER_FAILURE ||
+                    cacheMode == CacheMode.STALE_WHILE_REVALIDATE) {
                 try {
                     boolean writeSucceed = mRequestHandler.writeCache(this, response, result);
                     EasyLog.printLog(this, "WriteCache result：" + writeSucceed);
@@ -508,6 +502,22 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
         return mRequestInterceptor;
     }
 
+    /**
+     * 获取请求缓存的 key（在请求创建之后才有值）
+     */
+    @Nullable
+    public String getCacheKey() {
+        return mCacheKey;
+    }
+
+    /**
+     * 获取请求的重试策略
+     */
+    @NonNull
+    public IRetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
     /**
      * 获取延迟请求时间
      */
@@ -550,6 +560,21 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
      */
     protected abstract void addHttpParams(HttpParams params, String key, Object value, BodyType type);
 
+    /**
+     * 创建请求缓存的 key（参数和请求头按照 key 排序，保证相同的请求得到相同的 key）
+     */
+    protected String createCacheKey(String url, HttpParams params, HttpHeaders headers) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(getRequestMethod()).append(' ').append(url);
+        for (String key : new TreeSet<>(params.getKeys())) {
+            builder.append('\n').append(key).append('=').append(params.get(key));
+        }
+        for (String key : new TreeSet<>(headers.getKeys())) {
+            builder.append('\n').append(key).append(':').append(headers.get(key));
+        }
+        return builder.toString();
+    }
+
     /**
      * 创建请求的对象
      */
@@ -610,4 +635,46 @@ public abstract class HttpRequest<T extends HttpRequest<?>> {
      * 打印请求日志
      */
     protected abstract void printRequestLog(Request request, HttpParams params, HttpHeaders headers, BodyType type);
+
+    /**
+     * 生成的参数绑定器写入目标
+     */
+    private final class ParamTarget implements IParamBinder.Target {
+
+        private final HttpParams mParams;
+        private final HttpHeaders mHeaders;
+        private final BodyType mType;
+
+        private ParamTarget(HttpParams params, HttpHeaders headers, BodyType type) {
+            mParams = params;
+            mHeaders = headers;
+            mType = type;
+        }
+
+        @Override
+        public void addHeader(@NonNull String key, Object value) {
+            if (value == null) {
+                return;
+            }
+            addHttpHeaders(mHeaders, key, value);
+        }
+
+        @Override
+        public void removeHeader(@NonNull String key) {
+            mHeaders.remove(key);
+        }
+
+        @Override
+        public void addParam(@NonNull String key, Object value) {
+            if (value == null) {
+                return;
+            }
+            addHttpParams(mParams, key, value, mType);
+        }
+
+        @Override
+        public void removeParam(@NonNull String key) {
+            mParams.remove(key);
+        }
+    }
 }
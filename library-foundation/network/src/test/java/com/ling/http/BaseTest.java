@@ -0,0 +1,25 @@
+package com.ling.http;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 单元测试基类，运行在 Robolectric 中
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class BaseTest {
+
+    /**
+     * 基准测试默认跳过，需要时通过 ./gradlew test -Pbenchmark 运行
+     */
+    protected static void assumeBenchmark() {
+        assumeTrue("Run with -Pbenchmark to enable benchmarks", Boolean.getBoolean("benchmark"));
+    }
+}
@@ -0,0 +1,188 @@
+package com.ling.http.callback;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import com.ling.http.BaseTest;
+import com.ling.http.EasyConfig;
+import com.ling.http.EasyHttp;
+import com.ling.http.config.IRequestHandler;
+import com.ling.http.listener.OnHttpListener;
+import com.ling.http.request.HttpRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.Robolectric;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 正常接口回调单元测试，验证合并请求的发起方放弃请求后，合并到它上面的请求仍然能收到回调
+ */
+public class NormalCallbackTest extends BaseTest {
+
+    private static final String API = "flight";
+    /** 发起方的重试延迟，需要在这段时间内合并请求和销毁宿主 */
+    private static final long RETRY_DELAY = 1000;
+
+    /** 经过拦截器的网络请求次数（只有第一次请求会失败） */
+    private final AtomicInteger mCallCount = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    if (mCallCount.getAndIncrement() == 0) {
+                        throw new IOException("The network is unavailable");
+                    }
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(MediaType.parse("text/plain"), "ok"))
+                            .build();
+                })
+                .build();
+
+        EasyConfig.with(client)
+                .setServer("http://localhost/")
+                .setHandler(new TextHandler())
+                .setLogEnabled(false)
+                .into();
+    }
+
+    @Test
+    public void leaderDestroyedDuringRetry() throws Exception {
+        TestLifecycleOwner leaderOwner = new TestLifecycleOwner();
+        TestLifecycleOwner followerOwner = new TestLifecycleOwner();
+
+        CountDownLatch retryScheduled = new CountDownLatch(1);
+        EasyHttp.get(leaderOwner)
+                .api(API)
+                .retryPolicy((httpRequest, retryCount, elapsedMillis, exception, response) -> {
+                    if (retryCount > 0) {
+                        return -1;
+                    }
+                    retryScheduled.countDown();
+                    return RETRY_DELAY;
+                })
+                .request(new TextListener());
+        await(retryScheduled);
+
+        // 发起方正在等待重试，相同的请求会合并到发起方上
+        TextListener follower = new TextListener();
+        request(followerOwner, follower);
+        assertEquals(1, mCallCount.get());
+
+        // 在重试之前销毁发起方的宿主，发起方不会再发起请求
+        leaderOwner.destroy();
+        await(follower.mEnd);
+        assertEquals("ok", follower.mResult.get());
+        assertEquals(2, mCallCount.get());
+
+        // 发起方已经退出合并，之后相同的请求不会合并到已经被放弃的请求上
+        TextListener next = new TextListener();
+        request(followerOwner, next);
+        await(next.mEnd);
+        assertEquals("ok", next.mResult.get());
+        assertEquals(3, mCallCount.get());
+    }
+
+    private static void request(LifecycleOwner owner, TextListener listener) {
+        EasyHttp.get(owner)
+                .api(API)
+                .retryPolicy((httpRequest, retryCount, elapsedMillis, exception, response) -> -1)
+                .request(listener);
+    }
+
+    /**
+     * 等待后台线程投递到主线程的回调执行完成
+     */
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + RETRY_DELAY * 5;
+        while (System.currentTimeMillis() < deadline) {
+            Robolectric.flushForegroundThreadScheduler();
+            if (latch.await(10, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+        assertTrue("Timed out waiting for the callback", latch.getCount() == 0);
+    }
+
+    private static final class TestLifecycleOwner implements LifecycleOwner {
+
+        private final LifecycleRegistry mLifecycle = new LifecycleRegistry(this);
+
+        private TestLifecycleOwner() {
+            mLifecycle.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        }
+
+        private void destroy() {
+            mLifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return mLifecycle;
+        }
+    }
+
+    private static class TextListener implements OnHttpListener<String> {
+
+        private final AtomicReference<Object> mResult = new AtomicReference<>();
+        private final CountDownLatch mEnd = new CountDownLatch(1);
+
+        @Override
+        public void onSucceed(String result) {
+            mResult.set(result);
+        }
+
+        @Override
+        public void onFail(Exception e) {
+            mResult.set(e);
+        }
+
+        @Override
+        public void onEnd(Call call) {
+            mEnd.countDown();
+        }
+    }
+
+    private static final class TextHandler implements IRequestHandler {
+
+        @NonNull
+        @Override
+        public Object requestSucceed(@NonNull HttpRequest<?> httpRequest, @NonNull Response response,
+                                     @NonNull Type type) throws Exception {
+            return response.body().string();
+        }
+
+        @NonNull
+        @Override
+        public Exception requestFail(@NonNull HttpRequest<?> httpRequest, @NonNull Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.ling.http.model;
+
+import com.ling.http.BaseTest;
+import com.ling.http.EasyUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.Robolectric;
+import org.robolectric.util.Scheduler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 下载进度单元测试，对比原来每读取一块数据就投递一条消息和通过进度分发器合并后，主线程的消息数和下载吞吐量
+ * <p>
+ * 主线程的 Looper 处于暂停状态，只在每一帧开始时执行到期的消息，模拟忙碌的主线程
+ */
+public class DownloadProgressTest extends BaseTest {
+
+    private static final long MB = 1024 * 1024;
+    /** DownloadRequest 默认的读写缓冲区大小 */
+    private static final int BUFFER_SIZE = 8192;
+    /** 每帧读取的数据块数（每毫秒读取一块，约 8 MB/s） */
+    private static final int CHUNKS_PER_FRAME = (int) ProgressDispatcher.FRAME_INTERVAL;
+
+    private static final int BENCHMARK_MB = 32;
+    private static final int BENCHMARK_COUNT = 5;
+
+    private Scheduler mScheduler;
+    private File mFile;
+
+    private int mMessageCount;
+    private long mLastDownloadByte;
+    private int mLastProgress;
+
+    @Before
+    public void setUp() throws IOException {
+        mScheduler = Robolectric.getForegroundThreadScheduler();
+        mScheduler.pause();
+        mFile = File.createTempFile("download", ".tmp");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void perChunkVsDispatcherMessagesPerMb() throws IOException {
+        byte[] bytes = createBytes(4 * MB);
+
+        downloadPerChunk(ResponseBody.create(null, bytes), CHUNKS_PER_FRAME);
+        int perChunkMessages = mMessageCount;
+        assertEquals(bytes.length, mLastDownloadByte);
+        assertEquals(bytes.length, mFile.length());
+
+        downloadDispatched(ResponseBody.create(null, bytes), CHUNKS_PER_FRAME);
+        int dispatchedMessages = mMessageCount;
+        assertEquals(bytes.length, mLastDownloadByte);
+        assertEquals(bytes.length, mFile.length());
+
+        // 原来每块数据一条消息，现在主线程每帧最多执行一条，加上完成时的 flush
+        long chunks = bytes.length / BUFFER_SIZE;
+        assertEquals(chunks, perChunkMessages);
+        assertTrue(dispatchedMessages <= chunks / CHUNKS_PER_FRAME + 2);
+    }
+
+    @Test
+    public void perChunkVsDispatcherThroughput() throws IOException {
+        assumeBenchmark();
+        byte[] bytes = createBytes(BENCHMARK_MB * MB);
+
+        // 第一轮用于预热
+        downloadPerChunk(ResponseBody.create(null, bytes), 0);
+        downloadDispatched(ResponseBody.create(null, bytes), 0);
+
+        long perChunkNanos = 0;
+        long dispatchedNanos = 0;
+        int perChunkMessages = 0;
+        int dispatchedMessages = 0;
+        for (int i = 0; i < BENCHMARK_COUNT; i++) {
+            perChunkNanos += downloadPerChunk(ResponseBody.create(null, bytes), 0);
+            perChunkMessages = mMessageCount;
+            dispatchedNanos += downloadDispatched(ResponseBody.create(null, bytes), 0);
+            dispatchedMessages = mMessageCount;
+        }
+
+        double perChunkThroughput = toMbPerSecond(perChunkNanos);
+        double dispatchedThroughput = toMbPerSecond(dispatchedNanos);
+        // 合并进度不能降低下载的吞吐量（留出 10% 的测量误差）
+        assertTrue("per chunk: " + perChunkMessages + " messages, " + perChunkThroughput + " MB/s; "
+                        + "dispatched: " + dispatchedMessages + " messages, " + dispatchedThroughput + " MB/s",
+                dispatchedMessages < perChunkMessages && dispatchedThroughput >= perChunkThroughput * 0.9);
+    }
+
+    /**
+     * 原来的下载方式：通过 InputStream 读取，每读取一块数据就向主线程投递一条消息
+     *
+     * @param chunksPerFrame    每读取多少块数据主线程执行一次消息（0 表示下载完成之后才执行）
+     * @return                  耗时（纳秒，包括主线程执行消息的时间）
+     */
+    private long downloadPerChunk(ResponseBody body, int chunksPerFrame) throws IOException {
+        reset();
+        long start = System.nanoTime();
+        long totalByte = body.contentLength();
+        long[] downloadByte = new long[1];
+        byte[] bytes = new byte[BUFFER_SIZE];
+        InputStream inputStream = body.byteStream();
+        OutputStream outputStream = new FileOutputStream(mFile);
+        try {
+            int readLength;
+            int chunks = 0;
+            while ((readLength = inputStream.read(bytes)) != -1) {
+                downloadByte[0] += readLength;
+                outputStream.write(bytes, 0, readLength);
+                EasyUtils.post(() -> onProgress(totalByte, downloadByte[0]));
+                nextChunk(++chunks, chunksPerFrame);
+            }
+        } finally {
+            EasyUtils.closeStream(inputStream);
+            EasyUtils.closeStream(outputStream);
+        }
+        mScheduler.advanceToLastPostedRunnable();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 现在的下载方式：通过 Okio 凑够缓冲区再写入，由进度分发器合并进度（使用 DownloadRequest 默认的回调间隔）
+     *
+     * @param chunksPerFrame    每读取多少块数据主线程执行一次消息（0 表示下载完成之后才执行）
+     * @return                  耗时（纳秒，包括主线程执行消息的时间）
+     */
+    private long downloadDispatched(ResponseBody body, int chunksPerFrame) throws IOException {
+        reset();
+        long start = System.nanoTime();
+        ProgressDispatcher dispatcher = new ProgressDispatcher(this::onProgress, 0, 0);
+        dispatcher.reset(body.contentLength(), 0);
+        BufferedSource source = body.source();
+        Sink sink = Okio.sink(mFile);
+        Buffer buffer = new Buffer();
+        try {
+            int chunks = 0;
+            while (true) {
+                source.request(BUFFER_SIZE);
+                long readLength = source.read(buffer, BUFFER_SIZE);
+                if (readLength == -1) {
+                    break;
+                }
+                sink.write(buffer, readLength);
+                dispatcher.addByte(readLength);
+                nextChunk(++chunks, chunksPerFrame);
+            }
+        } finally {
+            EasyUtils.closeStream(source);
+            EasyUtils.closeStream(sink);
+        }
+        dispatcher.flush();
+        mScheduler.advanceToLastPostedRunnable();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 在主线程中回调进度，和 DownloadCallback 一样只有进度发生改变时才回调 onProgress
+     */
+    private void onProgress(long totalByte, long downloadByte) {
+        mMessageCount++;
+        mLastDownloadByte = downloadByte;
+        int progress = EasyUtils.getProgressProgress(totalByte, downloadByte);
+        if (progress != mLastProgress) {
+            mLastProgress = progress;
+        }
+    }
+
+    private void nextChunk(int chunks, int chunksPerFrame) {
+        if (chunksPerFrame > 0 && chunks % chunksPerFrame == 0) {
+            mScheduler.advanceBy(ProgressDispatcher.FRAME_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reset() {
+        mMessageCount = 0;
+        mLastDownloadByte = 0;
+        mLastProgress = 0;
+    }
+
+    private static byte[] createBytes(long length) {
+        byte[] bytes = new byte[(int) length];
+        new Random(0).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static double toMbPerSecond(long nanos) {
+        return (double) BENCHMARK_MB * BENCHMARK_COUNT * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ling.http.model;
+
+import com.ling.http.BaseTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.Robolectric;
+import org.robolectric.util.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 进度分发器单元测试，统计每 MB 数据投递到主线程的消息数
+ * <p>
+ * 主线程的 Looper 处于暂停状态，只有推进时间时才会执行到期的消息，模拟读写线程和主线程并行的情况
+ */
+public class ProgressDispatcherTest extends BaseTest {
+
+    private static final long MB = 1024 * 1024;
+    /** Okio 每次写入一个 Segment 的数据，ProgressBody 和 DownloadCallback 也是按这个大小更新进度的 */
+    private static final int SEGMENT_SIZE = 8192;
+
+    private Scheduler mScheduler;
+    private int mMessageCount;
+    private long mLastCurrentByte;
+
+    private final ProgressDispatcher.Callback mCallback = (totalByte, currentByte) -> {
+        mMessageCount++;
+        mLastCurrentByte = currentByte;
+    };
+
+    @Before
+    public void setUp() {
+        mScheduler = Robolectric.getForegroundThreadScheduler();
+        mScheduler.pause();
+        mMessageCount = 0;
+        mLastCurrentByte = 0;
+    }
+
+    /**
+     * 按帧回调：每毫秒写入一个 Segment（约 8 MB/s），每帧最多一条消息
+     */
+    @Test
+    public void frameIntervalMessagesPerMb() {
+        ProgressDispatcher dispatcher = new ProgressDispatcher(mCallback, ProgressDispatcher.FRAME_INTERVAL, 0);
+        long totalByte = 4 * MB;
+        long elapsed = write(dispatcher, totalByte, SEGMENT_SIZE, 1);
+
+        // 每帧一条，加上首次立即回调和完成时的 flush
+        assertTrue(mMessageCount <= elapsed / ProgressDispatcher.FRAME_INTERVAL + 2);
+        // 每 MB 需要 128 毫秒，也就是 8 帧
+        assertTrue(messagesPerMb(totalByte) <= (double) MB / SEGMENT_SIZE / ProgressDispatcher.FRAME_INTERVAL + 1);
+        assertEquals(totalByte, mLastCurrentByte);
+    }
+
+    /**
+     * 按百分比回调：不限制时间间隔，每增加 1% 最多一条消息
+     */
+    @Test
+    public void stepMessagesPerMb() {
+        ProgressDispatcher dispatcher = new ProgressDispatcher(mCallback, 0, 1);
+        long totalByte = 4 * MB;
+        write(dispatcher, totalByte, 1024, 1);
+
+        // 每 1% 一条，加上完成时的 flush
+        assertTrue(mMessageCount <= 100 + 1);
+        assertTrue(messagesPerMb(totalByte) <= (100 + 1) * (double) MB / totalByte);
+        assertEquals(totalByte, mLastCurrentByte);
+    }
+
+    /**
+     * 主线程卡住时不会堆积消息：整个传输过程中最多只有一条消息在排队
+     */
+    @Test
+    public void blockedLooperQueuesOneMessage() {
+        ProgressDispatcher dispatcher = new ProgressDispatcher(mCallback, ProgressDispatcher.FRAME_INTERVAL, 0);
+        long totalByte = 4 * MB;
+        dispatcher.reset(totalByte, 0);
+        for (long written = 0; written < totalByte; written += SEGMENT_SIZE) {
+            dispatcher.addByte(SEGMENT_SIZE);
+            assertTrue(mScheduler.size() <= 1);
+        }
+        dispatcher.flush();
+        assertEquals(1, mScheduler.size());
+
+        mScheduler.advanceToLastPostedRunnable();
+        assertEquals(1, mMessageCount);
+        assertEquals(totalByte, mLastCurrentByte);
+    }
+
+    /**
+     * 模拟读写线程，每写入一块数据推进主线程的时间
+     *
+     * @return 耗时（毫秒）
+     */
+    private long write(ProgressDispatcher dispatcher, long totalByte, int chunkSize, long millisPerChunk) {
+        long start = mScheduler.getCurrentTime();
+        dispatcher.reset(totalByte, 0);
+        for (long written = 0; written < totalByte; written += chunkSize) {
+            dispatcher.addByte(chunkSize);
+            mScheduler.advanceBy(millisPerChunk, TimeUnit.MILLISECONDS);
+        }
+        dispatcher.flush();
+        mScheduler.advanceToLastPostedRunnable();
+        return mScheduler.getCurrentTime() - start;
+    }
+
+    private double messagesPerMb(long totalByte) {
+        return (double) mMessageCount * MB / totalByte;
+    }
+}
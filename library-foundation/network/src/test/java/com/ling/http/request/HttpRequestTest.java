@@ -0,0 +1,148 @@
+package com.ling.http.request;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.ling.http.BaseTest;
+import com.ling.http.EasyConfig;
+import com.ling.http.annotation.HttpHeader;
+import com.ling.http.annotation.HttpIgnore;
+import com.ling.http.annotation.HttpRename;
+import com.ling.http.config.IRequestApi;
+import com.ling.http.config.IRequestHandler;
+import com.ling.http.model.RequestBinding;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/getActivity/EasyHttp
+ * time   : 2022/5/19
+ * desc   : 请求基类单元测试，对比第一次（需要解析参数绑定计划）和之后（复用绑定计划）创建请求的耗时
+ */
+public class HttpRequestTest extends BaseTest {
+
+    private static final int WARM_UP_COUNT = 2_000;
+    private static final int BENCHMARK_COUNT = 20_000;
+
+    private static final LifecycleOwner LIFECYCLE_OWNER = new LifecycleOwner() {
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    public static class SearchApi implements IRequestApi {
+
+        private String keyword = "android";
+        private int page = 1;
+        private int size = 20;
+        private boolean desc = true;
+        @HttpRename("sort_by")
+        private String sortBy = "time";
+        private String category;
+        @HttpHeader
+        private String token = "token";
+        @HttpIgnore
+        private String localCache = "ignored";
+
+        @NonNull
+        @Override
+        public String getApi() {
+            return "search";
+        }
+    }
+
+    @Before
+    public void setUp() {
+        EasyConfig.with(new OkHttpClient())
+                .setServer("http://localhost/")
+                .setHandler(new IRequestHandler() {
+
+                    @NonNull
+                    @Override
+                    public Object requestSucceed(@NonNull HttpRequest<?> httpRequest, @NonNull Response response,
+                                                 @NonNull Type type) {
+                        return response;
+                    }
+
+                    @NonNull
+                    @Override
+                    public Exception requestFail(@NonNull HttpRequest<?> httpRequest, @NonNull Exception e) {
+                        return e;
+                    }
+                })
+                .setLogEnabled(false)
+                .into();
+    }
+
+    @Test
+    public void createCallReusesBinding() {
+        RequestBinding.clear();
+        Request cold = createRequest();
+        RequestBinding binding = RequestBinding.get(SearchApi.class);
+        Request warm = createRequest();
+
+        // 之后的请求复用第一次解析的绑定计划，并且得到相同的请求
+        assertSame(binding, RequestBinding.get(SearchApi.class));
+        assertEquals(cold.url(), warm.url());
+        assertEquals(cold.headers(), warm.headers());
+        assertEquals("android", warm.url().queryParameter("keyword"));
+        assertEquals("time", warm.url().queryParameter("sort_by"));
+        assertNull(warm.url().queryParameter("category"));
+        assertNull(warm.url().queryParameter("localCache"));
+        assertEquals("token", warm.header("token"));
+    }
+
+    @Test
+    public void createCallColdVsWarm() {
+        assumeBenchmark();
+
+        createCall(WARM_UP_COUNT, true);
+        createCall(WARM_UP_COUNT, false);
+        long cold = createCall(BENCHMARK_COUNT, true);
+        long warm = createCall(BENCHMARK_COUNT, false);
+
+        assertTrue("cold: " + cold / BENCHMARK_COUNT + " ns, warm: " + warm / BENCHMARK_COUNT + " ns",
+                warm < cold);
+    }
+
+    /**
+     * 连续创建请求
+     *
+     * @param cold      是否每次都重新解析绑定计划
+     * @return          总耗时（纳秒）
+     */
+    private static long createCall(int count, boolean cold) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (cold) {
+                RequestBinding.clear();
+            }
+            createRequest();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static Request createRequest() {
+        return new GetRequest(LIFECYCLE_OWNER)
+                .api(new SearchApi())
+                .createCall()
+                .request();
+    }
+}
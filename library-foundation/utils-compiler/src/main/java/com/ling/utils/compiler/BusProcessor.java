@@ -0,0 +1,276 @@
+package com.ling.utils.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : 为含有 BusUtils.Bus 方法的类生成 BusUtils.IBusInvoker，避免运行时通过反射查找和调用订阅方法
+ */
+public final class BusProcessor extends AbstractProcessor {
+
+    private static final String BUS = "com.ling.utils.BusUtils.Bus";
+    private static final String BUS_METHOD = "com.ling.utils.BusUtils.BusMethod";
+    private static final String BUS_INVOKER = "com.ling.utils.BusUtils.IBusInvoker";
+    private static final String THREAD_MODE = "com.ling.utils.BusUtils.ThreadMode";
+    private static final String INVOKER_SUFFIX = "_BusInvoker";
+
+    private Elements mElements;
+    private Types mTypes;
+    private Filer mFiler;
+    private Messager mMessager;
+
+    /** 已经生成过的类，避免多轮处理时重复生成 */
+    private final Set<String> mGenerated = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+        mFiler = processingEnv.getFiler();
+        mMessager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(BUS);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement bus = mElements.getTypeElement(BUS);
+        if (bus == null) {
+            return false;
+        }
+
+        // 按声明订阅方法的类分组
+        Map<TypeElement, List<ExecutableElement>> typeMethods = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(bus)) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+            TypeElement typeElement = (TypeElement) element.getEnclosingElement();
+            List<ExecutableElement> methods = typeMethods.get(typeElement);
+            if (methods == null) {
+                methods = new ArrayList<>();
+                typeMethods.put(typeElement, methods);
+            }
+            methods.add((ExecutableElement) element);
+        }
+
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : typeMethods.entrySet()) {
+            TypeElement typeElement = entry.getKey();
+            String binaryName = mElements.getBinaryName(typeElement).toString();
+            if (!mGenerated.add(binaryName)) {
+                continue;
+            }
+
+            try {
+                generateInvoker(typeElement, binaryName, entry.getValue(), bus);
+            } catch (IOException e) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to generate " + binaryName + INVOKER_SUFFIX + ": " + e.getMessage(), typeElement);
+            }
+        }
+        // 不消费任何注解，让其他注解处理器可以正常处理
+        return false;
+    }
+
+    /**
+     * 生成订阅者调用器
+     */
+    private void generateInvoker(TypeElement typeElement, String binaryName,
+                                 List<ExecutableElement> methods, TypeElement bus) throws IOException {
+        String packageName = getPackageName(typeElement);
+        String typeName = mTypes.erasure(typeElement.asType()).toString();
+        String invokerName = (packageName.isEmpty() ? binaryName :
+                binaryName.substring(packageName.length() + 1)) + INVOKER_SUFFIX;
+
+        if (typeElement.getKind() != ElementKind.CLASS || !isAccessible(typeElement)) {
+            // 运行时只沿着父类查找调用器，并且生成的类需要能直接引用订阅者
+            mMessager.printMessage(Diagnostic.Kind.NOTE, "Skip generating " + invokerName +
+                    ", subscriber must be an accessible class", typeElement);
+            return;
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (ExecutableElement method : methods) {
+            List<? extends VariableElement> parameters = method.getParameters();
+            if (parameters.size() > 1) {
+                mMessager.printMessage(Diagnostic.Kind.ERROR,
+                        "The bus method can have at most one parameter", method);
+                return;
+            }
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+                // 生成的类无法调用，交给 bus 插件通过反射处理
+                mMessager.printMessage(Diagnostic.Kind.NOTE, "Skip generating " + invokerName +
+                        ", bus method is private or static: " + method.getSimpleName(), typeElement);
+                return;
+            }
+
+            Map<String, Object> values = getAnnotationValues(method, bus);
+            String funName = method.getSimpleName().toString();
+            String paramType = "";
+            String desc = typeName + "#" + funName + "()";
+            String call = "((" + typeName + ") bus)." + funName + "(";
+            if (!parameters.isEmpty()) {
+                VariableElement parameter = parameters.get(0);
+                paramType = mTypes.erasure(parameter.asType()).toString();
+                desc = typeName + "#" + funName + "(" + paramType + " " + parameter.getSimpleName() + ")";
+                call += "(" + getCastType(parameter.asType()) + ") arg";
+            }
+            call += ");";
+
+            body.append("            new ").append(BUS_METHOD).append("(")
+                    .append(quote(String.valueOf(values.get("tag")))).append(", ")
+                    .append(quote(desc)).append(", ")
+                    .append(values.get("sticky")).append(", ")
+                    .append(THREAD_MODE).append(".").append(values.get("threadMode")).append(", ")
+                    .append(values.get("priority")).append(") {\n");
+            body.append("                @Override\n");
+            body.append("                public void invoke(Object bus, Object arg) {\n");
+            body.append("                    ").append(call).append("\n");
+            body.append("                }\n");
+            body.append("            },\n");
+        }
+
+        JavaFileObject sourceFile = mFiler.createSourceFile(
+                packageName.isEmpty() ? invokerName : packageName + "." + invokerName, typeElement);
+        try (Writer writer = sourceFile.openWriter()) {
+            writer.write("// Generated code from utils-compiler. Do not modify!\n");
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("@SuppressWarnings({\"rawtypes\", \"unchecked\", \"static-access\"})\n");
+            writer.write("public final class " + invokerName + " implements " + BUS_INVOKER + " {\n\n");
+            writer.write("    private static final " + BUS_METHOD + "[] BUS_METHODS = {\n");
+            writer.write(body.toString());
+            writer.write("    };\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public " + BUS_METHOD + "[] getBusMethods() {\n");
+            writer.write("        return BUS_METHODS;\n");
+            writer.write("    }\n");
+            writer.write("}\n");
+        }
+    }
+
+    /**
+     * 获取注解上的值（包括默认值），枚举值只保留名称
+     */
+    private Map<String, Object> getAnnotationValues(Element element, TypeElement annotationType) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (!mTypes.isSameType(annotation.getAnnotationType(), annotationType.asType())) {
+                continue;
+            }
+            Map<? extends ExecutableElement, ? extends AnnotationValue> elementValues =
+                    mElements.getElementValuesWithDefaults(annotation);
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elementValues.entrySet()) {
+                Object value = entry.getValue().getValue();
+                if (value instanceof VariableElement) {
+                    value = ((VariableElement) value).getSimpleName().toString();
+                }
+                values.put(entry.getKey().getSimpleName().toString(), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 获取参数强转的类型，基本类型使用包装类，由编译器自动拆箱，泛型使用擦除后的类型
+     */
+    private String getCastType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return mTypes.boxedClass(mTypes.getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+        return mTypes.erasure(type).toString();
+    }
+
+    /**
+     * 判断类在所在的包中是否可以访问（私有内部类、局部类和匿名类无法被外部直接引用）
+     */
+    private boolean isAccessible(TypeElement typeElement) {
+        Element element = typeElement;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return typeElement.getNestingKind() == NestingKind.TOP_LEVEL ||
+                typeElement.getNestingKind() == NestingKind.MEMBER;
+    }
+
+    private String getPackageName(Element element) {
+        PackageElement packageElement = mElements.getPackageOf(element);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    /**
+     * 将字符串转换成 Java 字面量
+     */
+    private static String quote(String text) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    builder.append(c);
+                    break;
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
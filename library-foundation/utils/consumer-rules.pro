@@ -0,0 +1,7 @@
+# utils-compiler 生成的 Bus 调用器是通过 "订阅者类名 + _BusInvoker" 反射创建的
+-keepclasseswithmembernames class * {
+    @com.ling.utils.BusUtils$Bus <methods>;
+}
+-keep class * implements com.ling.utils.BusUtils$IBusInvoker {
+    <init>();
+}
@@ -11,6 +11,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +26,10 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * github : https://github.com/Blankj/AndroidUtilCode
  * time   : 2021/11/12
  * desc   : utils about bus - Bus 相关
+ * <p>
+ * 订阅者有两种来源：bus 插件注入到 {@link #init()} 中的订阅信息，通过反射调用；
+ * utils-compiler 在编译期为订阅者生成的 {@link IBusInvoker}，注册时按 tag 放入预先排好序的分发表，
+ * post 时直接遍历数组调用，不经过反射，也不会为每次 post 创建集合
  */
 public final class BusUtils {
 
@@ -35,6 +41,13 @@ public final class BusUtils {
     private final Map<String, List<String>> mClassName_TagsMap = new ConcurrentHashMap<>();
     private final Map<String, Map<String, Object>> mClassName_Tag_Arg4StickyMap = new ConcurrentHashMap<>();
 
+    /** 编译期生成的订阅方法，按类缓存，包括父类的订阅方法 */
+    private final Map<Class<?>, BusMethod[]> mClass_BusMethodsMap = new ConcurrentHashMap<>();
+    /** 编译期生成的订阅者的分发表，写操作需要持有 mTag_DispatcherMap 的锁 */
+    private final Map<String, BusDispatcher> mTag_DispatcherMap = new ConcurrentHashMap<>();
+    private final Set<Object> mGeneratedBuses = new HashSet<>();
+    private final Map<String, Object> mTag_Arg4StickyMap = new ConcurrentHashMap<>();
+
     private BusUtils() {
         init();
     }
@@ -120,7 +133,7 @@ public final class BusUtils {
 
     @Override
     public String toString() {
-        return "BusUtils: " + mTag_BusInfoListMap;
+        return "BusUtils: " + mTag_BusInfoListMap + ", generated: " + mTag_DispatcherMap;
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -138,6 +151,11 @@ public final class BusUtils {
     private void registerInner(@Nullable final Object bus) {
         if (bus == null) return;
         Class<?> aClass = bus.getClass();
+        BusMethod[] busMethods = getBusMethods(aClass);
+        if (busMethods.length != 0) {
+            registerGenerated(bus, busMethods);
+            return;
+        }
         String className = aClass.getName();
         boolean isNeedRecordTags = false;
         synchronized (mClassName_BusesMap) {
@@ -160,6 +178,131 @@ public final class BusUtils {
         consumeStickyIfExist(bus);
     }
 
+    /**
+     * 获取类和父类中编译期生成的订阅方法，没有则返回空数组
+     */
+    private BusMethod[] getBusMethods(final Class<?> aClass) {
+        BusMethod[] busMethods = mClass_BusMethodsMap.get(aClass);
+        if (busMethods != null) return busMethods;
+        List<BusMethod> list = new ArrayList<>();
+        for (Class<?> clazz = aClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            String className = clazz.getName();
+            if (className.startsWith("android.") || className.startsWith("androidx.")
+                    || className.startsWith("java.")) {
+                break;
+            }
+            IBusInvoker invoker = findInvoker(clazz);
+            if (invoker != null) {
+                Collections.addAll(list, invoker.getBusMethods());
+            }
+        }
+        busMethods = list.toArray(new BusMethod[0]);
+        mClass_BusMethodsMap.put(aClass, busMethods);
+        return busMethods;
+    }
+
+    /**
+     * 查找编译期生成的调用器
+     */
+    @Nullable
+    private static IBusInvoker findInvoker(final Class<?> clazz) {
+        try {
+            Class<?> invokerClass = Class.forName(clazz.getName() + IBusInvoker.CLASS_SUFFIX,
+                    true, clazz.getClassLoader());
+            return (IBusInvoker) invokerClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            // 没有生成调用器，使用 bus 插件注入的订阅信息
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void registerGenerated(final Object bus, final BusMethod[] busMethods) {
+        synchronized (mTag_DispatcherMap) {
+            if (!mGeneratedBuses.add(bus)) {
+                Log.w(TAG, "The bus of <" + bus + "> already registered.");
+                return;
+            }
+            for (BusMethod busMethod : busMethods) {
+                BusDispatcher dispatcher = mTag_DispatcherMap.get(busMethod.tag);
+                if (dispatcher == null) {
+                    dispatcher = new BusDispatcher();
+                    mTag_DispatcherMap.put(busMethod.tag, dispatcher);
+                }
+                dispatcher.add(new Subscriber(bus, busMethod));
+            }
+        }
+        for (BusMethod busMethod : busMethods) {
+            if (!busMethod.sticky) continue;
+            Object arg = mTag_Arg4StickyMap.get(busMethod.tag);
+            if (arg != null) {
+                dispatch(new Subscriber(bus, busMethod), arg);
+            }
+        }
+    }
+
+    private boolean unregisterGenerated(final Object bus) {
+        synchronized (mTag_DispatcherMap) {
+            if (!mGeneratedBuses.remove(bus)) return false;
+            for (BusMethod busMethod : getBusMethods(bus.getClass())) {
+                BusDispatcher dispatcher = mTag_DispatcherMap.get(busMethod.tag);
+                if (dispatcher != null) {
+                    dispatcher.remove(bus);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 分发给编译期生成的订阅者
+     *
+     * @return 是否存在这个 tag 的分发表
+     */
+    private boolean postGenerated(final String tag, final Object arg) {
+        BusDispatcher dispatcher = mTag_DispatcherMap.get(tag);
+        if (dispatcher == null) return false;
+        for (Subscriber subscriber : dispatcher.subscribers) {
+            dispatch(subscriber, arg);
+        }
+        return true;
+    }
+
+    private void dispatch(final Subscriber subscriber, final Object arg) {
+        ThreadMode threadMode = subscriber.busMethod.threadMode;
+        if (threadMode == ThreadMode.POSTING) {
+            subscriber.invoke(arg);
+            return;
+        }
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                subscriber.invoke(arg);
+            }
+        };
+        switch (threadMode) {
+            case MAIN:
+                ThreadUtils.runOnUiThread(runnable);
+                return;
+            case IO:
+                ThreadUtils.getIoPool().execute(runnable);
+                return;
+            case CPU:
+                ThreadUtils.getCpuPool().execute(runnable);
+                return;
+            case CACHED:
+                ThreadUtils.getCachedPool().execute(runnable);
+                return;
+            case SINGLE:
+                ThreadUtils.getSinglePool().execute(runnable);
+                return;
+            default:
+                runnable.run();
+        }
+    }
+
     private void recordTags(Class<?> aClass, String className) {
         List<String> tags = mClassName_TagsMap.get(className);
         if (tags == null) {
@@ -221,6 +364,7 @@ public final class BusUtils {
 
     private void unregisterInner(final Object bus) {
         if (bus == null) return;
+        if (unregisterGenerated(bus)) return;
         String className = bus.getClass().getName();
         synchronized (mClassName_BusesMap) {
             Set<Object> buses = mClassName_BusesMap.get(className);
@@ -237,19 +381,38 @@ public final class BusUtils {
     }
 
     private void postInner(final String tag, final Object arg, final boolean sticky) {
+        boolean generated = postGenerated(tag, arg);
         List<BusInfo> busInfoList = mTag_BusInfoListMap.get(tag);
         if (busInfoList == null) {
+            if (generated) return;
             Log.e(TAG, "The bus of tag <" + tag + "> is not exists.");
-            if (mTag_BusInfoListMap.isEmpty()) {
-                Log.e(TAG, "Please check whether the bus plugin is applied.");
+            if (mTag_BusInfoListMap.isEmpty() && mTag_DispatcherMap.isEmpty()) {
+                Log.e(TAG, "Please check whether the bus plugin or utils-compiler is applied.");
             }
             return;
         }
         for (BusInfo busInfo : busInfoList) {
+            if (hasInvoker(busInfo)) continue;
             invokeBus(arg, busInfo, sticky);
         }
     }
 
+    /**
+     * 订阅方法所在的类是否有编译期生成的调用器，有的话订阅者只会注册到分发表中，已经由 {@link #postGenerated} 分发过了
+     */
+    private static boolean hasInvoker(final BusInfo busInfo) {
+        Boolean hasInvoker = busInfo.hasInvoker;
+        if (hasInvoker == null) {
+            try {
+                hasInvoker = findInvoker(Class.forName(busInfo.className)) != null;
+            } catch (ClassNotFoundException e) {
+                hasInvoker = false;
+            }
+            busInfo.hasInvoker = hasInvoker;
+        }
+        return hasInvoker;
+    }
+
     private void invokeBus(Object arg, BusInfo busInfo, boolean sticky) {
         invokeBus(null, arg, busInfo, sticky);
     }
@@ -375,13 +538,14 @@ public final class BusUtils {
     }
 
     private void postStickyInner(final String tag, final Object arg) {
+        // 编译期生成的订阅者可能还没有注册过，先按 tag 保存，注册时再补发给粘性订阅方法
+        mTag_Arg4StickyMap.put(tag, arg == null ? NULL : arg);
+        postGenerated(tag, arg == null ? NULL : arg);
         List<BusInfo> busInfoList = mTag_BusInfoListMap.get(tag);
-        if (busInfoList == null) {
-            Log.e(TAG, "The bus of tag <" + tag + "> is not exists.");
-            return;
-        }
+        if (busInfoList == null) return;
         // 获取多对象，然后消费各个 busInfoList
         for (BusInfo busInfo : busInfoList) {
+            if (hasInvoker(busInfo)) continue;
             if (!busInfo.sticky) { // not sticky bus will post directly.
                 invokeBus(arg, busInfo, false);
                 continue;
@@ -399,9 +563,12 @@ public final class BusUtils {
     }
 
     private void removeStickyInner(final String tag) {
+        Object removed = mTag_Arg4StickyMap.remove(tag);
         List<BusInfo> busInfoList = mTag_BusInfoListMap.get(tag);
         if (busInfoList == null) {
-            Log.e(TAG, "The bus of tag <" + tag + "> is not exists.");
+            if (removed == null) {
+                Log.e(TAG, "The bus of tag <" + tag + "> is not exists.");
+            }
             return;
         }
         for (BusInfo busInfo : busInfoList) {
@@ -440,6 +607,8 @@ public final class BusUtils {
         int priority;
         Method method;
         List<String> subClassNames;
+        /** 所在的类是否有编译期生成的调用器，null 表示还没有查找过 */
+        volatile Boolean hasInvoker;
 
         BusInfo(String tag, String className, String funName, String paramType, String paramName,
                 boolean sticky, String threadMode, int priority) {
@@ -471,6 +640,124 @@ public final class BusUtils {
         }
     }
 
+    /**
+     * 编译期生成的订阅方法，invoke 直接调用订阅者的方法
+     */
+    public abstract static class BusMethod {
+
+        final String tag;
+        final String desc;
+        final boolean sticky;
+        final ThreadMode threadMode;
+        final int priority;
+
+        protected BusMethod(@NonNull String tag, @NonNull String desc,
+                            boolean sticky, @NonNull ThreadMode threadMode, int priority) {
+            this.tag = tag;
+            this.desc = desc;
+            this.sticky = sticky;
+            this.threadMode = threadMode;
+            this.priority = priority;
+        }
+
+        /**
+         * 调用订阅方法
+         *
+         * @param bus 订阅者
+         * @param arg 参数，post 时没有参数则为 null
+         */
+        public abstract void invoke(@NonNull Object bus, @Nullable Object arg);
+
+        @Override
+        public String toString() {
+            return "BusMethod { tag : " + tag +
+                    ", desc: " + desc +
+                    ", sticky: " + sticky +
+                    ", threadMode: " + threadMode +
+                    ", priority: " + priority +
+                    " }";
+        }
+    }
+
+    /**
+     * 订阅者的调用器（由 utils-compiler 在编译期为含有 {@link Bus} 方法的类生成）
+     */
+    public interface IBusInvoker {
+
+        /** 生成类的名称后缀，例如 MainActivity 对应的调用器为 MainActivity_BusInvoker */
+        String CLASS_SUFFIX = "_BusInvoker";
+
+        /**
+         * 类中声明的订阅方法，不包括父类的
+         */
+        @NonNull
+        BusMethod[] getBusMethods();
+    }
+
+    private static final class Subscriber {
+
+        final Object bus;
+        final BusMethod busMethod;
+
+        Subscriber(Object bus, BusMethod busMethod) {
+            this.bus = bus;
+            this.busMethod = busMethod;
+        }
+
+        void invoke(final Object arg) {
+            try {
+                busMethod.invoke(bus, arg == NULL ? null : arg);
+            } catch (RuntimeException e) {
+                // 和反射调用一样，订阅方法的异常不影响其他订阅者
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 一个 tag 的订阅者，按优先级从高到低排好序，注册和注销时整体替换数组
+     */
+    private static final class BusDispatcher {
+
+        private static final Subscriber[] EMPTY = new Subscriber[0];
+
+        volatile Subscriber[] subscribers = EMPTY;
+
+        void add(final Subscriber subscriber) {
+            Subscriber[] old = subscribers;
+            Subscriber[] result = new Subscriber[old.length + 1];
+            int index = 0;
+            while (index < old.length && old[index].busMethod.priority >= subscriber.busMethod.priority) {
+                index++;
+            }
+            System.arraycopy(old, 0, result, 0, index);
+            result[index] = subscriber;
+            System.arraycopy(old, index, result, index + 1, old.length - index);
+            subscribers = result;
+        }
+
+        void remove(final Object bus) {
+            Subscriber[] old = subscribers;
+            List<Subscriber> result = new ArrayList<>(old.length);
+            for (Subscriber subscriber : old) {
+                if (!subscriber.bus.equals(bus)) {
+                    result.add(subscriber);
+                }
+            }
+            subscribers = result.isEmpty() ? EMPTY : result.toArray(EMPTY);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (Subscriber subscriber : subscribers) {
+                if (sb.length() > 1) sb.append(", ");
+                sb.append(subscriber.busMethod);
+            }
+            return sb.append(']').toString();
+        }
+    }
+
     public enum ThreadMode {
         MAIN, IO, CPU, CACHED, SINGLE, POSTING
     }
@@ -0,0 +1,297 @@
+package com.ling.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : 二进制日志的解码器，把 {@link LogUtils#FORMAT_BINARY} 格式的日志文件还原成文本
+ * <p>
+ * 不依赖 Android，可以直接在电脑上运行：java -cp utils.jar com.ling.utils.LogDecoder util_2021_11_13_main.blog [out.txt]
+ * <p>
+ * 文件格式：魔数 "BLOG"(4) + 版本(1)，之后是若干个互不依赖的块
+ * <p>
+ * 块：标记 0xB1(1) + 标志(1，bit0 表示 deflate 压缩) + 基准时间(8) + 时区偏移毫秒(4)
+ * + 原始长度(4) + 存储长度(4) + 存储数据的 CRC32(4) + 存储数据
+ * <p>
+ * 块内的记录，数字都是 varint，字符串是 varint 长度 + UTF-8：
+ * <ul>
+ * <li>TAG(1)：编号 + tag</li>
+ * <li>THREAD(2)：编号 + 线程名</li>
+ * <li>LOG(3)：与上一条的时间差(zigzag) + 级别(1) + tag 编号 + 线程编号 + 内容 + 字段数 + (键 + 值) * 字段数</li>
+ * <li>TEXT(4)：原样输出的文本，比如文件头</li>
+ * </ul>
+ */
+public final class LogDecoder {
+
+    static final byte[] MAGIC = {'B', 'L', 'O', 'G'};
+    static final int VERSION = 1;
+
+    static final int BLOCK_MARKER = 0xB1;
+    static final int FLAG_DEFLATE = 1;
+    static final int BLOCK_HEADER_LEN = 26;
+
+    static final int RECORD_TAG = 1;
+    static final int RECORD_THREAD = 2;
+    static final int RECORD_LOG = 3;
+    static final int RECORD_TEXT = 4;
+
+    /** 调用位置字段的键 */
+    static final String FIELD_LOCATION = "at";
+
+    private static final char[] LEVELS = {'V', 'D', 'I', 'W', 'E', 'A'};
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String LINE_SEP = System.getProperty("line.separator");
+
+    private LogDecoder() {
+        throw new UnsupportedOperationException("u can't instantiate me...");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: LogDecoder <input.blog> [output.txt]");
+            System.exit(1);
+            return;
+        }
+        InputStream in = new FileInputStream(args[0]);
+        Writer out = new OutputStreamWriter(args.length == 2
+                ? new FileOutputStream(args[1]) : new PrintStream(System.out, false, "UTF-8"), UTF_8);
+        try {
+            decode(in, out);
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    /**
+     * 解码二进制日志文件
+     * <p>
+     * Decode the binary log file to text.
+     *
+     * @param file The binary log file.
+     * @return the text of log
+     */
+    public static String decode(final File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            Writer out = new OutputStreamWriter(baos, UTF_8);
+            decode(in, out);
+            out.flush();
+            return new String(baos.toByteArray(), UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 解码二进制日志，损坏的块会被跳过
+     * <p>
+     * Decode the binary log, the corrupted blocks will be skipped.
+     *
+     * @param in  The input stream of binary log.
+     * @param out The writer of text.
+     */
+    public static void decode(final InputStream in, final Writer out) throws IOException {
+        byte[] data = readAll(in);
+        if (data.length < MAGIC.length + 1) return;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) throw new IOException("not a binary log file");
+        }
+        if (data[MAGIC.length] != VERSION) throw new IOException("unsupported version: " + data[MAGIC.length]);
+        int position = MAGIC.length + 1;
+        int skipped = 0;
+        Inflater inflater = new Inflater(true);
+        try {
+            while (position < data.length) {
+                ByteBuffer block = readBlock(data, position, inflater);
+                if (block == null) {
+                    // 块已经损坏，往后找下一个完整的块
+                    position++;
+                    skipped++;
+                    continue;
+                }
+                if (skipped > 0) {
+                    out.write("---- " + skipped + " corrupted bytes skipped ----" + LINE_SEP);
+                    skipped = 0;
+                }
+                int storedLength = ByteBuffer.wrap(data, position + 18, 4).getInt();
+                decodeBlock(block, ByteBuffer.wrap(data, position + 2, 12), out);
+                position += BLOCK_HEADER_LEN + storedLength;
+            }
+        } finally {
+            inflater.end();
+        }
+        if (skipped > 0) {
+            out.write("---- " + skipped + " corrupted bytes skipped ----" + LINE_SEP);
+        }
+        out.flush();
+    }
+
+    /**
+     * 读取并校验一个块，返回解压后的记录数据，块不完整或者已经损坏返回 null
+     */
+    private static ByteBuffer readBlock(final byte[] data, final int position, final Inflater inflater) {
+        if (data.length - position < BLOCK_HEADER_LEN) return null;
+        if ((data[position] & 0xFF) != BLOCK_MARKER) return null;
+        ByteBuffer header = ByteBuffer.wrap(data, position, BLOCK_HEADER_LEN);
+        header.position(position + 1);
+        int flags = header.get();
+        header.position(position + 14);
+        int rawLength = header.getInt();
+        int storedLength = header.getInt();
+        int crc = header.getInt();
+        if (rawLength < 0 || storedLength < 0 || data.length - position - BLOCK_HEADER_LEN < storedLength) {
+            return null;
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, position + BLOCK_HEADER_LEN, storedLength);
+        if ((int) crc32.getValue() != crc) return null;
+        if ((flags & FLAG_DEFLATE) == 0) {
+            if (rawLength != storedLength) return null;
+            return ByteBuffer.wrap(data, position + BLOCK_HEADER_LEN, storedLength).slice();
+        }
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(data, position + BLOCK_HEADER_LEN, storedLength);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, length, rawLength - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += count;
+            }
+            if (length != rawLength) return null;
+        } catch (DataFormatException e) {
+            return null;
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static void decodeBlock(final ByteBuffer block, final ByteBuffer header, final Writer out)
+            throws IOException {
+        long time = header.getLong();
+        int timeZoneOffset = header.getInt();
+        List<String> tags = new ArrayList<>();
+        List<String> threads = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        try {
+            while (block.hasRemaining()) {
+                int type = block.get();
+                switch (type) {
+                    case RECORD_TAG:
+                        set(tags, (int) readVarLong(block), readString(block));
+                        break;
+                    case RECORD_THREAD:
+                        set(threads, (int) readVarLong(block), readString(block));
+                        break;
+                    case RECORD_TEXT:
+                        out.write(readString(block));
+                        break;
+                    case RECORD_LOG:
+                        long delta = readVarLong(block);
+                        time += (delta >>> 1) ^ -(delta & 1);
+                        int level = block.get();
+                        String tag = get(tags, (int) readVarLong(block));
+                        String thread = get(threads, (int) readVarLong(block));
+                        String message = readString(block);
+                        String location = null;
+                        for (int i = 0, count = (int) readVarLong(block); i < count; i++) {
+                            String key = readString(block);
+                            String value = readString(block);
+                            if (FIELD_LOCATION.equals(key)) location = value;
+                        }
+                        sb.setLength(0);
+                        appendTime(sb, time + timeZoneOffset);
+                        sb.append(level >= 2 && level < 2 + LEVELS.length ? LEVELS[level - 2] : '?')
+                                .append('/').append(tag);
+                        if (location == null) {
+                            sb.append(": ");
+                        } else {
+                            sb.append(" [").append(thread).append(", ").append(location).append("]: ");
+                        }
+                        sb.append(message).append(LINE_SEP);
+                        out.write(sb.toString());
+                        break;
+                    default:
+                        throw new IOException("unknown record type: " + type);
+                }
+            }
+        } catch (RuntimeException e) {
+            // CRC 正确但内容不对，只可能是编码器的问题，剩下的记录无法解析
+            out.write("---- malformed block: " + e + " ----" + LINE_SEP);
+        }
+    }
+
+    private static void appendTime(final StringBuilder sb, final long localTime) {
+        int millis = (int) (((localTime % 86400000L) + 86400000L) % 86400000L);
+        append2Digits(sb, millis / 3600000).append(':');
+        append2Digits(sb, millis / 60000 % 60).append(':');
+        append2Digits(sb, millis / 1000 % 60).append('.');
+        int ms = millis % 1000;
+        if (ms < 100) sb.append('0');
+        if (ms < 10) sb.append('0');
+        sb.append(ms).append(' ');
+    }
+
+    private static StringBuilder append2Digits(final StringBuilder sb, final int value) {
+        if (value < 10) sb.append('0');
+        return sb.append(value);
+    }
+
+    private static void set(final List<String> list, final int index, final String value) {
+        while (list.size() <= index) {
+            list.add(null);
+        }
+        list.set(index, value);
+    }
+
+    private static String get(final List<String> list, final int index) {
+        return index < list.size() ? list.get(index) : "?";
+    }
+
+    private static long readVarLong(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer);
+        if (length < 0 || length > buffer.remaining()) throw new IllegalStateException("malformed string");
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            baos.write(buffer, 0, count);
+        }
+        return baos.toByteArray();
+    }
+}
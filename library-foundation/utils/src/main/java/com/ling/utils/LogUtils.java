@@ -14,35 +14,55 @@ import androidx.annotation.IntRange;
 import androidx.annotation.RequiresApi;
 import androidx.collection.SimpleArrayMap;
 
+import com.ling.utils.file.CloseUtils;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Formatter;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
@@ -71,6 +91,28 @@ public final class LogUtils {
     public @interface TYPE {
     }
 
+    /** 文件缓冲队列满了之后丢弃新的日志 */
+    public static final int OVERFLOW_DROP = 0;
+    /** 文件缓冲队列满了之后阻塞打印日志的线程，直到队列有空位 */
+    public static final int OVERFLOW_BLOCK = 1;
+    /** 文件缓冲队列超过一半之后，低于 WARN 级别的日志抽样保留，满了之后丢弃 */
+    public static final int OVERFLOW_SAMPLE = 2;
+
+    @IntDef({OVERFLOW_DROP, OVERFLOW_BLOCK, OVERFLOW_SAMPLE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface OVERFLOW {
+    }
+
+    /** 文件日志使用文本格式 */
+    public static final int FORMAT_TEXT = 0;
+    /** 文件日志使用紧凑的二进制格式，通过 {@link LogDecoder} 还原成文本 */
+    public static final int FORMAT_BINARY = 1;
+
+    @IntDef({FORMAT_TEXT, FORMAT_BINARY})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface FORMAT {
+    }
+
     private static final char[] T = new char[]{'V', 'D', 'I', 'W', 'E', 'A'};
 
     private static final int FILE = 0x10;
@@ -79,6 +121,7 @@ public final class LogUtils {
 
     private static final String FILE_SEP = System.getProperty("file.separator");
     private static final String LINE_SEP = System.getProperty("line.separator");
+    private static final String BINARY_FILE_EXTENSION = ".blog";
     private static final String TOP_CORNER = "┌";
     private static final String MIDDLE_CORNER = "├";
     private static final String LEFT_BORDER = "│ ";
@@ -97,12 +140,16 @@ public final class LogUtils {
     private static final String PLACEHOLDER = " ";
     private static final Config CONFIG = new Config();
 
-    private static SimpleDateFormat simpleDateFormat;
-
     private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
 
+    private static volatile FileAppender sFileAppender;
+
     private static final SimpleArrayMap<Class, IFormatter> I_FORMATTER_MAP = new SimpleArrayMap<>();
 
+    /** 调用位置的缓存，超过上限后清空重新缓存 */
+    private static final Map<StackTraceElement, CallSite> CALL_SITE_CACHE = new ConcurrentHashMap<>();
+    private static final int MAX_CALL_SITE_CACHE_SIZE = 1024;
+
     private LogUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
     }
@@ -272,12 +319,7 @@ public final class LogUtils {
                 print2Console(type_low, tagHead.tag, tagHead.consoleHead, body);
             }
             if ((CONFIG.isLog2FileSwitch() || type_high == FILE) && type_low >= CONFIG.mFileFilter) {
-                EXECUTOR.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        print2File(type_low, tagHead.tag, tagHead.fileHead + body);
-                    }
-                });
+                print2File(type_low, tagHead, body);
             }
         }
     }
@@ -308,42 +350,34 @@ public final class LogUtils {
     }
 
     /**
-     * 处理获取 log日志 的 Tag 与 Head
+     * 处理获取 log日志 的 Tag 与 Head（包内可见，单元测试通过它对比格式化的结果和耗时）
      */
-    private static TagHead processTagAndHead(String tag) {
+    static TagHead processTagAndHead(String tag) {
         if (!CONFIG.mTagIsSpace && !CONFIG.isLogHeadSwitch()) {
             tag = CONFIG.getGlobalTag();
         } else {
             final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
             final int stackIndex = 3 + CONFIG.getStackOffset();
             if (stackIndex >= stackTrace.length) {
-                StackTraceElement targetElement = stackTrace[3];
-                final String fileName = getFileName(targetElement);
                 if (CONFIG.mTagIsSpace && UtilsBridge.isSpace(tag)) {
-                    int index = fileName.indexOf('.');// Use proguard may not find '.'.
-                    tag = index == -1 ? fileName : fileName.substring(0, index);
+                    tag = getCallSite(stackTrace[3]).tag;
                 }
-                return new TagHead(tag, null, ": ");
+                return new TagHead(tag, null, ": ", null, null);
             }
-            StackTraceElement targetElement = stackTrace[stackIndex];
-            final String fileName = getFileName(targetElement);
+            final CallSite callSite = getCallSite(stackTrace[stackIndex]);
             if (CONFIG.mTagIsSpace && UtilsBridge.isSpace(tag)) {
-                int index = fileName.indexOf('.');// Use proguard may not find '.'.
-                tag = index == -1 ? fileName : fileName.substring(0, index);
+                tag = callSite.tag;
             }
             if (CONFIG.isLogHeadSwitch()) {
                 String tName = Thread.currentThread().getName();
-                final String head = new Formatter()
-                        .format("%s, %s.%s(%s:%d)",
-                                tName,
-                                targetElement.getClassName(),
-                                targetElement.getMethodName(),
-                                fileName,
-                                targetElement.getLineNumber())
+                final String head = new StringBuilder(tName.length() + 2 + callSite.location.length())
+                        .append(tName)
+                        .append(", ")
+                        .append(callSite.location)
                         .toString();
                 final String fileHead = " [" + head + "]: ";
                 if (CONFIG.getStackDeep() <= 1) {
-                    return new TagHead(tag, new String[]{head}, fileHead);
+                    return new TagHead(tag, new String[]{head}, fileHead, tName, callSite.location);
                 } else {
                     final String[] consoleHead =
                             new String[Math.min(
@@ -352,23 +386,34 @@ public final class LogUtils {
                             )];
                     consoleHead[0] = head;
                     int spaceLen = tName.length() + 2;
-                    String space = new Formatter().format("%" + spaceLen + "s", "").toString();
+                    StringBuilder sb = new StringBuilder(spaceLen + 128);
+                    for (int i = 0; i < spaceLen; i++) {
+                        sb.append(' ');
+                    }
                     for (int i = 1, len = consoleHead.length; i < len; ++i) {
-                        targetElement = stackTrace[i + stackIndex];
-                        consoleHead[i] = new Formatter()
-                                .format("%s%s.%s(%s:%d)",
-                                        space,
-                                        targetElement.getClassName(),
-                                        targetElement.getMethodName(),
-                                        getFileName(targetElement),
-                                        targetElement.getLineNumber())
-                                .toString();
+                        sb.setLength(spaceLen);
+                        consoleHead[i] = sb.append(getCallSite(stackTrace[i + stackIndex]).location).toString();
                     }
-                    return new TagHead(tag, consoleHead, fileHead);
+                    return new TagHead(tag, consoleHead, fileHead, tName, callSite.location);
                 }
             }
         }
-        return new TagHead(tag, null, ": ");
+        return new TagHead(tag, null, ": ", null, null);
+    }
+
+    /**
+     * 获取调用位置，同一个位置只格式化一次
+     */
+    private static CallSite getCallSite(final StackTraceElement element) {
+        CallSite callSite = CALL_SITE_CACHE.get(element);
+        if (callSite == null) {
+            callSite = new CallSite(element);
+            if (CALL_SITE_CACHE.size() >= MAX_CALL_SITE_CACHE_SIZE) {
+                CALL_SITE_CACHE.clear();
+            }
+            CALL_SITE_CACHE.put(element, callSite);
+        }
+        return callSite;
     }
 
     private static String getFileName(final StackTraceElement targetElement) {
@@ -586,40 +631,38 @@ public final class LogUtils {
     }
 
     /**
-     * 把log日志写入file文件
+     * 把log日志交给异步写入器写入file文件
      */
-    private static void print2File(final int type, final String tag, final String msg) {
-        Date d = new Date();
-        String format = getSdf().format(d);
-        String date = format.substring(0, 10);
-        String currentLogFilePath = getCurrentLogFilePath(d);
-        if (!createOrExistsFile(currentLogFilePath, date)) {
-            Log.e("LogUtils", "create " + currentLogFilePath + " failed!");
-            return;
+    private static void print2File(final int type, final TagHead tagHead, final String body) {
+        FileAppender appender = sFileAppender;
+        if (appender == null) {
+            synchronized (LogUtils.class) {
+                appender = sFileAppender;
+                if (appender == null) {
+                    appender = new FileAppender(CONFIG.mFileBufferSize, CONFIG.mFileMmapSwitch);
+                    sFileAppender = appender;
+                }
+            }
         }
-        String time = format.substring(11);
-        final String content = time +
-                T[type - V] +
-                "/" +
-                tag +
-                msg +
-                LINE_SEP;
-        input2File(currentLogFilePath, content);
+        appender.append(new LogRecord(System.currentTimeMillis(), type, tagHead.tag,
+                tagHead.thread, tagHead.location, tagHead.fileHead, body), CONFIG.mFileOverflowPolicy);
     }
 
     private static String getCurrentLogFilePath(Date d) {
-        String format = getSdf().format(d);
-        String date = format.substring(0, 10);
+        return getLogFilePath(new SimpleDateFormat("yyyy_MM_dd", Locale.getDefault()).format(d));
+    }
+
+    private static String getLogFilePath(String date) {
         return CONFIG.getDir() + CONFIG.getFilePrefix() + "_"
                 + date + "_" +
-                CONFIG.getProcessName() + CONFIG.getFileExtension();
+                CONFIG.getProcessName() + (isBinaryFile() ? BINARY_FILE_EXTENSION : CONFIG.getFileExtension());
     }
 
-    private static SimpleDateFormat getSdf() {
-        if (simpleDateFormat == null) {
-            simpleDateFormat = new SimpleDateFormat("yyyy_MM_dd HH:mm:ss.SSS ", Locale.getDefault());
-        }
-        return simpleDateFormat;
+    /**
+     * 是否写二进制日志，设置了文件写入器时只能写文本
+     */
+    private static boolean isBinaryFile() {
+        return CONFIG.mFileFormat == FORMAT_BINARY && CONFIG.mFileWriter == null;
     }
 
     private static boolean createOrExistsFile(final String filePath, final String date) {
@@ -695,6 +738,8 @@ public final class LogUtils {
      */
     private static void printDeviceInfo(final String filePath, final String date) {
         CONFIG.mFileHead.addFirst("Date of Log", date);
+        // 二进制日志的文件头由写入线程打开文件时写入
+        if (isBinaryFile()) return;
         input2File(filePath, CONFIG.mFileHead.toString());
     }
 
@@ -747,6 +792,16 @@ public final class LogUtils {
         private String mFileExtension = ".txt";
         /** log 可保留天数 - The save days of log. */
         private int mSaveDays = -1;
+        /** log 文件缓冲队列容量 - The capacity of file buffer. */
+        private int mFileBufferSize = 4096;
+        /** log 文件缓冲队列满了之后的策略 - The overflow policy of file buffer. */
+        private int mFileOverflowPolicy = OVERFLOW_BLOCK;
+        /** log 文件内存映射缓冲开关 - The mmap buffer's switch of file. */
+        private boolean mFileMmapSwitch = false;
+        /** log 文件格式 - The format of file. */
+        private int mFileFormat = FORMAT_TEXT;
+        /** log 二进制文件压缩开关 - The compress switch of binary file. */
+        private boolean mFileCompressSwitch = true;
 
         /** 当前进程名称 */
         private String mProcessName = UtilsBridge.getCurrentProcessName();
@@ -921,6 +976,51 @@ public final class LogUtils {
             return this;
         }
 
+        /**
+         * 设置 log 文件缓冲队列容量，需要在第一次写文件之前设置
+         */
+        public final Config setFileBufferSize(@IntRange(from = 1) final int fileBufferSize) {
+            mFileBufferSize = fileBufferSize;
+            return this;
+        }
+
+        /**
+         * 设置 log 文件缓冲队列满了之后的策略
+         */
+        public final Config setFileOverflowPolicy(@OVERFLOW final int policy) {
+            mFileOverflowPolicy = policy;
+            return this;
+        }
+
+        /**
+         * 设置 log 文件内存映射缓冲开关，需要在第一次写文件之前设置
+         * <p>
+         * 打开后日志直接写入日志目录下映射到内存的缓冲文件，进程被杀或者崩溃也不会丢失，下次启动时补写到日志文件
+         */
+        public final Config setFileMmapSwitch(final boolean fileMmapSwitch) {
+            mFileMmapSwitch = fileMmapSwitch;
+            return this;
+        }
+
+        /**
+         * 设置 log 文件格式，需要在第一次写文件之前设置
+         * <p>
+         * {@link #FORMAT_BINARY} 按块写入结构化的记录，tag 和线程名只写一次编号，文件扩展名为 .blog，
+         * 使用 {@link LogDecoder} 还原成文本；二进制格式不使用内存映射缓冲，设置了文件写入器时仍然写文本
+         */
+        public final Config setFileFormat(@FORMAT final int fileFormat) {
+            mFileFormat = fileFormat;
+            return this;
+        }
+
+        /**
+         * 设置 log 二进制文件的压缩开关，默认打开，需要在第一次写文件之前设置
+         */
+        public final Config setFileCompressSwitch(final boolean fileCompressSwitch) {
+            mFileCompressSwitch = fileCompressSwitch;
+            return this;
+        }
+
         /**
          * 增加 log 格式化器
          */
@@ -1041,6 +1141,26 @@ public final class LogUtils {
             return mSaveDays;
         }
 
+        public final int getFileBufferSize() {
+            return mFileBufferSize;
+        }
+
+        public final int getFileOverflowPolicy() {
+            return mFileOverflowPolicy;
+        }
+
+        public final boolean isFileMmapSwitch() {
+            return mFileMmapSwitch;
+        }
+
+        public final int getFileFormat() {
+            return mFileFormat;
+        }
+
+        public final boolean isFileCompressSwitch() {
+            return mFileCompressSwitch;
+        }
+
         public final boolean haveSetOnConsoleOutputListener() {
             return mOnConsoleOutputListener != null;
         }
@@ -1066,6 +1186,11 @@ public final class LogUtils {
                     + LINE_SEP + "stackDeep: " + getStackDeep()
                     + LINE_SEP + "stackOffset: " + getStackOffset()
                     + LINE_SEP + "saveDays: " + getSaveDays()
+                    + LINE_SEP + "fileBufferSize: " + getFileBufferSize()
+                    + LINE_SEP + "fileOverflowPolicy: " + getFileOverflowPolicy()
+                    + LINE_SEP + "fileMmapSwitch: " + isFileMmapSwitch()
+                    + LINE_SEP + "fileFormat: " + getFileFormat()
+                    + LINE_SEP + "fileCompressSwitch: " + isFileCompressSwitch()
                     + LINE_SEP + "formatter: " + I_FORMATTER_MAP
                     + LINE_SEP + "fileWriter: " + mFileWriter
                     + LINE_SEP + "onConsoleOutputListener: " + mOnConsoleOutputListener
@@ -1090,15 +1215,853 @@ public final class LogUtils {
         void onFileOutput(String filePath, String content);
     }
 
-    private final static class TagHead {
+    final static class TagHead {
         String tag;
         String[] consoleHead;
         String fileHead;
+        /** 打开 head 开关时的线程名和调用位置，否则为 null */
+        String thread;
+        String location;
 
-        TagHead(String tag, String[] consoleHead, String fileHead) {
+        TagHead(String tag, String[] consoleHead, String fileHead, String thread, String location) {
             this.tag = tag;
             this.consoleHead = consoleHead;
             this.fileHead = fileHead;
+            this.thread = thread;
+            this.location = location;
+        }
+    }
+
+    /**
+     * 格式化好的调用位置
+     */
+    private final static class CallSite {
+        /** 自动 tag：不带扩展名的文件名 */
+        final String tag;
+        /** 类名.方法名(文件名:行号) */
+        final String location;
+
+        CallSite(StackTraceElement element) {
+            String fileName = getFileName(element);
+            int index = fileName.indexOf('.');// Use proguard may not find '.'.
+            tag = index == -1 ? fileName : fileName.substring(0, index);
+            location = element.getClassName() + '.' + element.getMethodName()
+                    + '(' + fileName + ':' + element.getLineNumber() + ')';
+        }
+    }
+
+    /**
+     * 一条等待写入文件的日志
+     */
+    private final static class LogRecord {
+        final long time;
+        final int type;
+        final String tag;
+        final String thread;
+        final String location;
+        final String head;
+        final String body;
+
+        LogRecord(long time, int type, String tag, String thread, String location, String head, String body) {
+            this.time = time;
+            this.type = type;
+            this.tag = tag;
+            this.thread = thread;
+            this.location = location;
+            this.head = head;
+            this.body = body;
+        }
+
+        /**
+         * 格式化成写入文件的一行：时间 + 级别/tag + 头部 + 内容
+         */
+        void appendTo(final StringBuilder sb, final TimeZone timeZone) {
+            long local = time + timeZone.getOffset(time);
+            int millis = (int) (((local % 86400000L) + 86400000L) % 86400000L);
+            append2Digits(sb, millis / 3600000).append(':');
+            append2Digits(sb, millis / 60000 % 60).append(':');
+            append2Digits(sb, millis / 1000 % 60).append('.');
+            int ms = millis % 1000;
+            if (ms < 100) sb.append('0');
+            if (ms < 10) sb.append('0');
+            sb.append(ms).append(' ');
+            sb.append(T[type - V]).append('/').append(tag).append(head).append(body).append(LINE_SEP);
+        }
+
+        private static StringBuilder append2Digits(final StringBuilder sb, final int value) {
+            if (value < 10) sb.append('0');
+            return sb.append(value);
+        }
+    }
+
+    /**
+     * 一天的时间范围，用来判断日志属于哪个日期的文件
+     */
+    private final static class DayRange {
+        final long start;
+        final long end;
+        final String date;
+        final TimeZone timeZone;
+
+        DayRange(long time) {
+            timeZone = TimeZone.getDefault();
+            Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTimeInMillis(time);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            start = calendar.getTimeInMillis();
+            calendar.add(Calendar.DATE, 1);
+            end = calendar.getTimeInMillis();
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy_MM_dd", Locale.getDefault());
+            sdf.setTimeZone(timeZone);
+            date = sdf.format(new Date(start));
+        }
+
+        boolean contains(long time) {
+            return time >= start && time < end;
+        }
+    }
+
+    /**
+     * 内存映射的日志缓冲区
+     * <p>
+     * 打印日志的线程直接把格式化好的日志写入映射的内存中，进程被杀或者崩溃时由系统写回文件，下次启动时再补写到日志文件；
+     * 缓冲区分成两半，一半写满、换天或者空闲时封存，交给写入线程写到日志文件，另一半继续接收日志
+     * </p>
+     * 每一半的头部：魔数(4) + 数据长度(4) + 日期开始时间(8) + 启用序号(8)
+     */
+    private final static class MappedLogBuffer {
+
+        private static final int MAGIC = 0x4C4F4742;
+        private static final int HEADER_LEN = 24;
+
+        private final Object mLock = new Object();
+        /** 以下只在持有锁时访问 */
+        private final MappedByteBuffer mBuffer;
+        private final int mHalfSize;
+        private final int[] mLengths = new int[2];
+        private final long[] mDays = new long[2];
+        private final long[] mSequences = new long[2];
+        private final boolean[] mSealed = new boolean[2];
+        private int mActive;
+        private long mSequence;
+
+        private final Thread mWriter;
+        private final AtomicLong mDropped;
+
+        private MappedLogBuffer(MappedByteBuffer buffer, Thread writer, AtomicLong dropped) {
+            mBuffer = buffer;
+            mHalfSize = buffer.capacity() / 2;
+            mWriter = writer;
+            mDropped = dropped;
+            // 上次没有写到日志文件的数据直接封存，等待写入线程按启用序号补写
+            for (int i = 0; i < 2; i++) {
+                int base = i * mHalfSize;
+                int length = buffer.getInt(base + 4);
+                if (buffer.getInt(base) == MAGIC && length > 0 && length <= mHalfSize - HEADER_LEN) {
+                    mLengths[i] = length;
+                    mDays[i] = buffer.getLong(base + 8);
+                    mSequences[i] = buffer.getLong(base + 16);
+                    mSealed[i] = true;
+                    mSequence = Math.max(mSequence, mSequences[i]);
+                } else {
+                    buffer.putInt(base + 4, 0);
+                }
+            }
+            mActive = mSealed[0] ? 1 : 0;
+        }
+
+        /**
+         * 映射缓冲文件，失败返回 null
+         */
+        static MappedLogBuffer open(final File file, final int size, final Thread writer, final AtomicLong dropped) {
+            if (!UtilsBridge.createOrExistsDir(file.getParentFile())) return null;
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "rw");
+                if (raf.length() != size) raf.setLength(size);
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                return new MappedLogBuffer(buffer, writer, dropped);
+            } catch (IOException e) {
+                Log.e("LogUtils", "map " + file + " failed!", e);
+                return null;
+            } finally {
+                CloseUtils.closeIOQuietly(raf);
+            }
+        }
+
+        /**
+         * 写入一行日志
+         *
+         * @return {@code false} 表示一行日志超过了一半缓冲区的大小，需要走队列写入
+         */
+        boolean append(final byte[] line, final long day, final int type, final int policy) {
+            if (line.length > mHalfSize - HEADER_LEN) return false;
+            synchronized (mLock) {
+                boolean switched = false;
+                for (; ; ) {
+                    int active = mActive;
+                    if (!mSealed[active]) {
+                        if (mLengths[active] == 0 || (mDays[active] == day
+                                && mLengths[active] + line.length <= mHalfSize - HEADER_LEN)) {
+                            put(active, line, day);
+                            return true;
+                        }
+                        // 写满了或者换天了，封存后切换到另一半
+                        seal(active);
+                    }
+                    int other = 1 - active;
+                    if (!mSealed[other]) {
+                        mActive = other;
+                        if (!switched) {
+                            switched = true;
+                            LockSupport.unpark(mWriter);
+                        }
+                        continue;
+                    }
+                    // 两半都在等待写入日志文件
+                    LockSupport.unpark(mWriter);
+                    if (policy == OVERFLOW_DROP || (policy == OVERFLOW_SAMPLE && type < W)
+                            || Thread.currentThread() == mWriter) {
+                        mDropped.incrementAndGet();
+                        return true;
+                    }
+                    try {
+                        mLock.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        mDropped.incrementAndGet();
+                        return true;
+                    }
+                }
+            }
+        }
+
+        private void put(final int half, final byte[] line, final long day) {
+            int base = half * mHalfSize;
+            int length = mLengths[half];
+            if (length == 0) {
+                // 开始使用时分配序号，重复使用的一半不会沿用上次较小的序号，恢复时按写入的先后补写
+                mDays[half] = day;
+                mSequences[half] = ++mSequence;
+                mBuffer.putInt(base, MAGIC);
+                mBuffer.putLong(base + 8, day);
+                mBuffer.putLong(base + 16, mSequences[half]);
+            }
+            mBuffer.position(base + HEADER_LEN + length);
+            mBuffer.put(line);
+            // 数据写完之后才更新长度，进程在中途被杀时只会丢掉这一行
+            mLengths[half] = length + line.length;
+            mBuffer.putInt(base + 4, mLengths[half]);
+        }
+
+        private void seal(final int half) {
+            mSealed[half] = true;
+        }
+
+        /**
+         * 封存正在写入的一半，写入线程空闲时调用，让日志及时出现在日志文件中
+         */
+        void sealActive() {
+            synchronized (mLock) {
+                int active = mActive;
+                if (mSealed[active] || mLengths[active] == 0 || mSealed[1 - active]) return;
+                seal(active);
+                mActive = 1 - active;
+            }
+        }
+
+        /**
+         * 获取最早启用的一半，没有返回 -1
+         */
+        int takeSealed() {
+            synchronized (mLock) {
+                int half = -1;
+                for (int i = 0; i < 2; i++) {
+                    if (mSealed[i] && mLengths[i] > 0 && (half == -1 || mSequences[i] < mSequences[half])) {
+                        half = i;
+                    }
+                }
+                return half;
+            }
+        }
+
+        long getDay(final int half) {
+            synchronized (mLock) {
+                return mDays[half];
+            }
+        }
+
+        /**
+         * 封存后的数据不会再被修改，写入线程可以不加锁读取
+         */
+        ByteBuffer getData(final int half) {
+            synchronized (mLock) {
+                ByteBuffer data = mBuffer.duplicate();
+                int start = half * mHalfSize + HEADER_LEN;
+                data.limit(start + mLengths[half]);
+                data.position(start);
+                return data.slice();
+            }
+        }
+
+        /**
+         * 数据已经写到日志文件，清空后可以继续使用
+         */
+        void release(final int half) {
+            synchronized (mLock) {
+                mLengths[half] = 0;
+                mBuffer.putInt(half * mHalfSize + 4, 0);
+                mSealed[half] = false;
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 异步的文件日志写入器
+     * <p>
+     * 调用线程只把日志放入有界的无锁环形队列，由唯一的写入线程取出，
+     * 通过常驻的 FileChannel 和复用的直接缓冲区批量写入，fsync 按时间间隔合并进行；
+     * 队列满了之后按 {@link Config#setFileOverflowPolicy(int)} 处理；
+     * 打开 {@link Config#setFileMmapSwitch(boolean)} 之后日志直接写入 {@link MappedLogBuffer}，不再经过队列；
+     * {@link #FORMAT_BINARY} 格式的日志由 {@link BinaryEncoder} 按块编码后写入
+     * </p>
+     */
+    private final static class FileAppender implements Runnable {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private static final int MMAP_SIZE = 256 * 1024;
+        private static final long SYNC_INTERVAL_MILLIS = 1000;
+        /** 抽样时每多少条低于 WARN 级别的日志保留一条 */
+        private static final int SAMPLE_RATE = 8;
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        private static final ThreadLocal<StringBuilder> LINE_BUILDER = new ThreadLocal<StringBuilder>() {
+            @Override
+            protected StringBuilder initialValue() {
+                return new StringBuilder(256);
+            }
+        };
+
+        private final LogRecord[] mRecords;
+        /** 每个槽位的序号，用来判断槽位是否可写或可读 */
+        private final AtomicLongArray mSequences;
+        private final int mMask;
+        private final AtomicLong mTail = new AtomicLong();
+        private final AtomicLong mHead = new AtomicLong();
+        private final AtomicLong mDropped = new AtomicLong();
+        private final AtomicInteger mSampleCount = new AtomicInteger();
+
+        private final Thread mThread;
+        private volatile boolean mWaiting;
+
+        private final MappedLogBuffer mMappedBuffer;
+        /** 打印日志的线程使用的日期范围 */
+        private volatile DayRange mCallerDay;
+
+        // 以下只在写入线程访问
+        private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder mEncoder = UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final StringBuilder mBuilder = new StringBuilder();
+        private FileChannel mChannel;
+        private String mFilePath;
+        private DayRange mDay;
+        /** 当前打开的文件是否是二进制日志 */
+        private boolean mBinary;
+        private BinaryEncoder mBinaryEncoder;
+        private boolean mDirty;
+        private long mLastSyncTime;
+
+        FileAppender(int capacity, boolean mmap) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            mRecords = new LogRecord[size];
+            mSequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                mSequences.set(i, i);
+            }
+            mMask = size - 1;
+            mThread = new Thread(this, "log-file-writer");
+            mThread.setDaemon(true);
+            mThread.setPriority(Thread.MIN_PRIORITY);
+            mMappedBuffer = mmap ? MappedLogBuffer.open(getMmapFile(), MMAP_SIZE, mThread, mDropped) : null;
+            mThread.start();
+        }
+
+        private static File getMmapFile() {
+            return new File(CONFIG.getDir() + CONFIG.getFilePrefix() + "_" + CONFIG.getProcessName() + ".mmap");
+        }
+
+        void append(final LogRecord record, final int policy) {
+            if (mMappedBuffer != null && !isBinaryFile() && appendMapped(record, policy)) return;
+            if (policy == OVERFLOW_SAMPLE && record.type < W
+                    && mTail.get() - mHead.get() > mRecords.length / 2
+                    && mSampleCount.incrementAndGet() % SAMPLE_RATE != 0) {
+                mDropped.incrementAndGet();
+                return;
+            }
+            while (!offer(record)) {
+                // 写入线程自己打的日志不能阻塞
+                if (policy != OVERFLOW_BLOCK || Thread.currentThread() == mThread) {
+                    mDropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(mThread);
+                LockSupport.parkNanos(100000L);
+            }
+            if (mWaiting) {
+                LockSupport.unpark(mThread);
+            }
+        }
+
+        private boolean appendMapped(final LogRecord record, final int policy) {
+            DayRange day = mCallerDay;
+            if (day == null || !day.contains(record.time)) {
+                day = new DayRange(record.time);
+                mCallerDay = day;
+            }
+            StringBuilder sb = LINE_BUILDER.get();
+            sb.setLength(0);
+            record.appendTo(sb, day.timeZone);
+            byte[] line = sb.toString().getBytes(UTF_8);
+            boolean appended = mMappedBuffer.append(line, day.start, record.type, policy);
+            if (sb.capacity() > 16 * 1024) {
+                LINE_BUILDER.remove();
+            }
+            return appended;
+        }
+
+        private boolean offer(final LogRecord record) {
+            long tail = mTail.get();
+            for (; ; ) {
+                int index = (int) tail & mMask;
+                long diff = mSequences.get(index) - tail;
+                if (diff == 0) {
+                    if (mTail.compareAndSet(tail, tail + 1)) {
+                        mRecords[index] = record;
+                        mSequences.lazySet(index, tail + 1);
+                        return true;
+                    }
+                    tail = mTail.get();
+                } else if (diff < 0) {
+                    return false;
+                } else {
+                    tail = mTail.get();
+                }
+            }
+        }
+
+        private LogRecord poll() {
+            long head = mHead.get();
+            int index = (int) head & mMask;
+            if (mSequences.get(index) != head + 1) return null;
+            LogRecord record = mRecords[index];
+            mRecords[index] = null;
+            mSequences.lazySet(index, head + mRecords.length);
+            mHead.lazySet(head + 1);
+            return record;
+        }
+
+        private boolean isEmpty() {
+            long head = mHead.get();
+            return mSequences.get((int) head & mMask) != head + 1;
+        }
+
+        @Override
+        public void run() {
+            int count = 0;
+            for (; ; ) {
+                LogRecord record = poll();
+                if (record != null) {
+                    write(record);
+                    // 一直有日志时也要定期 fsync
+                    if ((++count & 1023) == 0) {
+                        flushBuffer();
+                        syncIfNeeded();
+                    }
+                    continue;
+                }
+                if (mMappedBuffer != null && writeMapped()) continue;
+                long dropped = mDropped.getAndSet(0);
+                if (dropped > 0) {
+                    write(new LogRecord(System.currentTimeMillis(), W, "LogUtils", null, null,
+                            ": ", dropped + " logs dropped, the file buffer is full."));
+                }
+                flushBuffer();
+                mWaiting = true;
+                if (isEmpty()) {
+                    LockSupport.parkNanos(this, SYNC_INTERVAL_MILLIS * 1000000L);
+                }
+                mWaiting = false;
+                if (mMappedBuffer != null && isEmpty() && mMappedBuffer.takeSealed() == -1) {
+                    mMappedBuffer.sealActive();
+                }
+                syncIfNeeded();
+            }
+        }
+
+        /**
+         * 把封存的一半内存映射缓冲区写到日志文件
+         *
+         * @return 是否有数据写入
+         */
+        private boolean writeMapped() {
+            int half = mMappedBuffer.takeSealed();
+            if (half == -1) return false;
+            long day = mMappedBuffer.getDay(half);
+            if (mDay == null || !mDay.contains(day)) {
+                rollDay(day);
+            }
+            if (mFilePath != null || openFile()) {
+                // 先写出队列中已经编码的日志，保持顺序
+                flushBuffer();
+                ByteBuffer data = mMappedBuffer.getData(half);
+                if (mBinary) {
+                    // 切换到二进制格式之前留在缓冲区的文本日志
+                    mBinaryEncoder.text(UTF_8.decode(data.duplicate()).toString());
+                    if (mBinaryEncoder.isFull()) writeBlock();
+                } else if (CONFIG.mFileWriter != null || CONFIG.mOnFileOutputListener != null) {
+                    String content = UTF_8.decode(data.duplicate()).toString();
+                    if (CONFIG.mFileWriter != null) {
+                        input2File(mFilePath, content);
+                    } else {
+                        writeChannel(data);
+                        CONFIG.mOnFileOutputListener.onFileOutput(mFilePath, content);
+                    }
+                } else {
+                    writeChannel(data);
+                }
+            }
+            mMappedBuffer.release(half);
+            return true;
+        }
+
+        private void write(final LogRecord record) {
+            if (mDay == null || !mDay.contains(record.time)) {
+                rollDay(record.time);
+            }
+            if (mFilePath == null && !openFile()) return;
+            if (mBinary) {
+                writeBinary(record);
+                return;
+            }
+            StringBuilder sb = mBuilder;
+            sb.setLength(0);
+            record.appendTo(sb, mDay.timeZone);
+            if (CONFIG.mFileWriter != null) {
+                input2File(mFilePath, sb.toString());
+                return;
+            }
+            encode(sb);
+            if (CONFIG.mOnFileOutputListener != null) {
+                CONFIG.mOnFileOutputListener.onFileOutput(mFilePath, sb.toString());
+            }
+        }
+
+        private void writeBinary(final LogRecord record) {
+            int timeZoneOffset = mDay.timeZone.getOffset(record.time);
+            if (!mBinaryEncoder.accepts(timeZoneOffset)) writeBlock();
+            mBinaryEncoder.log(record, timeZoneOffset);
+            if (mBinaryEncoder.isFull()) writeBlock();
+            if (CONFIG.mOnFileOutputListener != null) {
+                StringBuilder sb = mBuilder;
+                sb.setLength(0);
+                record.appendTo(sb, mDay.timeZone);
+                CONFIG.mOnFileOutputListener.onFileOutput(mFilePath, sb.toString());
+            }
+        }
+
+        /**
+         * 输出编码好的二进制日志块
+         */
+        private void writeBlock() {
+            ByteBuffer block = mBinaryEncoder.finishBlock();
+            if (block != null) {
+                flushBuffer();
+                writeChannel(block);
+            }
+        }
+
+        private void rollDay(final long time) {
+            mDay = new DayRange(time);
+            closeFile();
+        }
+
+        /**
+         * 打开当天的日志文件，文件路径只在换天或者配置变化时重新计算
+         */
+        private boolean openFile() {
+            String filePath = getLogFilePath(mDay.date);
+            if (!createOrExistsFile(filePath, mDay.date)) {
+                Log.e("LogUtils", "create " + filePath + " failed!");
+                return false;
+            }
+            boolean empty = false;
+            if (CONFIG.mFileWriter == null) {
+                try {
+                    mChannel = new FileOutputStream(filePath, true).getChannel();
+                    empty = mChannel.size() == 0;
+                } catch (IOException e) {
+                    Log.e("LogUtils", "open " + filePath + " failed!", e);
+                    CloseUtils.closeIOQuietly(mChannel);
+                    mChannel = null;
+                    return false;
+                }
+            }
+            mFilePath = filePath;
+            mBinary = isBinaryFile();
+            if (mBinary) {
+                if (mBinaryEncoder == null) {
+                    mBinaryEncoder = new BinaryEncoder(CONFIG.mFileCompressSwitch);
+                }
+                if (empty) {
+                    String fileHead = CONFIG.mFileHead.toString();
+                    writeChannel(BinaryEncoder.fileHeader());
+                    mBinaryEncoder.text(fileHead);
+                    if (CONFIG.mOnFileOutputListener != null) {
+                        CONFIG.mOnFileOutputListener.onFileOutput(filePath, fileHead);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void closeFile() {
+            if (mBinary) writeBlock();
+            flushBuffer();
+            if (mChannel != null) {
+                try {
+                    if (mDirty) mChannel.force(false);
+                } catch (IOException ignore) {
+                }
+                CloseUtils.closeIOQuietly(mChannel);
+                mChannel = null;
+            }
+            mDirty = false;
+            mFilePath = null;
+        }
+
+        private void encode(final CharSequence content) {
+            CharBuffer in = CharBuffer.wrap(content);
+            mEncoder.reset();
+            while (mEncoder.encode(in, mBuffer, true).isOverflow()) {
+                flushBuffer();
+            }
+            while (mEncoder.flush(mBuffer).isOverflow()) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() {
+            if (mBuffer.position() == 0) return;
+            mBuffer.flip();
+            writeChannel(mBuffer);
+            mBuffer.clear();
+        }
+
+        private void writeChannel(final ByteBuffer data) {
+            if (mChannel == null) return;
+            try {
+                while (data.hasRemaining()) {
+                    mChannel.write(data);
+                }
+                mDirty = true;
+            } catch (IOException e) {
+                Log.e("LogUtils", "write " + mFilePath + " failed!", e);
+                CloseUtils.closeIOQuietly(mChannel);
+                mChannel = null;
+                mFilePath = null;
+            }
+        }
+
+        /**
+         * 空闲时按间隔 fsync，并检查日志文件是否被删除或者配置是否变化
+         */
+        private void syncIfNeeded() {
+            long now = System.currentTimeMillis();
+            if (now - mLastSyncTime < SYNC_INTERVAL_MILLIS) return;
+            mLastSyncTime = now;
+            if (mBinary) writeBlock();
+            if (mChannel != null && mDirty) {
+                try {
+                    mChannel.force(false);
+                    mDirty = false;
+                } catch (IOException e) {
+                    Log.e("LogUtils", "sync " + mFilePath + " failed!", e);
+                }
+            }
+            if (mFilePath != null && (!mFilePath.equals(getLogFilePath(mDay.date))
+                    || !new File(mFilePath).exists())) {
+                closeFile();
+            }
+        }
+    }
+
+    /**
+     * 二进制日志的编码器，格式见 {@link LogDecoder}
+     * <p>
+     * 日志按块编码，每个块有自己的 tag 和线程名编号表，可以单独解码；
+     * 块写满、定时同步或者关闭文件时整块 deflate 压缩并附上 CRC32 输出，压缩后没有变小的块直接存储
+     * </p>
+     */
+    private final static class BinaryEncoder {
+
+        private static final int BLOCK_SIZE = 32 * 1024;
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        private final Map<String, Integer> mTags = new HashMap<>();
+        private final Map<String, Integer> mThreads = new HashMap<>();
+        private final CRC32 mCrc = new CRC32();
+        private final Deflater mDeflater;
+        private byte[] mRaw = new byte[BLOCK_SIZE + 4096];
+        private byte[] mStored = new byte[LogDecoder.BLOCK_HEADER_LEN + BLOCK_SIZE + 4096];
+        private int mLength;
+        private boolean mHasTime;
+        private long mBaseTime;
+        private long mLastTime;
+        private int mTimeZoneOffset;
+
+        BinaryEncoder(boolean compress) {
+            mDeflater = compress ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        }
+
+        static ByteBuffer fileHeader() {
+            ByteBuffer header = ByteBuffer.allocate(LogDecoder.MAGIC.length + 1);
+            header.put(LogDecoder.MAGIC).put((byte) LogDecoder.VERSION);
+            header.flip();
+            return header;
+        }
+
+        /**
+         * 当前块能否写入这个时区偏移的日志，一个块只有一个时区偏移
+         */
+        boolean accepts(final int timeZoneOffset) {
+            return !mHasTime || timeZoneOffset == mTimeZoneOffset;
+        }
+
+        boolean isFull() {
+            return mLength >= BLOCK_SIZE;
+        }
+
+        void log(final LogRecord record, final int timeZoneOffset) {
+            if (!mHasTime) {
+                mBaseTime = mLastTime = record.time;
+                mTimeZoneOffset = timeZoneOffset;
+                mHasTime = true;
+            }
+            int tagId = intern(mTags, LogDecoder.RECORD_TAG, record.tag);
+            int threadId = intern(mThreads, LogDecoder.RECORD_THREAD, record.thread == null ? "" : record.thread);
+            long delta = record.time - mLastTime;
+            mLastTime = record.time;
+            writeByte(LogDecoder.RECORD_LOG);
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            writeByte(record.type);
+            writeVarLong(tagId);
+            writeVarLong(threadId);
+            writeString(record.body);
+            if (record.location == null) {
+                writeVarLong(0);
+            } else {
+                writeVarLong(1);
+                writeString(LogDecoder.FIELD_LOCATION);
+                writeString(record.location);
+            }
+        }
+
+        void text(final String text) {
+            writeByte(LogDecoder.RECORD_TEXT);
+            writeString(text);
+        }
+
+        /**
+         * 结束当前块
+         *
+         * @return 块头和数据，没有数据返回 null
+         */
+        ByteBuffer finishBlock() {
+            if (mLength == 0) return null;
+            final int headerLength = LogDecoder.BLOCK_HEADER_LEN;
+            if (mStored.length < headerLength + mLength) {
+                mStored = new byte[headerLength + mLength];
+            }
+            int storedLength = -1;
+            if (mDeflater != null) {
+                mDeflater.reset();
+                mDeflater.setInput(mRaw, 0, mLength);
+                mDeflater.finish();
+                int length = 0;
+                while (!mDeflater.finished() && length < mLength) {
+                    int count = mDeflater.deflate(mStored, headerLength + length, mLength - length);
+                    if (count == 0) break;
+                    length += count;
+                }
+                if (mDeflater.finished()) storedLength = length;
+            }
+            int flags = LogDecoder.FLAG_DEFLATE;
+            if (storedLength == -1) {
+                // 压缩后没有变小
+                System.arraycopy(mRaw, 0, mStored, headerLength, mLength);
+                storedLength = mLength;
+                flags = 0;
+            }
+            mCrc.reset();
+            mCrc.update(mStored, headerLength, storedLength);
+            ByteBuffer block = ByteBuffer.wrap(mStored, 0, headerLength + storedLength);
+            block.put((byte) LogDecoder.BLOCK_MARKER)
+                    .put((byte) flags)
+                    .putLong(mBaseTime)
+                    .putInt(mTimeZoneOffset)
+                    .putInt(mLength)
+                    .putInt(storedLength)
+                    .putInt((int) mCrc.getValue());
+            block.position(0);
+            mLength = 0;
+            mHasTime = false;
+            mTags.clear();
+            mThreads.clear();
+            return block;
+        }
+
+        private int intern(final Map<String, Integer> table, final int type, final String value) {
+            Integer id = table.get(value);
+            if (id != null) return id;
+            id = table.size();
+            table.put(value, id);
+            writeByte(type);
+            writeVarLong(id);
+            writeString(value);
+            return id;
+        }
+
+        private void writeByte(final int value) {
+            ensureCapacity(1);
+            mRaw[mLength++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mRaw[mLength++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mRaw[mLength++] = (byte) value;
+        }
+
+        private void writeString(final String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, mRaw, mLength, bytes.length);
+            mLength += bytes.length;
+        }
+
+        private void ensureCapacity(final int length) {
+            if (mLength + length <= mRaw.length) return;
+            mRaw = Arrays.copyOf(mRaw, Math.max(mRaw.length * 2, mLength + length));
         }
     }
 
@@ -8,17 +8,20 @@ import androidx.annotation.CallSuper;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -36,20 +39,30 @@ public final class ThreadUtils {
 
     private static final Handler HANDLER = new Handler(Looper.getMainLooper());
 
-    private static final Map<Integer, Map<Integer, ExecutorService>> TYPE_PRIORITY_POOLS = new HashMap<>();
+    private static final ConcurrentMap<Integer, ConcurrentMap<Integer, ExecutorService>> TYPE_PRIORITY_POOLS = new ConcurrentHashMap<>();
 
-    private static final Map<Task, ExecutorService> TASK_POOL_MAP = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Task, ExecutorService> TASK_POOL_MAP = new ConcurrentHashMap<>();
 
     private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
-    private static final Timer TIMER = new Timer();
+
+    /**
+     * 延时和定时任务的调度器，只负责到时间后把任务提交到对应的线程池，
+     * 取消的任务会立即从队列中移除（包内可见，单元测试通过它检查队列）
+     */
+    static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
 
     private static final byte TYPE_SINGLE = -1;
     private static final byte TYPE_CACHED = -2;
     private static final byte TYPE_IO = -4;
     private static final byte TYPE_CPU = -8;
+    private static final byte TYPE_WORK_STEALING = -16;
 
     private static Executor sDeliver;
 
+    /** IO 线程池的队列容量，默认不限制 */
+    private static volatile int sIoQueueCapacity = Integer.MAX_VALUE;
+    private static volatile RejectedExecutionHandler sIoRejectedHandler;
+
     /**
      * 判断当前是否主线程
      * <p>
@@ -222,6 +235,47 @@ public final class ThreadUtils {
         return getPoolByTypeAndPriority(TYPE_CPU, priority);
     }
 
+    /**
+     * 获取工作窃取线程池
+     * <p>
+     * Return a work-stealing thread pool that creates CPU_COUNT threads,
+     * each thread has its own queue and steals tasks from the others when idle.
+     *
+     * @return a work-stealing thread pool
+     */
+    public static ExecutorService getWorkStealingPool() {
+        return getPoolByTypeAndPriority(TYPE_WORK_STEALING);
+    }
+
+    /**
+     * 获取工作窃取线程池
+     * <p>
+     * Return a work-stealing thread pool that creates CPU_COUNT threads,
+     * each thread has its own queue and steals tasks from the others when idle.
+     *
+     * @param priority The priority of thread in the poll.
+     * @return a work-stealing thread pool
+     */
+    public static ExecutorService getWorkStealingPool(@IntRange(from = 1, to = 10) final int priority) {
+        return getPoolByTypeAndPriority(TYPE_WORK_STEALING, priority);
+    }
+
+    /**
+     * 设置 IO 线程池的队列容量和拒绝策略，只对之后创建的 IO 线程池生效，所以需要在使用 IO 线程池之前调用
+     * <p>
+     * Set the queue capacity and rejected handler of io pools created after.
+     * Tasks rejected by the handler will be delivered to {@link Task#onFail(Throwable)}.
+     *
+     * @param queueCapacity The capacity of queue.
+     * @param handler       The handler, such as {@link BlockPolicy}, {@link ThreadPoolExecutor.AbortPolicy}.
+     */
+    public static void setIoPoolPolicy(@IntRange(from = 1) final int queueCapacity,
+                                       @NonNull final RejectedExecutionHandler handler) {
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity <= 0");
+        sIoQueueCapacity = queueCapacity;
+        sIoRejectedHandler = handler;
+    }
+
     /**
      * 在固定线程池执行任务
      * <p>
@@ -903,6 +957,140 @@ public final class ThreadUtils {
         );
     }
 
+    /**
+     * 在工作窃取线程池执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool.
+     *
+     * @param task The task to execute.
+     * @param <T>  The type of the task's result.
+     */
+    public static <T> void executeByWorkStealing(final Task<T> task) {
+        execute(getPoolByTypeAndPriority(TYPE_WORK_STEALING), task);
+    }
+
+    /**
+     * 在工作窃取线程池执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool.
+     *
+     * @param task     The task to execute.
+     * @param priority The priority of thread in the poll.
+     * @param <T>      The type of the task's result.
+     */
+    public static <T> void executeByWorkStealing(final Task<T> task,
+                                                 @IntRange(from = 1, to = 10) final int priority) {
+        execute(getPoolByTypeAndPriority(TYPE_WORK_STEALING, priority), task);
+    }
+
+    /**
+     * 在工作窃取线程池延时执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool after the given delay.
+     *
+     * @param task  The task to execute.
+     * @param delay The time from now to delay execution.
+     * @param unit  The time unit of the delay parameter.
+     * @param <T>   The type of the task's result.
+     */
+    public static <T> void executeByWorkStealingWithDelay(final Task<T> task,
+                                                          final long delay,
+                                                          final TimeUnit unit) {
+        executeWithDelay(getPoolByTypeAndPriority(TYPE_WORK_STEALING), task, delay, unit);
+    }
+
+    /**
+     * 在工作窃取线程池延时执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool after the given delay.
+     *
+     * @param task     The task to execute.
+     * @param delay    The time from now to delay execution.
+     * @param unit     The time unit of the delay parameter.
+     * @param priority The priority of thread in the poll.
+     * @param <T>      The type of the task's result.
+     */
+    public static <T> void executeByWorkStealingWithDelay(final Task<T> task,
+                                                          final long delay,
+                                                          final TimeUnit unit,
+                                                          @IntRange(from = 1, to = 10) final int priority) {
+        executeWithDelay(getPoolByTypeAndPriority(TYPE_WORK_STEALING, priority), task, delay, unit);
+    }
+
+    /**
+     * 在工作窃取线程池按固定频率执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool at fix rate.
+     *
+     * @param task   The task to execute.
+     * @param period The period between successive executions.
+     * @param unit   The time unit of the period parameter.
+     * @param <T>    The type of the task's result.
+     */
+    public static <T> void executeByWorkStealingAtFixRate(final Task<T> task,
+                                                          final long period,
+                                                          final TimeUnit unit) {
+        executeAtFixedRate(getPoolByTypeAndPriority(TYPE_WORK_STEALING), task, 0, period, unit);
+    }
+
+    /**
+     * 在工作窃取线程池按固定频率执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool at fix rate.
+     *
+     * @param task     The task to execute.
+     * @param period   The period between successive executions.
+     * @param unit     The time unit of the period parameter.
+     * @param priority The priority of thread in the poll.
+     * @param <T>      The type of the task's result.
+     */
+    public static <T> void executeByWorkStealingAtFixRate(final Task<T> task,
+                                                          final long period,
+                                                          final TimeUnit unit,
+                                                          @IntRange(from = 1, to = 10) final int priority) {
+        executeAtFixedRate(getPoolByTypeAndPriority(TYPE_WORK_STEALING, priority), task, 0, period, unit);
+    }
+
+    /**
+     * 在工作窃取线程池按固定频率执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool at fix rate.
+     *
+     * @param task         The task to execute.
+     * @param initialDelay The time to delay first execution.
+     * @param period       The period between successive executions.
+     * @param unit         The time unit of the initialDelay and period parameters.
+     * @param <T>          The type of the task's result.
+     */
+    public static <T> void executeByWorkStealingAtFixRate(final Task<T> task,
+                                                          long initialDelay,
+                                                          final long period,
+                                                          final TimeUnit unit) {
+        executeAtFixedRate(getPoolByTypeAndPriority(TYPE_WORK_STEALING), task, initialDelay, period, unit);
+    }
+
+    /**
+     * 在工作窃取线程池按固定频率执行任务
+     * <p>
+     * Executes the given task in a work-stealing thread pool at fix rate.
+     *
+     * @param task         The task to execute.
+     * @param initialDelay The time to delay first execution.
+     * @param period       The period between successive executions.
+     * @param unit         The time unit of the initialDelay and period parameters.
+     * @param priority     The priority of thread in the poll.
+     * @param <T>          The type of the task's result.
+     */
+    public static <T> void executeByWorkStealingAtFixRate(final Task<T> task,
+                                                          long initialDelay,
+                                                          final long period,
+                                                          final TimeUnit unit,
+                                                          @IntRange(from = 1, to = 10) final int priority) {
+        executeAtFixedRate(
+                getPoolByTypeAndPriority(TYPE_WORK_STEALING, priority), task, initialDelay, period, unit
+        );
+    }
+
     /**
      * 在自定义线程池执行任务
      * <p>
@@ -1022,7 +1210,8 @@ public final class ThreadUtils {
      * @param executorService The pool.
      */
     public static void cancel(ExecutorService executorService) {
-        if (executorService instanceof ThreadPoolExecutor4Util) {
+        if (executorService instanceof ThreadPoolExecutor4Util
+                || executorService instanceof ForkJoinPool4Util) {
             for (Map.Entry<Task, ExecutorService> taskTaskInfoEntry : TASK_POOL_MAP.entrySet()) {
                 if (taskTaskInfoEntry.getValue() == executorService) {
                     cancel(taskTaskInfoEntry.getKey());
@@ -1088,34 +1277,44 @@ public final class ThreadUtils {
      */
     private static <T> void execute(final ExecutorService pool, final Task<T> task,
                                     long delay, final long period, final TimeUnit unit) {
-        synchronized (TASK_POOL_MAP) {
-            if (TASK_POOL_MAP.get(task) != null) {
-                Log.e("ThreadUtils", "Task can only be executed once.");
-                return;
-            }
-            TASK_POOL_MAP.put(task, pool);
+        if (TASK_POOL_MAP.putIfAbsent(task, pool) != null) {
+            Log.e("ThreadUtils", "Task can only be executed once.");
+            return;
         }
-        if (period == 0) {
-            if (delay == 0) {
-                pool.execute(task);
-            } else {
-                TimerTask timerTask = new TimerTask() {
-                    @Override
-                    public void run() {
-                        pool.execute(task);
-                    }
-                };
-                TIMER.schedule(timerTask, unit.toMillis(delay));
+        if (period == 0 && delay == 0) {
+            submit(pool, task);
+            return;
+        }
+        Runnable command = new Runnable() {
+            @Override
+            public void run() {
+                submit(pool, task);
             }
+        };
+        if (period == 0) {
+            task.setScheduleFuture(SCHEDULER.schedule(command, delay, unit));
         } else {
             task.setSchedule(true);
-            TimerTask timerTask = new TimerTask() {
-                @Override
-                public void run() {
-                    pool.execute(task);
-                }
-            };
-            TIMER.scheduleAtFixedRate(timerTask, unit.toMillis(delay), unit.toMillis(period));
+            task.setScheduleFuture(SCHEDULER.scheduleAtFixedRate(command, delay, period, unit));
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new UtilsThreadFactory("scheduler", Thread.NORM_PRIORITY, true));
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return scheduler;
+    }
+
+    /**
+     * 提交任务到线程池，被拒绝的任务通过 {@link Task#onFail(Throwable)} 回调
+     */
+    private static void submit(final ExecutorService pool, final Task task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.reject(e);
         }
     }
 
@@ -1124,30 +1323,34 @@ public final class ThreadUtils {
     }
 
     /**
-     * 根据 type 和 priority 创建线程池
+     * 根据 type 和 priority 获取线程池，没有则创建
+     * <p>
+     * 查找不加锁，并发创建时只保留先放入的线程池，其他的直接关闭（线程池在提交任务前不会创建线程）
      *
      * @param type     类型
      * @param priority 线程优先级
      * @return 线程池
      */
     private static ExecutorService getPoolByTypeAndPriority(final int type, final int priority) {
-        synchronized (TYPE_PRIORITY_POOLS) {
-            ExecutorService pool;
-            Map<Integer, ExecutorService> priorityPools = TYPE_PRIORITY_POOLS.get(type);
+        ConcurrentMap<Integer, ExecutorService> priorityPools = TYPE_PRIORITY_POOLS.get(type);
+        if (priorityPools == null) {
+            ConcurrentMap<Integer, ExecutorService> newPools = new ConcurrentHashMap<>();
+            priorityPools = TYPE_PRIORITY_POOLS.putIfAbsent(type, newPools);
             if (priorityPools == null) {
-                priorityPools = new ConcurrentHashMap<>();
-                pool = ThreadPoolExecutor4Util.createPool(type, priority);
-                priorityPools.put(priority, pool);
-                TYPE_PRIORITY_POOLS.put(type, priorityPools);
+                priorityPools = newPools;
+            }
+        }
+        ExecutorService pool = priorityPools.get(priority);
+        if (pool == null) {
+            ExecutorService newPool = ThreadPoolExecutor4Util.createPool(type, priority);
+            pool = priorityPools.putIfAbsent(priority, newPool);
+            if (pool == null) {
+                pool = newPool;
             } else {
-                pool = priorityPools.get(priority);
-                if (pool == null) {
-                    pool = ThreadPoolExecutor4Util.createPool(type, priority);
-                    priorityPools.put(priority, pool);
-                }
+                newPool.shutdown();
             }
-            return pool;
         }
+        return pool;
     }
 
     /**
@@ -1184,17 +1387,28 @@ public final class ThreadUtils {
                             new UtilsThreadFactory("cached", priority)
                     );
                 case TYPE_IO:
-                    return new ThreadPoolExecutor4Util(2 * CPU_COUNT + 1, 2 * CPU_COUNT + 1,
+                    int capacity = sIoQueueCapacity;
+                    LinkedBlockingQueue4Util ioQueue = capacity == Integer.MAX_VALUE
+                            ? new LinkedBlockingQueue4Util()
+                            : new LinkedBlockingQueue4Util(capacity);
+                    ThreadPoolExecutor4Util ioPool = new ThreadPoolExecutor4Util(2 * CPU_COUNT + 1, 2 * CPU_COUNT + 1,
                             30, TimeUnit.SECONDS,
-                            new LinkedBlockingQueue4Util(),
+                            ioQueue,
                             new UtilsThreadFactory("io", priority)
                     );
+                    RejectedExecutionHandler handler = sIoRejectedHandler;
+                    if (handler != null) {
+                        ioPool.setRejectedExecutionHandler(handler);
+                    }
+                    return ioPool;
                 case TYPE_CPU:
                     return new ThreadPoolExecutor4Util(CPU_COUNT + 1, 2 * CPU_COUNT + 1,
                             30, TimeUnit.SECONDS,
                             new LinkedBlockingQueue4Util(true),
                             new UtilsThreadFactory("cpu", priority)
                     );
+                case TYPE_WORK_STEALING:
+                    return new ForkJoinPool4Util(CPU_COUNT, priority);
                 default:
                     return new ThreadPoolExecutor4Util(type, type,
                             0L, TimeUnit.MILLISECONDS,
@@ -1239,7 +1453,12 @@ public final class ThreadUtils {
             mSubmittedCount.incrementAndGet();
             try {
                 super.execute(command);
-            } catch (RejectedExecutionException ignore) {
+            } catch (RejectedExecutionException e) {
+                if (mWorkQueue.isBounded()) {
+                    // 有界队列已满，交给调用方处理
+                    mSubmittedCount.decrementAndGet();
+                    throw e;
+                }
                 Log.e("ThreadUtils", "This will not happen!");
                 mWorkQueue.offer(command);
             } catch (Throwable t) {
@@ -1270,8 +1489,11 @@ public final class ThreadUtils {
 
         private int mCapacity = Integer.MAX_VALUE;
 
+        private final boolean mBounded;
+
         LinkedBlockingQueue4Util() {
             super();
+            mBounded = false;
         }
 
         LinkedBlockingQueue4Util(boolean isAddSubThreadFirstThenAddQueue) {
@@ -1279,11 +1501,20 @@ public final class ThreadUtils {
             if (isAddSubThreadFirstThenAddQueue) {
                 mCapacity = 0;
             }
+            mBounded = false;
         }
 
+        /**
+         * 有界队列，队列满了之后优先创建非核心线程，都满了再交给拒绝策略
+         */
         LinkedBlockingQueue4Util(int capacity) {
-            super();
+            super(capacity);
             mCapacity = capacity;
+            mBounded = true;
+        }
+
+        boolean isBounded() {
+            return mBounded;
         }
 
         @Override
@@ -1297,6 +1528,71 @@ public final class ThreadUtils {
         }
     }
 
+    /**
+     * 工作窃取线程池
+     * <p>
+     * 每个线程有自己的任务队列，空闲时从其他线程的队列中窃取任务，提交任务时没有全局的锁竞争；
+     * 提交的任务不会 join，所以使用先进先出的异步模式
+     * </p>
+     */
+    static final class ForkJoinPool4Util extends ForkJoinPool {
+
+        ForkJoinPool4Util(int parallelism, int priority) {
+            super(parallelism, new UtilsWorkerThreadFactory("work-stealing", priority), null, true);
+        }
+    }
+
+    /**
+     * 阻塞的拒绝策略，队列满了之后阻塞提交任务的线程，直到队列有空位，以此限制生产速度
+     * <p>
+     * 主线程不能阻塞，在主线程提交时直接拒绝
+     * </p>
+     */
+    public static class BlockPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The pool is shutdown.");
+            }
+            if (isMainThread()) {
+                throw new RejectedExecutionException("The queue is full, can't block the main thread.");
+            }
+            try {
+                executor.getQueue().put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        }
+    }
+
+    /**
+     * 工作窃取线程池的线程创建工厂
+     */
+    static final class UtilsWorkerThreadFactory extends AtomicLong
+            implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final String namePrefix;
+        private final int priority;
+
+        UtilsWorkerThreadFactory(String prefix, int priority) {
+            namePrefix = prefix + "-pool-" +
+                    UtilsThreadFactory.POOL_NUMBER.getAndIncrement() +
+                    "-thread-";
+            this.priority = priority;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread t = new ForkJoinWorkerThread(pool) {
+            };
+            t.setName(namePrefix + getAndIncrement());
+            t.setPriority(priority);
+            return t;
+        }
+    }
+
     /**
      * 自定义线程创建工厂
      */
@@ -1372,7 +1668,8 @@ public final class ThreadUtils {
         private volatile boolean isSchedule;
         private volatile Thread runner;
 
-        private Timer mTimer;
+        private volatile ScheduledFuture<?> mScheduleFuture;
+        private volatile ScheduledFuture<?> mTimeoutFuture;
         private long mTimeoutMillis;
         private OnTimeoutListener mTimeoutListener;
 
@@ -1402,17 +1699,22 @@ public final class ThreadUtils {
                 if (!state.compareAndSet(NEW, RUNNING)) return;
                 runner = Thread.currentThread();
                 if (mTimeoutListener != null) {
-                    mTimer = new Timer();
-                    mTimer.schedule(new TimerTask() {
+                    mTimeoutFuture = SCHEDULER.schedule(new Runnable() {
                         @Override
                         public void run() {
-                            if (!isDone() && mTimeoutListener != null) {
-                                timeout();
-                                mTimeoutListener.onTimeout();
-                                onDone();
-                            }
+                            final OnTimeoutListener listener = mTimeoutListener;
+                            if (listener == null || !timeout()) return;
+                            // 调度线程只负责到时间后提交，回调交给 deliver 执行
+                            getDeliver().execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    listener.onTimeout();
+                                    onDone();
+                                }
+                            });
                         }
-                    }, mTimeoutMillis);
+                    }, mTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (isDone()) cancelFutures();
                 }
             }
             try {
@@ -1458,6 +1760,7 @@ public final class ThreadUtils {
                 if (state.get() > RUNNING) return;
                 state.set(CANCELLED);
             }
+            cancelFutures();
             if (mayInterruptIfRunning) {
                 if (runner != null) {
                     runner.interrupt();
@@ -1473,14 +1776,35 @@ public final class ThreadUtils {
             });
         }
 
-        private void timeout() {
+        /**
+         * 线程池拒绝执行
+         */
+        private void reject(final RejectedExecutionException e) {
+            if (!state.compareAndSet(NEW, EXCEPTIONAL)) {
+                Log.e("ThreadUtils", "The pool rejected a scheduled execution.", e);
+                return;
+            }
+            getDeliver().execute(new Runnable() {
+                @Override
+                public void run() {
+                    onFail(e);
+                    onDone();
+                }
+            });
+        }
+
+        /**
+         * @return 是否由这次超时结束了任务
+         */
+        private boolean timeout() {
             synchronized (state) {
-                if (state.get() > RUNNING) return;
+                if (state.get() > RUNNING) return false;
                 state.set(TIMEOUT);
             }
             if (runner != null) {
                 runner.interrupt();
             }
+            return true;
         }
 
         public boolean isCanceled() {
@@ -1498,6 +1822,8 @@ public final class ThreadUtils {
 
         /**
          * Scheduled task doesn't support timeout.
+         * <p>
+         * 超时回调和其他回调一样在 deliver 中执行
          */
         public Task<T> setTimeout(final long timeoutMillis, final OnTimeoutListener listener) {
             mTimeoutMillis = timeoutMillis;
@@ -1509,6 +1835,28 @@ public final class ThreadUtils {
             this.isSchedule = isSchedule;
         }
 
+        private void setScheduleFuture(ScheduledFuture<?> future) {
+            mScheduleFuture = future;
+            // 设置之前已经取消或者结束
+            if (isDone()) cancelFutures();
+        }
+
+        /**
+         * 把还没执行的调度从调度器中移除
+         */
+        private void cancelFutures() {
+            ScheduledFuture<?> future = mScheduleFuture;
+            if (future != null) {
+                future.cancel(false);
+                mScheduleFuture = null;
+            }
+            future = mTimeoutFuture;
+            if (future != null) {
+                future.cancel(false);
+                mTimeoutFuture = null;
+            }
+        }
+
         private Executor getDeliver() {
             if (deliver == null) {
                 return getGlobalDeliver();
@@ -1519,11 +1867,8 @@ public final class ThreadUtils {
         @CallSuper
         protected void onDone() {
             TASK_POOL_MAP.remove(this);
-            if (mTimer != null) {
-                mTimer.cancel();
-                mTimer = null;
-                mTimeoutListener = null;
-            }
+            cancelFutures();
+            mTimeoutListener = null;
         }
 
         public interface OnTimeoutListener {
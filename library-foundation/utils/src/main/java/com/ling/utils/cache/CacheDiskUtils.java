@@ -10,20 +10,44 @@ import androidx.annotation.NonNull;
 import com.ling.utils.Utils;
 import com.ling.utils.UtilsBridge;
 import com.ling.utils.constant.CacheConstants;
+import com.ling.utils.file.CloseUtils;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
 /**
  * author : wangchengzhen
@@ -36,16 +60,19 @@ public final class CacheDiskUtils implements CacheConstants {
     private static final long DEFAULT_MAX_SIZE = Long.MAX_VALUE;
     private static final int DEFAULT_MAX_COUNT = Integer.MAX_VALUE;
     private static final String CACHE_PREFIX = "cdu_";
-    private static final String TYPE_BYTE = "by_";
-    private static final String TYPE_STRING = "st_";
-    private static final String TYPE_JSON_OBJECT = "jo_";
-    private static final String TYPE_JSON_ARRAY = "ja_";
-    private static final String TYPE_BITMAP = "bi_";
-    private static final String TYPE_DRAWABLE = "dr_";
-    private static final String TYPE_PARCELABLE = "pa_";
-    private static final String TYPE_SERIALIZABLE = "se_";
+    static final String TYPE_BYTE = "by_";
+    static final String TYPE_STRING = "st_";
+    static final String TYPE_JSON_OBJECT = "jo_";
+    static final String TYPE_JSON_ARRAY = "ja_";
+    static final String TYPE_BITMAP = "bi_";
+    static final String TYPE_DRAWABLE = "dr_";
+    static final String TYPE_PARCELABLE = "pa_";
+    static final String TYPE_SERIALIZABLE = "se_";
+    static final String TYPE_OBJECT = "ob_";
 
     private static final Map<String, CacheDiskUtils> CACHE_MAP = new HashMap<>();
+    /** 同一个缓存目录只能有一份索引和 journal，不同容量限制的实例共用，按目录的绝对路径区分 */
+    private static final Map<String, DiskCacheManager> MANAGER_MAP = new HashMap<>();
 
     private final String mCacheKey;
     private final File mCacheDir;
@@ -167,11 +194,11 @@ public final class CacheDiskUtils implements CacheConstants {
     private DiskCacheManager getDiskCacheManager() {
         if (mCacheDir.exists()) {
             if (mDiskCacheManager == null) {
-                mDiskCacheManager = new DiskCacheManager(mCacheDir, mMaxSize, mMaxCount);
+                mDiskCacheManager = obtainDiskCacheManager(mCacheDir);
             }
         } else {
             if (mCacheDir.mkdirs()) {
-                mDiskCacheManager = new DiskCacheManager(mCacheDir, mMaxSize, mMaxCount);
+                mDiskCacheManager = obtainDiskCacheManager(mCacheDir);
             } else {
                 Log.e("CacheDiskUtils", "can't make dirs in " + mCacheDir.getAbsolutePath());
             }
@@ -179,6 +206,18 @@ public final class CacheDiskUtils implements CacheConstants {
         return mDiskCacheManager;
     }
 
+    private static DiskCacheManager obtainDiskCacheManager(final File cacheDir) {
+        final String path = cacheDir.getAbsolutePath();
+        synchronized (CacheDiskUtils.class) {
+            DiskCacheManager manager = MANAGER_MAP.get(path);
+            if (manager == null) {
+                manager = new DiskCacheManager(cacheDir);
+                MANAGER_MAP.put(path, manager);
+            }
+            return manager;
+        }
+    }
+
     @Override
     public String toString() {
         return mCacheKey + "@" + Integer.toHexString(hashCode());
@@ -217,11 +256,10 @@ public final class CacheDiskUtils implements CacheConstants {
         if (value == null) return;
         DiskCacheManager diskCacheManager = getDiskCacheManager();
         if (diskCacheManager == null) return;
-        if (saveTime >= 0) value = DiskCacheHelper.newByteArrayWithTime(saveTime, value);
-        File file = diskCacheManager.getFileBeforePut(key);
-        UtilsBridge.writeFileFromBytes(file, value);
-        diskCacheManager.updateModify(file);
-        diskCacheManager.put(file);
+        File file = diskCacheManager.getFile(key);
+        diskCacheManager.edit(key);
+        long length = DiskCacheHelper.writeEntry(file, key, saveTime, value);
+        diskCacheManager.commit(key, length, mMaxSize, mMaxCount);
     }
 
     /**
@@ -249,6 +287,113 @@ public final class CacheDiskUtils implements CacheConstants {
         return realGetBytes(TYPE_BYTE + key, defaultValue);
     }
 
+    /**
+     * 缓存中读取字节数据视图
+     * <p>
+     * Return the read-only view of bytes in cache, large values are memory-mapped.
+     *
+     * @param key The key of cache.
+     * @return the buffer if cache exists or null otherwise
+     */
+    public ByteBuffer getByteBuffer(@NonNull final String key) {
+        return getByteBuffer(key, null);
+    }
+
+    /**
+     * 缓存中读取字节数据视图
+     * <p>
+     * Return the read-only view of bytes in cache, large values are memory-mapped.
+     *
+     * @param key          The key of cache.
+     * @param defaultValue The default value if the cache doesn't exist.
+     * @return the buffer if cache exists or defaultValue otherwise
+     */
+    public ByteBuffer getByteBuffer(@NonNull final String key, final ByteBuffer defaultValue) {
+        return realGetByteBuffer(TYPE_BYTE + key, defaultValue);
+    }
+
+    private ByteBuffer realGetByteBuffer(@NonNull final String key, final ByteBuffer defaultValue) {
+        DiskCacheManager diskCacheManager = getDiskCacheManager();
+        if (diskCacheManager == null) return defaultValue;
+        final File file = diskCacheManager.getFileIfExists(key);
+        if (file == null) return defaultValue;
+        ByteBuffer buffer = DiskCacheHelper.readEntryBuffer(file, key);
+        if (buffer == null) {
+            diskCacheManager.removeByKey(key);
+            return defaultValue;
+        }
+        diskCacheManager.updateAccess(file);
+        return buffer;
+    }
+
+    /**
+     * 批量写入数据
+     * <p>
+     * Put all bytes in cache, the index is updated once for the whole batch.
+     *
+     * @param values The values of cache.
+     */
+    public void putAll(@NonNull final Map<String, byte[]> values) {
+        putAll(values, -1);
+    }
+
+    /**
+     * 批量写入数据
+     * <p>
+     * Put all bytes in cache, the index is updated once for the whole batch.
+     *
+     * @param values   The values of cache.
+     * @param saveTime The save time of cache, in seconds.
+     */
+    public void putAll(@NonNull final Map<String, byte[]> values, final int saveTime) {
+        DiskCacheManager diskCacheManager = getDiskCacheManager();
+        if (diskCacheManager == null) return;
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            if (entry.getValue() == null) continue;
+            entries.put(TYPE_BYTE + entry.getKey(), entry.getValue());
+        }
+        if (entries.isEmpty()) return;
+        diskCacheManager.editAll(entries.keySet());
+        Map<String, Long> lengths = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            String key = entry.getKey();
+            File file = diskCacheManager.getFile(key);
+            lengths.put(key, DiskCacheHelper.writeEntry(file, key, saveTime, entry.getValue()));
+        }
+        diskCacheManager.commitAll(lengths, mMaxSize, mMaxCount);
+    }
+
+    /**
+     * 批量读取字节数组
+     * <p>
+     * Return all bytes in cache, the index is looked up once for the whole batch.
+     *
+     * @param keys The keys of cache.
+     * @return the key and bytes of the caches which exist
+     */
+    public Map<String, byte[]> getAll(@NonNull final Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        DiskCacheManager diskCacheManager = getDiskCacheManager();
+        if (diskCacheManager == null) return result;
+        List<String> typedKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            typedKeys.add(TYPE_BYTE + key);
+        }
+        List<File> accessed = new ArrayList<>();
+        for (Map.Entry<String, File> entry : diskCacheManager.getFilesIfExist(typedKeys).entrySet()) {
+            byte[] data = DiskCacheHelper.readEntry(entry.getValue(), entry.getKey());
+            if (data == null) {
+                diskCacheManager.removeByKey(entry.getKey());
+                continue;
+            }
+            accessed.add(entry.getValue());
+            result.put(entry.getKey().substring(TYPE_BYTE.length()), data);
+        }
+        diskCacheManager.updateAccess(accessed);
+        return result;
+    }
+
     private byte[] realGetBytes(@NonNull final String key) {
         return realGetBytes(key, null);
     }
@@ -258,13 +403,13 @@ public final class CacheDiskUtils implements CacheConstants {
         if (diskCacheManager == null) return defaultValue;
         final File file = diskCacheManager.getFileIfExists(key);
         if (file == null) return defaultValue;
-        byte[] data = UtilsBridge.readFile2Bytes(file);
-        if (DiskCacheHelper.isDue(data)) {
+        byte[] data = DiskCacheHelper.readEntry(file, key);
+        if (data == null) {
             diskCacheManager.removeByKey(key);
             return defaultValue;
         }
-        diskCacheManager.updateModify(file);
-        return DiskCacheHelper.getDataWithoutDueTime(data);
+        diskCacheManager.updateAccess(file);
+        return data;
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -668,6 +813,84 @@ public final class CacheDiskUtils implements CacheConstants {
         return UtilsBridge.bytes2Object(bytes);
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // about Object
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * 缓存中写入对象
+     * <p>
+     * Put object in cache, encoded by the serializer of {@link CacheSerializers#get(Class)}.
+     *
+     * @param key   The key of cache.
+     * @param value The value of cache.
+     * @param type  The type of value.
+     * @param <T>   The value type.
+     */
+    public <T> void put(@NonNull final String key, final T value, @NonNull final Class<T> type) {
+        put(key, value, type, -1);
+    }
+
+    /**
+     * 缓存中写入对象
+     * <p>
+     * Put object in cache, encoded by the serializer of {@link CacheSerializers#get(Class)}.
+     *
+     * @param key      The key of cache.
+     * @param value    The value of cache.
+     * @param type     The type of value.
+     * @param saveTime The save time of cache, in seconds.
+     * @param <T>      The value type.
+     */
+    public <T> void put(@NonNull final String key, final T value, @NonNull final Class<T> type, final int saveTime) {
+        if (value == null) return;
+        byte[] bytes;
+        try {
+            bytes = CacheSerializers.get(type).encode(value);
+        } catch (IOException | RuntimeException e) {
+            Log.e("CacheDiskUtils", "can't encode " + type.getName() + ": " + e.getMessage());
+            return;
+        }
+        realPutBytes(TYPE_OBJECT + key, bytes, saveTime);
+    }
+
+    /**
+     * 缓存中读取对象
+     * <p>
+     * Return the object in cache, decoded by the serializer of {@link CacheSerializers#get(Class)}.
+     *
+     * @param key  The key of cache.
+     * @param type The type of value.
+     * @param <T>  The value type.
+     * @return the object if cache exists or null otherwise
+     */
+    public <T> T get(@NonNull final String key, @NonNull final Class<T> type) {
+        return get(key, type, null);
+    }
+
+    /**
+     * 缓存中读取对象
+     * <p>
+     * Return the object in cache, decoded by the serializer of {@link CacheSerializers#get(Class)}.
+     *
+     * @param key          The key of cache.
+     * @param type         The type of value.
+     * @param defaultValue The default value if the cache doesn't exist.
+     * @param <T>          The value type.
+     * @return the object if cache exists or defaultValue otherwise
+     */
+    public <T> T get(@NonNull final String key, @NonNull final Class<T> type, final T defaultValue) {
+        ByteBuffer buffer = realGetByteBuffer(TYPE_OBJECT + key, null);
+        if (buffer == null) return defaultValue;
+        try {
+            T value = CacheSerializers.get(type).decode(buffer);
+            return value != null ? value : defaultValue;
+        } catch (IOException | RuntimeException e) {
+            Log.e("CacheDiskUtils", "can't decode " + type.getName() + ": " + e.getMessage());
+            return defaultValue;
+        }
+    }
+
     /**
      * 获取缓存大小
      * <p>
@@ -712,7 +935,8 @@ public final class CacheDiskUtils implements CacheConstants {
                 && diskCacheManager.removeByKey(TYPE_BITMAP + key)
                 && diskCacheManager.removeByKey(TYPE_DRAWABLE + key)
                 && diskCacheManager.removeByKey(TYPE_PARCELABLE + key)
-                && diskCacheManager.removeByKey(TYPE_SERIALIZABLE + key);
+                && diskCacheManager.removeByKey(TYPE_SERIALIZABLE + key)
+                && diskCacheManager.removeByKey(TYPE_OBJECT + key);
     }
 
     /**
@@ -728,199 +952,808 @@ public final class CacheDiskUtils implements CacheConstants {
         return diskCacheManager.clear();
     }
 
+    /**
+     * 磁盘缓存管理
+     * <p>
+     * 使用按访问顺序排列的索引记录缓存文件（最久未使用的在最前面），淘汰只需要移除索引头部；
+     * 所有变更都追加到 journal 文件中，启动时重放 journal 即可恢复索引，不需要逐个读取文件属性。
+     * <p>
+     * 缓存文件以完整键值的 MD5 命名，按 MD5 的前两位分散到 256 个子目录中，
+     * 避免单个目录中文件过多；完整键值保存在文件头中，读取时校验。
+     * <p>
+     * 每个缓存目录只有一个实例，容量限制由调用的 {@link CacheDiskUtils} 在写入时传入。
+     * <p>
+     * journal 格式（参考 DiskLruCache）：
+     * <pre>
+     *     cdu.journal
+     *     2
+     *
+     *     DIRTY 3f/cdu_3f2a...c9
+     *     CLEAN 3f/cdu_3f2a...c9 1024
+     *     READ 3f/cdu_3f2a...c9
+     *     REMOVE 3f/cdu_3f2a...c9
+     * </pre>
+     * 写入文件之前先记录 DIRTY，写入结束后记录 CLEAN 或 REMOVE；
+     * 重放时没有结束的 DIRTY 说明写入过程中进程被杀死，对应的文件和临时文件都会被删除。
+     */
     private static final class DiskCacheManager {
 
-        private final AtomicLong cacheSize;
-        private final AtomicInteger cacheCount;
-        private final long sizeLimit;
-        private final int countLimit;
-        private final Map<File, Long> lastUsageDates
-                = Collections.synchronizedMap(new HashMap<File, Long>());
+        private static final String JOURNAL_FILE = "journal";
+        private static final String JOURNAL_FILE_TEMP = "journal.tmp";
+        private static final String MAGIC = "cdu.journal";
+        private static final String VERSION = "2";
+        private static final String DIRTY = "DIRTY";
+        private static final String CLEAN = "CLEAN";
+        private static final String READ = "READ";
+        private static final String REMOVE = "REMOVE";
+        /** 冗余记录超过这个数量并且超过索引大小时重建 journal */
+        private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+
+        /** 文件名 -> 文件大小，按访问顺序排列 */
+        private final LinkedHashMap<String, Long> lruEntries
+                = new LinkedHashMap<>(0, 0.75f, true);
+        /** 正在写入的文件名 -> 写入中的数量 */
+        private final Map<String, Integer> pendingEdits = new HashMap<>();
         private final File cacheDir;
-        private final Thread mThread;
-
-        private DiskCacheManager(final File cacheDir, final long sizeLimit, final int countLimit) {
+        private final File journalFile;
+        private final File journalFileTmp;
+        private Writer journalWriter;
+        private long size;
+        private int redundantOpCount;
+        private boolean initialized;
+
+        private DiskCacheManager(final File cacheDir) {
             this.cacheDir = cacheDir;
-            this.sizeLimit = sizeLimit;
-            this.countLimit = countLimit;
-            cacheSize = new AtomicLong();
-            cacheCount = new AtomicInteger();
-            mThread = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    int size = 0;
-                    int count = 0;
-                    final File[] cachedFiles = cacheDir.listFiles(new FilenameFilter() {
-                        @Override
-                        public boolean accept(File dir, String name) {
-                            return name.startsWith(CACHE_PREFIX);
-                        }
-                    });
-                    if (cachedFiles != null) {
-                        for (File cachedFile : cachedFiles) {
-                            size += cachedFile.length();
-                            count += 1;
-                            lastUsageDates.put(cachedFile, cachedFile.lastModified());
-                        }
-                        cacheSize.getAndAdd(size);
-                        cacheCount.getAndAdd(count);
-                    }
-                }
-            });
-            mThread.start();
+            journalFile = new File(cacheDir, JOURNAL_FILE);
+            journalFileTmp = new File(cacheDir, JOURNAL_FILE_TEMP);
         }
 
-        private long getCacheSize() {
-            wait2InitOk();
-            return cacheSize.get();
+        private synchronized long getCacheSize() {
+            initialize();
+            return size;
         }
 
-        private int getCacheCount() {
-            wait2InitOk();
-            return cacheCount.get();
+        private synchronized int getCacheCount() {
+            initialize();
+            return lruEntries.size();
         }
 
-        private File getFileBeforePut(final String key) {
-            wait2InitOk();
-            File file = new File(cacheDir, getCacheNameByKey(key));
-            if (file.exists()) {
-                cacheCount.addAndGet(-1);
-                cacheSize.addAndGet(-file.length());
-            }
-            return file;
+        private File getFile(final String key) {
+            return new File(cacheDir, getCacheNameByKey(key));
         }
 
-        private void wait2InitOk() {
-            try {
-                mThread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        /**
+         * 根据索引判断缓存文件是否存在，不访问文件系统
+         */
+        private synchronized File getFileIfExists(final String key) {
+            initialize();
+            String name = getCacheNameByKey(key);
+            if (!lruEntries.containsKey(name)) {
+                // 兼容旧版本以 String.hashCode 命名的缓存文件
+                name = getLegacyCacheNameByKey(key);
+                if (!lruEntries.containsKey(name)) return null;
             }
+            return new File(cacheDir, name);
         }
 
-        private File getFileIfExists(final String key) {
-            File file = new File(cacheDir, getCacheNameByKey(key));
-            if (!file.exists()) return null;
-            return file;
+        /**
+         * 获取缓存文件相对于缓存目录的路径
+         *
+         * @param key 完整键值（包含类型前缀）
+         * @return 子目录 + 文件名
+         */
+        private String getCacheNameByKey(final String key) {
+            String hash = DiskCacheHelper.hash(key);
+            return hash.substring(0, 2) + '/' + CACHE_PREFIX + hash;
         }
 
-        private String getCacheNameByKey(final String key) {
+        private String getLegacyCacheNameByKey(final String key) {
             return CACHE_PREFIX + key.substring(0, 3) + key.substring(3).hashCode();
         }
 
-        private void put(final File file) {
-            cacheCount.addAndGet(1);
-            cacheSize.addAndGet(file.length());
-            while (cacheCount.get() > countLimit || cacheSize.get() > sizeLimit) {
-                cacheSize.addAndGet(-removeOldest());
-                cacheCount.addAndGet(-1);
-            }
+        private String getName(final File file) {
+            return file.getPath().substring(cacheDir.getPath().length() + 1);
         }
 
-        private void updateModify(final File file) {
-            Long millis = System.currentTimeMillis();
-            file.setLastModified(millis);
-            lastUsageDates.put(file, millis);
+        /**
+         * 写入文件之前记录 DIRTY，写入完成后必须调用 {@link #commit}
+         *
+         * @param key 完整键值（包含类型前缀）
+         */
+        private synchronized void edit(final String key) {
+            editAll(Collections.singleton(key));
         }
 
-        private boolean removeByKey(final String key) {
-            File file = getFileIfExists(key);
-            if (file == null) return true;
-            if (!file.delete()) return false;
-            cacheSize.addAndGet(-file.length());
-            cacheCount.addAndGet(-1);
-            lastUsageDates.remove(file);
-            return true;
+        /**
+         * 批量记录 DIRTY，journal 只写入磁盘一次
+         *
+         * @param keys 完整键值（包含类型前缀）
+         */
+        private synchronized void editAll(final Collection<String> keys) {
+            initialize();
+            for (String key : keys) {
+                String name = getCacheNameByKey(key);
+                Integer count = pendingEdits.get(name);
+                pendingEdits.put(name, count == null ? 1 : count + 1);
+                redundantOpCount++;
+                journal(DIRTY + ' ' + name, false);
+            }
+            flushJournal();
         }
 
-        private boolean clear() {
-            File[] files = cacheDir.listFiles(new FilenameFilter() {
-                @Override
-                public boolean accept(File dir, String name) {
-                    return name.startsWith(CACHE_PREFIX);
+        /**
+         * 文件写入结束后登记到索引中
+         *
+         * @param key        完整键值（包含类型前缀）
+         * @param length     文件大小，小于 0 表示写入失败
+         * @param sizeLimit  缓存大小上限
+         * @param countLimit 缓存个数上限
+         */
+        private synchronized void commit(final String key, final long length,
+                                         final long sizeLimit, final int countLimit) {
+            commitAll(Collections.singletonMap(key, length), sizeLimit, countLimit);
+        }
+
+        /**
+         * 批量登记写入结束的文件，journal 只写入磁盘一次
+         *
+         * @param lengths    完整键值（包含类型前缀） -> 文件大小，小于 0 表示写入失败
+         * @param sizeLimit  缓存大小上限
+         * @param countLimit 缓存个数上限
+         */
+        private synchronized void commitAll(final Map<String, Long> lengths,
+                                            final long sizeLimit, final int countLimit) {
+            initialize();
+            for (Map.Entry<String, Long> entry : lengths.entrySet()) {
+                String name = getCacheNameByKey(entry.getKey());
+                long length = entry.getValue();
+                Long oldLength = lruEntries.get(name);
+                if (length >= 0) {
+                    removeByName(getLegacyCacheNameByKey(entry.getKey()));
+                    lruEntries.put(name, length);
+                    if (oldLength != null) {
+                        size -= oldLength;
+                        redundantOpCount++;
+                    }
+                    size += length;
+                    journal(CLEAN + ' ' + name + ' ' + length, false);
+                } else if (oldLength != null) {
+                    // 写入失败时临时文件没有替换原来的文件，恢复原来的记录
+                    redundantOpCount++;
+                    journal(CLEAN + ' ' + name + ' ' + oldLength, false);
+                } else {
+                    journal(REMOVE + ' ' + name, false);
                 }
-            });
-            if (files == null || files.length <= 0) return true;
-            boolean flag = true;
+                Integer count = pendingEdits.remove(name);
+                if (count != null && count > 1) {
+                    // 同一个文件还有其他写入没有结束
+                    pendingEdits.put(name, count - 1);
+                    redundantOpCount++;
+                    journal(DIRTY + ' ' + name, false);
+                }
+            }
+            flushJournal();
+            while (lruEntries.size() > countLimit || size > sizeLimit) {
+                if (!removeOldest()) break;
+            }
+            compactIfNeeded();
+        }
+
+        /**
+         * 批量根据索引查找缓存文件
+         *
+         * @param keys 完整键值（包含类型前缀）
+         * @return 完整键值 -> 缓存文件，不存在的不会包含在内
+         */
+        private synchronized Map<String, File> getFilesIfExist(final Collection<String> keys) {
+            Map<String, File> files = new LinkedHashMap<>();
+            for (String key : keys) {
+                File file = getFileIfExists(key);
+                if (file != null) files.put(key, file);
+            }
+            return files;
+        }
+
+        /**
+         * 批量记录缓存被访问
+         */
+        private synchronized void updateAccess(final Collection<File> files) {
             for (File file : files) {
+                updateAccess(file);
+            }
+        }
+
+        /**
+         * 记录缓存被访问，只移动索引位置并追加 journal，不修改文件属性
+         */
+        private synchronized void updateAccess(final File file) {
+            String name = getName(file);
+            if (lruEntries.get(name) == null) return;
+            redundantOpCount++;
+            journal(READ + ' ' + name, false);
+            compactIfNeeded();
+        }
+
+        private synchronized boolean removeByKey(final String key) {
+            initialize();
+            return removeByName(getCacheNameByKey(key))
+                    && removeByName(getLegacyCacheNameByKey(key));
+        }
+
+        private synchronized boolean clear() {
+            initialize();
+            boolean flag = true;
+            for (File file : listCacheFiles(true)) {
                 if (!file.delete()) {
                     flag = false;
                     continue;
                 }
-                cacheSize.addAndGet(-file.length());
-                cacheCount.addAndGet(-1);
-                lastUsageDates.remove(file);
+                Long length = lruEntries.remove(getName(file));
+                if (length != null) size -= length;
             }
             if (flag) {
-                lastUsageDates.clear();
-                cacheSize.set(0);
-                cacheCount.set(0);
+                lruEntries.clear();
+                size = 0;
             }
+            rebuildJournal();
             return flag;
         }
 
         /**
-         * Remove the oldest files.
+         * Remove the oldest file.
          *
-         * @return the size of oldest files, in bytes
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        private boolean removeOldest() {
+            Iterator<String> iterator = lruEntries.keySet().iterator();
+            if (!iterator.hasNext()) return false;
+            return removeByName(iterator.next());
+        }
+
+        private boolean removeByName(final String name) {
+            Long length = lruEntries.get(name);
+            if (length == null) return true;
+            File file = new File(cacheDir, name);
+            if (!file.delete() && file.exists()) return false;
+            lruEntries.remove(name);
+            size -= length;
+            redundantOpCount++;
+            journal(REMOVE + ' ' + name, true);
+            return true;
+        }
+
+        /**
+         * 首次使用时从 journal 恢复索引，journal 不存在或者损坏时才扫描缓存目录
          */
-        private long removeOldest() {
-            if (lastUsageDates.isEmpty()) return 0;
-            Long oldestUsage = Long.MAX_VALUE;
-            File oldestFile = null;
-            Set<Map.Entry<File, Long>> entries = lastUsageDates.entrySet();
-            synchronized (lastUsageDates) {
-                for (Map.Entry<File, Long> entry : entries) {
-                    Long lastValueUsage = entry.getValue();
-                    if (lastValueUsage < oldestUsage) {
-                        oldestUsage = lastValueUsage;
-                        oldestFile = entry.getKey();
+        private void initialize() {
+            if (initialized) return;
+            initialized = true;
+            if (journalFile.exists()) {
+                try {
+                    if (readJournal()) {
+                        // 删除了写入中断的文件，重建 journal 去掉没有结束的 DIRTY
+                        rebuildJournal();
+                    } else {
+                        journalWriter = new BufferedWriter(new OutputStreamWriter(
+                                new FileOutputStream(journalFile, true), Charset.forName("US-ASCII")));
                     }
+                    return;
+                } catch (IOException e) {
+                    Log.w("CacheDiskUtils", "journal is corrupt, rebuilding: " + e.getMessage());
+                    lruEntries.clear();
+                    size = 0;
                 }
             }
-            if (oldestFile == null) return 0;
-            long fileSize = oldestFile.length();
-            if (oldestFile.delete()) {
-                lastUsageDates.remove(oldestFile);
-                return fileSize;
+            scanCacheDir();
+            rebuildJournal();
+        }
+
+        /**
+         * 重放 journal
+         *
+         * @return 是否有写入中断的文件被删除
+         */
+        private boolean readJournal() throws IOException {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(journalFile), Charset.forName("US-ASCII")));
+            try {
+                String magic = reader.readLine();
+                String version = reader.readLine();
+                String blank = reader.readLine();
+                if (!MAGIC.equals(magic) || !VERSION.equals(version) || !"".equals(blank)) {
+                    throw new IOException("unexpected journal header: [" + magic + ", " + version + "]");
+                }
+                Set<String> dirtyNames = new HashSet<>();
+                int lineCount = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readJournalLine(line, dirtyNames);
+                    lineCount++;
+                }
+                redundantOpCount = lineCount - lruEntries.size();
+                for (String name : dirtyNames) {
+                    deleteDirty(name);
+                }
+                return !dirtyNames.isEmpty();
+            } finally {
+                CloseUtils.closeIOQuietly(reader);
             }
-            return 0;
+        }
+
+        private void readJournalLine(final String line, final Set<String> dirtyNames) throws IOException {
+            String[] parts = line.split(" ");
+            if (parts.length < 2) {
+                // 进程被杀死时最后一行可能没有写完整，直接忽略
+                return;
+            }
+            String name = parts[1];
+            if (DIRTY.equals(parts[0])) {
+                dirtyNames.add(name);
+                return;
+            }
+            dirtyNames.remove(name);
+            if (CLEAN.equals(parts[0]) && parts.length == 3) {
+                long length;
+                try {
+                    length = Long.parseLong(parts[2]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("unexpected journal line: " + line);
+                }
+                Long oldLength = lruEntries.put(name, length);
+                if (oldLength != null) size -= oldLength;
+                size += length;
+            } else if (READ.equals(parts[0])) {
+                lruEntries.get(name);
+            } else if (REMOVE.equals(parts[0])) {
+                Long oldLength = lruEntries.remove(name);
+                if (oldLength != null) size -= oldLength;
+            } else {
+                throw new IOException("unexpected journal line: " + line);
+            }
+        }
+
+        /**
+         * 删除写入没有结束的文件：文件可能已经被替换但是大小没有登记，同目录下的临时文件也是这次写入遗留的
+         */
+        private void deleteDirty(final String name) {
+            Long length = lruEntries.remove(name);
+            if (length != null) size -= length;
+            File file = new File(cacheDir, name);
+            file.delete();
+            File[] tempFiles = file.getParentFile().listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String fileName) {
+                    return fileName.startsWith(DiskCacheHelper.TEMP_PREFIX);
+                }
+            });
+            if (tempFiles == null) return;
+            for (File tempFile : tempFiles) {
+                tempFile.delete();
+            }
+        }
+
+        /**
+         * 没有 journal 时（首次使用或者从旧版本升级）扫描一次缓存目录，按修改时间排序作为初始访问顺序，
+         * 写入中断遗留的临时文件直接删除
+         */
+        private void scanCacheDir() {
+            final List<File> cachedFiles = new ArrayList<>();
+            for (File file : listCacheFiles(true)) {
+                if (file.getName().startsWith(DiskCacheHelper.TEMP_PREFIX)) {
+                    file.delete();
+                } else {
+                    cachedFiles.add(file);
+                }
+            }
+            final long[] lastModified = new long[cachedFiles.size()];
+            Integer[] indexes = new Integer[cachedFiles.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                lastModified[i] = cachedFiles.get(i).lastModified();
+                indexes[i] = i;
+            }
+            Arrays.sort(indexes, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Long.compare(lastModified[o1], lastModified[o2]);
+                }
+            });
+            for (Integer index : indexes) {
+                File cachedFile = cachedFiles.get(index);
+                long length = cachedFile.length();
+                lruEntries.put(getName(cachedFile), length);
+                size += length;
+            }
+        }
+
+        /**
+         * 列出缓存目录以及分片子目录中的缓存文件
+         *
+         * @param withTemp 是否包含写入中断遗留的临时文件
+         * @return 缓存文件
+         */
+        private List<File> listCacheFiles(final boolean withTemp) {
+            final List<File> result = new ArrayList<>();
+            FilenameFilter filter = new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.startsWith(CACHE_PREFIX)
+                            || (withTemp && name.startsWith(DiskCacheHelper.TEMP_PREFIX));
+                }
+            };
+            File[] shards = cacheDir.listFiles(new FileFilter() {
+                @Override
+                public boolean accept(File file) {
+                    return file.getName().length() == 2 && file.isDirectory();
+                }
+            });
+            List<File> dirs = new ArrayList<>();
+            dirs.add(cacheDir);
+            if (shards != null) dirs.addAll(Arrays.asList(shards));
+            for (File dir : dirs) {
+                File[] files = dir.listFiles(filter);
+                if (files != null) result.addAll(Arrays.asList(files));
+            }
+            return result;
+        }
+
+        /**
+         * 按当前索引重新生成 journal，去掉冗余记录
+         */
+        private void rebuildJournal() {
+            CloseUtils.closeIOQuietly(journalWriter);
+            journalWriter = null;
+            Writer writer = null;
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(journalFileTmp), Charset.forName("US-ASCII")));
+                writer.write(MAGIC + "\n" + VERSION + "\n\n");
+                for (Map.Entry<String, Long> entry : lruEntries.entrySet()) {
+                    writer.write(CLEAN + ' ' + entry.getKey() + ' ' + entry.getValue() + '\n');
+                }
+                // 正在写入的文件需要保留 DIRTY，否则写入过程中进程被杀死就无法发现
+                for (String name : pendingEdits.keySet()) {
+                    writer.write(DIRTY + ' ' + name + '\n');
+                }
+                writer.close();
+                writer = null;
+                if (!journalFileTmp.renameTo(journalFile)) {
+                    throw new IOException("can't rename " + journalFileTmp.getAbsolutePath());
+                }
+                journalWriter = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(journalFile, true), Charset.forName("US-ASCII")));
+                redundantOpCount = 0;
+            } catch (IOException e) {
+                Log.e("CacheDiskUtils", "can't rebuild journal: " + e.getMessage());
+                CloseUtils.closeIOQuietly(writer);
+                journalFileTmp.delete();
+            }
+        }
+
+        private void compactIfNeeded() {
+            if (redundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD
+                    && redundantOpCount >= lruEntries.size()) {
+                rebuildJournal();
+            }
+        }
+
+        /**
+         * 追加一条 journal 记录
+         *
+         * @param line  记录内容
+         * @param flush 是否立即写入磁盘（访问记录丢失只会影响淘汰顺序，不需要立即写入）
+         */
+        private void journal(final String line, final boolean flush) {
+            if (journalWriter == null) return;
+            try {
+                journalWriter.write(line);
+                journalWriter.write('\n');
+                if (flush) journalWriter.flush();
+            } catch (IOException e) {
+                onJournalError(e);
+            }
+        }
+
+        private void flushJournal() {
+            if (journalWriter == null) return;
+            try {
+                journalWriter.flush();
+            } catch (IOException e) {
+                onJournalError(e);
+            }
+        }
+
+        private void onJournalError(final IOException e) {
+            Log.e("CacheDiskUtils", "can't write journal: " + e.getMessage());
+            CloseUtils.closeIOQuietly(journalWriter);
+            journalWriter = null;
+            // 下次初始化时重新扫描缓存目录
+            journalFile.delete();
         }
     }
 
+    /**
+     * 缓存文件格式
+     * <p>
+     * 新版本的缓存文件使用二进制头部：
+     * <pre>
+     *     magic(4) + version(4) + 到期时间毫秒(8，-1 表示永久) + 数据长度(4) + CRC32(4)
+     *     + 键值长度(4) + 键值(UTF-8) + 数据
+     * </pre>
+     * 判断是否到期只需要读取头部，数据直接读到目标数组或者映射成 {@link ByteBuffer}，不需要再额外复制；
+     * 版本 1（没有键值）以及旧版本（"_$到期秒数$_" + 数据）的缓存文件仍然可以读取。
+     */
     private static final class DiskCacheHelper {
 
-        /** 到期时间信息的长度 */
+        /** 文件头标识 "CDU1" */
+        static final int MAGIC = 0x43445531;
+        /** 文件格式版本 */
+        static final int VERSION = 2;
+        /** 版本 1 的文件头长度 */
+        static final int HEADER_LEN_V1 = 24;
+        /** 文件头固定部分的长度（不含键值） */
+        static final int HEADER_LEN = 28;
+        /** 数据超过这个大小时使用内存映射读取 */
+        static final int MAP_THRESHOLD = 64 * 1024;
+        /** 写入时临时文件的前缀 */
+        static final String TEMP_PREFIX = "tmp_";
+
+        /** 旧版本到期时间信息的长度 */
         static final int TIME_INFO_LEN = 14;
 
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        /**
+         * 写入缓存文件
+         * <p>
+         * 先写到临时文件再重命名，覆盖时不会截断已经被映射的旧文件
+         *
+         * @param file   缓存文件
+         * @param key    完整键值
+         * @param second 保存时间(单位：秒)，小于 0 表示永久
+         * @param data   数据
+         * @return 文件大小，失败返回 -1
+         */
+        private static long writeEntry(final File file, final String key, final int second, final byte[] data) {
+            File tempFile = null;
+            FileOutputStream os = null;
+            try {
+                File parentFile = file.getParentFile();
+                if (parentFile != null && !parentFile.isDirectory() && !parentFile.mkdirs()) {
+                    throw new IOException("can't make dirs in " + parentFile.getAbsolutePath());
+                }
+                tempFile = File.createTempFile(TEMP_PREFIX, null, parentFile);
+                os = new FileOutputStream(tempFile);
+                FileChannel channel = os.getChannel();
+                ByteBuffer header = newHeader(key, second, data);
+                ByteBuffer[] buffers = {header, ByteBuffer.wrap(data)};
+                long total = header.remaining() + data.length;
+                long written = 0;
+                while (written < total) {
+                    written += channel.write(buffers);
+                }
+                os.close();
+                os = null;
+                if (!tempFile.renameTo(file)) {
+                    tempFile.delete();
+                    return -1;
+                }
+                return total;
+            } catch (IOException e) {
+                Log.e("CacheDiskUtils", "can't write " + file.getAbsolutePath() + ": " + e.getMessage());
+                if (tempFile != null) tempFile.delete();
+                return -1;
+            } finally {
+                CloseUtils.closeIOQuietly(os);
+            }
+        }
+
+        /**
+         * 读取缓存数据
+         *
+         * @param file 缓存文件
+         * @param key  完整键值
+         * @return 数据，到期、文件损坏或者键值不一致返回 null
+         */
+        private static byte[] readEntry(final File file, final String key) {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel();
+                Header header = readHeader(channel, key);
+                if (header == null) return readLegacyEntry(file);
+                if (header.isDue()) return null;
+                byte[] data = new byte[header.length];
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, header.offset + buffer.position()) < 0) return null;
+                }
+                if (!checksumMatches(header, buffer)) return null;
+                return data;
+            } catch (IOException e) {
+                return null;
+            } finally {
+                CloseUtils.closeIOQuietly(raf);
+            }
+        }
+
+        /**
+         * 读取缓存数据，较大的数据直接映射到内存中
+         *
+         * @param file 缓存文件
+         * @param key  完整键值
+         * @return 只读的数据视图，到期、文件损坏或者键值不一致返回 null
+         */
+        private static ByteBuffer readEntryBuffer(final File file, final String key) {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel();
+                Header header = readHeader(channel, key);
+                if (header == null) {
+                    byte[] data = UtilsBridge.readFile2Bytes(file);
+                    if (data == null || isDue(data)) return null;
+                    int offset = hasTimeInfo(data) ? TIME_INFO_LEN : 0;
+                    return ByteBuffer.wrap(data, offset, data.length - offset).slice().asReadOnlyBuffer();
+                }
+                if (header.isDue()) return null;
+                ByteBuffer buffer;
+                if (header.length >= MAP_THRESHOLD) {
+                    // 映射在通道关闭之后仍然有效
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, header.offset, header.length);
+                } else {
+                    buffer = ByteBuffer.allocate(header.length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, header.offset + buffer.position()) < 0) return null;
+                    }
+                    buffer.flip();
+                }
+                if (!checksumMatches(header, buffer)) return null;
+                return buffer.asReadOnlyBuffer();
+            } catch (IOException e) {
+                return null;
+            } finally {
+                CloseUtils.closeIOQuietly(raf);
+            }
+        }
+
         /**
-         * 创建新的保存数据 (到期时间 + 原数据)
+         * 读取旧版本的缓存数据
+         */
+        private static byte[] readLegacyEntry(final File file) {
+            byte[] data = UtilsBridge.readFile2Bytes(file);
+            if (data == null || isDue(data)) return null;
+            return getDataWithoutDueTime(data);
+        }
+
+        /**
+         * 计算键值的 128 位哈希
          *
+         * @param key 完整键值
+         * @return MD5 的十六进制字符串
+         */
+        private static String hash(final String key) {
+            try {
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                return UtilsBridge.bytes2HexString(md5.digest(key.getBytes(UTF_8))).toLowerCase(Locale.US);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * 创建文件头
+         *
+         * @param key    完整键值
          * @param second 保存时间(单位：秒)
          * @param data   原数据
-         * @return 新数据
+         * @return 文件头
          */
-        private static byte[] newByteArrayWithTime(final int second, final byte[] data) {
-            byte[] time = createDueTime(second).getBytes();
-            byte[] content = new byte[time.length + data.length];
-            System.arraycopy(time, 0, content, 0, time.length);
-            System.arraycopy(data, 0, content, time.length, data.length);
-            return content;
+        private static ByteBuffer newHeader(final String key, final int second, final byte[] data) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(data, 0, data.length);
+            byte[] keyBytes = key.getBytes(UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LEN + keyBytes.length);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(second >= 0 ? System.currentTimeMillis() + second * 1000L : -1)
+                    .putInt(data.length)
+                    .putInt((int) crc32.getValue())
+                    .putInt(keyBytes.length)
+                    .put(keyBytes);
+            header.flip();
+            return header;
         }
 
         /**
-         * 创建到期时间 (当前时间 + 保存时间)
-         * <p>
-         * Return the string of due time.
+         * 读取文件头
          *
-         * @param seconds The seconds.
-         * @return the string of due time
+         * @param channel 文件通道
+         * @param key     完整键值，和文件头中的不一致时视为文件损坏
+         * @return 文件头，旧版本的文件返回 null
          */
-        private static String createDueTime(final int seconds) {
-            return String.format(
-                    Locale.getDefault(), "_$%010d$_",
-                    System.currentTimeMillis() / 1000 + seconds
-            );
+        private static Header readHeader(final FileChannel channel, final String key) throws IOException {
+            long size = channel.size();
+            if (size < HEADER_LEN_V1) return null;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, HEADER_LEN));
+            readFully(channel, buffer, 0);
+            if (buffer.getInt(0) != MAGIC) return null;
+            Header header = new Header();
+            int version = buffer.getInt(4);
+            header.dueMillis = buffer.getLong(8);
+            header.length = buffer.getInt(16);
+            header.checksum = buffer.getInt(20);
+            if (version == 1) {
+                header.offset = HEADER_LEN_V1;
+            } else if (version == VERSION && size >= HEADER_LEN) {
+                int keyLength = buffer.getInt(24);
+                if (keyLength < 0 || HEADER_LEN + (long) keyLength > size) {
+                    throw new IOException("unexpected cache header");
+                }
+                ByteBuffer keyBuffer = ByteBuffer.allocate(keyLength);
+                readFully(channel, keyBuffer, HEADER_LEN);
+                if (!key.equals(new String(keyBuffer.array(), UTF_8))) {
+                    // 哈希冲突，视为没有缓存
+                    throw new IOException("cache key mismatch");
+                }
+                header.offset = HEADER_LEN + keyLength;
+            } else {
+                throw new IOException("unexpected cache header");
+            }
+            if (size != header.offset + (long) header.length) {
+                throw new IOException("unexpected cache length");
+            }
+            return header;
+        }
+
+        private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+            }
+        }
+
+        private static final class Header {
+            /** 到期时间，-1 表示永久 */
+            long dueMillis;
+            /** 数据在文件中的位置 */
+            long offset;
+            /** 数据长度 */
+            int length;
+            /** 数据的 CRC32 */
+            int checksum;
+
+            /**
+             * 判断数据是否到期
+             *
+             * @return true：到期；false：没有到期
+             */
+            boolean isDue() {
+                return dueMillis != -1 && System.currentTimeMillis() > dueMillis;
+            }
+        }
+
+        /**
+         * 校验数据的 CRC32
+         *
+         * @param header 文件头
+         * @param buffer 数据
+         * @return true：一致；false：不一致
+         */
+        private static boolean checksumMatches(final Header header, final ByteBuffer buffer) {
+            CRC32 crc32 = new CRC32();
+            if (buffer.hasArray()) {
+                crc32.update(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+            } else {
+                // CRC32.update(ByteBuffer) 需要 API 26，分段读取映射的数据
+                ByteBuffer duplicate = buffer.duplicate();
+                duplicate.clear();
+                byte[] chunk = new byte[Math.min(8192, duplicate.remaining())];
+                while (duplicate.hasRemaining()) {
+                    int count = Math.min(chunk.length, duplicate.remaining());
+                    duplicate.get(chunk, 0, count);
+                    crc32.update(chunk, 0, count);
+                }
+            }
+            return (int) crc32.getValue() == header.checksum;
         }
 
         /**
@@ -3,6 +3,7 @@ package com.ling.utils.cache;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Parcelable;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 
@@ -12,8 +13,16 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * author : wangchengzhen
@@ -25,11 +34,32 @@ public final class CacheDoubleUtils implements CacheConstants {
 
     private static final Map<String, CacheDoubleUtils> CACHE_MAP = new HashMap<>();
 
+    /** 延后写入磁盘的线程 */
+    private static ExecutorService sWriteExecutor;
+
     /** 内存缓存 */
     private final CacheMemoryUtils mCacheMemoryUtils;
     /** 磁盘缓存 */
     private final CacheDiskUtils mCacheDiskUtils;
 
+    /** 磁盘缓存中各个类型数据的键值前缀 */
+    private static final String[] DISK_TYPES = {
+            CacheDiskUtils.TYPE_BYTE, CacheDiskUtils.TYPE_STRING,
+            CacheDiskUtils.TYPE_JSON_OBJECT, CacheDiskUtils.TYPE_JSON_ARRAY,
+            CacheDiskUtils.TYPE_BITMAP, CacheDiskUtils.TYPE_DRAWABLE,
+            CacheDiskUtils.TYPE_PARCELABLE, CacheDiskUtils.TYPE_SERIALIZABLE,
+            CacheDiskUtils.TYPE_OBJECT
+    };
+
+    /** 等待写入磁盘的数据，按写入顺序排列（写入的键值带有类型前缀，删除的键值不带） */
+    private final LinkedHashMap<String, PendingWrite> mPendingWrites = new LinkedHashMap<>();
+    /** 保证同一时间只有一个线程在写入磁盘 */
+    private final Object mWriteLock = new Object();
+    /** 是否已经提交了写入任务 */
+    private boolean mDrainScheduled;
+    /** 是否延后写入磁盘 */
+    private volatile boolean mWriteBehind;
+
     /**
      * 获取缓存实例
      * <p>
@@ -96,9 +126,14 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @param value    The value of cache.
      * @param saveTime The save time of cache, in seconds.
      */
-    public void put(@NonNull final String key, byte[] value, final int saveTime) {
+    public void put(@NonNull final String key, final byte[] value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_BYTE + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -123,8 +158,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the bytes if cache exists or defaultValue otherwise
      */
     public byte[] getBytes(@NonNull final String key, final byte[] defaultValue) {
-        byte[] obj = mCacheMemoryUtils.get(key);
+        byte[] obj = getMemory(key, CacheDiskUtils.TYPE_BYTE);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         byte[] bytes = mCacheDiskUtils.getBytes(key);
         if (bytes != null) {
             mCacheMemoryUtils.put(key, bytes);
@@ -160,7 +196,12 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final String value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_STRING + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -185,8 +226,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the string value if cache exists or defaultValue otherwise
      */
     public String getString(@NonNull final String key, final String defaultValue) {
-        String obj = mCacheMemoryUtils.get(key);
+        String obj = getMemory(key, CacheDiskUtils.TYPE_STRING);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         String string = mCacheDiskUtils.getString(key);
         if (string != null) {
             mCacheMemoryUtils.put(key, string);
@@ -224,7 +266,12 @@ public final class CacheDoubleUtils implements CacheConstants {
                     final JSONObject value,
                     final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_JSON_OBJECT + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -249,8 +296,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the JSONObject if cache exists or defaultValue otherwise
      */
     public JSONObject getJSONObject(@NonNull final String key, final JSONObject defaultValue) {
-        JSONObject obj = mCacheMemoryUtils.get(key);
+        JSONObject obj = getMemory(key, CacheDiskUtils.TYPE_JSON_OBJECT);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         JSONObject jsonObject = mCacheDiskUtils.getJSONObject(key);
         if (jsonObject != null) {
             mCacheMemoryUtils.put(key, jsonObject);
@@ -286,7 +334,12 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final JSONArray value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_JSON_ARRAY + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -311,8 +364,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the JSONArray if cache exists or defaultValue otherwise
      */
     public JSONArray getJSONArray(@NonNull final String key, final JSONArray defaultValue) {
-        JSONArray obj = mCacheMemoryUtils.get(key);
+        JSONArray obj = getMemory(key, CacheDiskUtils.TYPE_JSON_ARRAY);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         JSONArray jsonArray = mCacheDiskUtils.getJSONArray(key);
         if (jsonArray != null) {
             mCacheMemoryUtils.put(key, jsonArray);
@@ -348,7 +402,12 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final Bitmap value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_BITMAP + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -373,8 +432,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the bitmap if cache exists or defaultValue otherwise
      */
     public Bitmap getBitmap(@NonNull final String key, final Bitmap defaultValue) {
-        Bitmap obj = mCacheMemoryUtils.get(key);
+        Bitmap obj = getMemory(key, CacheDiskUtils.TYPE_BITMAP);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         Bitmap bitmap = mCacheDiskUtils.getBitmap(key);
         if (bitmap != null) {
             mCacheMemoryUtils.put(key, bitmap);
@@ -410,7 +470,12 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final Drawable value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_DRAWABLE + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -435,8 +500,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the drawable if cache exists or defaultValue otherwise
      */
     public Drawable getDrawable(@NonNull final String key, final Drawable defaultValue) {
-        Drawable obj = mCacheMemoryUtils.get(key);
+        Drawable obj = getMemory(key, CacheDiskUtils.TYPE_DRAWABLE);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         Drawable drawable = mCacheDiskUtils.getDrawable(key);
         if (drawable != null) {
             mCacheMemoryUtils.put(key, drawable);
@@ -472,7 +538,12 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final Parcelable value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_PARCELABLE + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -504,8 +575,9 @@ public final class CacheDoubleUtils implements CacheConstants {
     public <T> T getParcelable(@NonNull final String key,
                                @NonNull final Parcelable.Creator<T> creator,
                                final T defaultValue) {
-        T value = mCacheMemoryUtils.get(key);
+        T value = getMemory(key, CacheDiskUtils.TYPE_PARCELABLE);
         if (value != null) return value;
+        if (isRemovePending(key)) return defaultValue;
         T val = mCacheDiskUtils.getParcelable(key, creator);
         if (val != null) {
             mCacheMemoryUtils.put(key, val);
@@ -541,7 +613,12 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final Serializable value, final int saveTime) {
         mCacheMemoryUtils.put(key, value, saveTime);
-        mCacheDiskUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_SERIALIZABLE + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, saveTime);
+            }
+        });
     }
 
     /**
@@ -566,8 +643,9 @@ public final class CacheDoubleUtils implements CacheConstants {
      * @return the bitmap if cache exists or defaultValue otherwise
      */
     public Object getSerializable(@NonNull final String key, final Object defaultValue) {
-        Object obj = mCacheMemoryUtils.get(key);
+        Object obj = getMemory(key, CacheDiskUtils.TYPE_SERIALIZABLE);
         if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
         Object serializable = mCacheDiskUtils.getSerializable(key);
         if (serializable != null) {
             mCacheMemoryUtils.put(key, serializable);
@@ -576,6 +654,82 @@ public final class CacheDoubleUtils implements CacheConstants {
         return defaultValue;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // about Object
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * 缓存中写入对象
+     * <p>
+     * Put object in cache, encoded by the serializer of {@link CacheSerializers#get(Class)}.
+     *
+     * @param key   The key of cache.
+     * @param value The value of cache.
+     * @param type  The type of value.
+     * @param <T>   The value type.
+     */
+    public <T> void put(@NonNull final String key, final T value, @NonNull final Class<T> type) {
+        put(key, value, type, -1);
+    }
+
+    /**
+     * 缓存中写入对象
+     * <p>
+     * Put object in cache, encoded by the serializer of {@link CacheSerializers#get(Class)}.
+     *
+     * @param key      The key of cache.
+     * @param value    The value of cache.
+     * @param type     The type of value.
+     * @param saveTime The save time of cache, in seconds.
+     * @param <T>      The value type.
+     */
+    public <T> void put(@NonNull final String key, final T value, @NonNull final Class<T> type, final int saveTime) {
+        mCacheMemoryUtils.put(key, value, saveTime);
+        putDisk(CacheDiskUtils.TYPE_OBJECT + key, value, saveTime, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.put(key, value, type, saveTime);
+            }
+        });
+    }
+
+    /**
+     * 缓存中读取对象
+     * <p>
+     * Return the object in cache.
+     *
+     * @param key  The key of cache.
+     * @param type The type of value.
+     * @param <T>  The value type.
+     * @return the object if cache exists or null otherwise
+     */
+    public <T> T get(@NonNull final String key, @NonNull final Class<T> type) {
+        return get(key, type, null);
+    }
+
+    /**
+     * 缓存中读取对象
+     * <p>
+     * Return the object in cache.
+     *
+     * @param key          The key of cache.
+     * @param type         The type of value.
+     * @param defaultValue The default value if the cache doesn't exist.
+     * @param <T>          The value type.
+     * @return the object if cache exists or defaultValue otherwise
+     */
+    public <T> T get(@NonNull final String key, @NonNull final Class<T> type, final T defaultValue) {
+        T obj = getMemory(key, CacheDiskUtils.TYPE_OBJECT);
+        if (obj != null) return obj;
+        if (isRemovePending(key)) return defaultValue;
+        T value = mCacheDiskUtils.get(key, type);
+        if (value != null) {
+            mCacheMemoryUtils.put(key, value);
+            return value;
+        }
+        return defaultValue;
+    }
+
     /**
      * 获取磁盘缓存大小
      * <p>
@@ -616,9 +770,14 @@ public final class CacheDoubleUtils implements CacheConstants {
      *
      * @param key The key of cache.
      */
-    public void remove(@NonNull String key) {
+    public void remove(@NonNull final String key) {
         mCacheMemoryUtils.remove(key);
-        mCacheDiskUtils.remove(key);
+        removeDisk(key, new Runnable() {
+            @Override
+            public void run() {
+                mCacheDiskUtils.remove(key);
+            }
+        });
     }
 
     /**
@@ -628,6 +787,253 @@ public final class CacheDoubleUtils implements CacheConstants {
      */
     public void clear() {
         mCacheMemoryUtils.clear();
-        mCacheDiskUtils.clear();
+        synchronized (mWriteLock) {
+            synchronized (mPendingWrites) {
+                mPendingWrites.clear();
+            }
+            mCacheDiskUtils.clear();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // about batch
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * 批量写入字节数据
+     * <p>
+     * Put all bytes in cache.
+     *
+     * @param values The values of cache.
+     */
+    public void putAll(@NonNull final Map<String, byte[]> values) {
+        putAll(values, -1);
+    }
+
+    /**
+     * 批量写入字节数据
+     * <p>
+     * Put all bytes in cache, the disk index is updated once for the whole batch
+     * unless write-behind is enabled.
+     *
+     * @param values   The values of cache.
+     * @param saveTime The save time of cache, in seconds.
+     */
+    public void putAll(@NonNull final Map<String, byte[]> values, final int saveTime) {
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            if (entry.getValue() == null) continue;
+            mCacheMemoryUtils.put(entry.getKey(), entry.getValue(), saveTime);
+        }
+        if (!mWriteBehind) {
+            mCacheDiskUtils.putAll(values, saveTime);
+            return;
+        }
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            if (entry.getValue() == null) continue;
+            put(entry.getKey(), entry.getValue(), saveTime);
+        }
+    }
+
+    /**
+     * 批量读取字节数组
+     * <p>
+     * Return all bytes in cache, the missing keys of memory are read from disk in one batch.
+     *
+     * @param keys The keys of cache.
+     * @return the key and bytes of the caches which exist
+     */
+    public Map<String, byte[]> getAll(@NonNull final Collection<String> keys) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        List<String> missKeys = new ArrayList<>();
+        for (String key : keys) {
+            byte[] obj = getMemory(key, CacheDiskUtils.TYPE_BYTE);
+            if (obj != null) {
+                result.put(key, obj);
+            } else if (!isRemovePending(key)) {
+                missKeys.add(key);
+            }
+        }
+        if (missKeys.isEmpty()) return result;
+        for (Map.Entry<String, byte[]> entry : mCacheDiskUtils.getAll(missKeys).entrySet()) {
+            mCacheMemoryUtils.put(entry.getKey(), entry.getValue());
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // about write-behind
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * 设置是否延后写入磁盘
+     * <p>
+     * Set whether to write disk cache on a background serial thread. Repeated writes of
+     * the same key are coalesced, and reads still see the latest value.
+     *
+     * @param writeBehind True to write disk cache in background, false otherwise.
+     * @return the single {@link CacheDoubleUtils} instance
+     */
+    public CacheDoubleUtils setWriteBehind(final boolean writeBehind) {
+        mWriteBehind = writeBehind;
+        if (!writeBehind) flush();
+        return this;
+    }
+
+    /**
+     * 将等待中的数据全部写入磁盘
+     * <p>
+     * Write all pending values to disk, blocking until finished.
+     */
+    public void flush() {
+        drainPendingWrites();
+    }
+
+    /**
+     * 写入磁盘
+     *
+     * @param diskKey 磁盘缓存中的键值（带有类型前缀，不同类型的数据分开合并）
+     */
+    private void putDisk(final String diskKey, final Object value, final int saveTime, final Runnable write) {
+        if (!mWriteBehind) {
+            write.run();
+            return;
+        }
+        enqueueWrite(diskKey, new PendingWrite(value, saveTime, write));
+    }
+
+    /**
+     * 删除磁盘中所有类型的数据
+     *
+     * @param key 缓存的键值（不带类型前缀）
+     */
+    private void removeDisk(final String key, final Runnable write) {
+        if (!mWriteBehind) {
+            write.run();
+            return;
+        }
+        synchronized (mPendingWrites) {
+            // 还没写入的数据会被一起删除，无需再写入
+            for (String type : DISK_TYPES) {
+                mPendingWrites.remove(type + key);
+            }
+        }
+        enqueueWrite(key, new PendingWrite(null, -1, write));
+    }
+
+    private void enqueueWrite(final String pendingKey, final PendingWrite pending) {
+        synchronized (mPendingWrites) {
+            // 重新放到队尾，同一个键值只写入最后一次
+            mPendingWrites.remove(pendingKey);
+            mPendingWrites.put(pendingKey, pending);
+            if (mDrainScheduled) return;
+            mDrainScheduled = true;
+        }
+        getWriteExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                drainPendingWrites();
+            }
+        });
+    }
+
+    private void drainPendingWrites() {
+        boolean drained = false;
+        try {
+            while (true) {
+                synchronized (mWriteLock) {
+                    Map.Entry<String, PendingWrite> entry;
+                    synchronized (mPendingWrites) {
+                        Iterator<Map.Entry<String, PendingWrite>> iterator = mPendingWrites.entrySet().iterator();
+                        if (!iterator.hasNext()) {
+                            mDrainScheduled = false;
+                            drained = true;
+                            return;
+                        }
+                        entry = iterator.next();
+                    }
+                    // 写入完成之前保留在队列中，读取时内存没有命中也能拿到最新的值
+                    try {
+                        entry.getValue().write.run();
+                    } catch (RuntimeException e) {
+                        // 丢弃写入失败的数据，不影响队列中的其他数据
+                        Log.e("CacheDoubleUtils", "can't write " + entry.getKey() + " to disk", e);
+                    }
+                    synchronized (mPendingWrites) {
+                        if (mPendingWrites.get(entry.getKey()) == entry.getValue()) {
+                            mPendingWrites.remove(entry.getKey());
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (!drained) {
+                // 意外退出时允许下一次写入重新调度
+                synchronized (mPendingWrites) {
+                    mDrainScheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 内存中读取，没有命中时读取等待写入磁盘的数据
+     *
+     * @param type 磁盘缓存中的类型前缀
+     */
+    private <T> T getMemory(final String key, final String type) {
+        T value = mCacheMemoryUtils.get(key);
+        if (value != null) return value;
+        synchronized (mPendingWrites) {
+            PendingWrite pending = mPendingWrites.get(type + key);
+            if (pending == null || pending.isDue()) return null;
+            //noinspection unchecked
+            return (T) pending.value;
+        }
+    }
+
+    /**
+     * 是否有等待执行的磁盘删除，此时磁盘中的数据已经过时
+     */
+    private boolean isRemovePending(final String key) {
+        synchronized (mPendingWrites) {
+            PendingWrite pending = mPendingWrites.get(key);
+            return pending != null && pending.value == null;
+        }
+    }
+
+    private static ExecutorService getWriteExecutor() {
+        synchronized (CacheDoubleUtils.class) {
+            if (sWriteExecutor == null) {
+                sWriteExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable r) {
+                        Thread thread = new Thread(r, "cache-write-behind");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+            }
+            return sWriteExecutor;
+        }
+    }
+
+    private static final class PendingWrite {
+
+        /** 写入的值，为空表示删除 */
+        final Object value;
+        final long dueTime;
+        final Runnable write;
+
+        PendingWrite(Object value, int saveTime, Runnable write) {
+            this.value = value;
+            this.dueTime = saveTime < 0 ? -1 : System.currentTimeMillis() + saveTime * 1000L;
+            this.write = write;
+        }
+
+        boolean isDue() {
+            return dueTime != -1 && dueTime < System.currentTimeMillis();
+        }
     }
 }
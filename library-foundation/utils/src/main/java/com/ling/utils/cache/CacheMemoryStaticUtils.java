@@ -48,6 +48,20 @@ public final class CacheMemoryStaticUtils {
         put(key, value, saveTime, getDefaultCacheMemoryUtils());
     }
 
+    /**
+     * 缓存中写入数据，按字节计算容量时使用调用者给出的大小
+     * <p>
+     * Put value in cache, the weighted cache uses the given size instead of estimating it.
+     *
+     * @param key      The key of cache.
+     * @param value    The value of cache.
+     * @param saveTime The save time of cache, in seconds.
+     * @param size     The size of value, in bytes.
+     */
+    public static void put(@NonNull final String key, final Object value, int saveTime, int size) {
+        put(key, value, saveTime, size, getDefaultCacheMemoryUtils());
+    }
+
     /**
      * 缓存中读取字节数组
      * <p>
@@ -143,6 +157,25 @@ public final class CacheMemoryStaticUtils {
         cacheMemoryUtils.put(key, value, saveTime);
     }
 
+    /**
+     * 缓存中写入数据，按字节计算容量时使用调用者给出的大小
+     * <p>
+     * Put value in cache, the weighted cache uses the given size instead of estimating it.
+     *
+     * @param key              The key of cache.
+     * @param value            The value of cache.
+     * @param saveTime         The save time of cache, in seconds.
+     * @param size             The size of value, in bytes.
+     * @param cacheMemoryUtils The instance of {@link CacheMemoryUtils}.
+     */
+    public static void put(@NonNull final String key,
+                           final Object value,
+                           int saveTime,
+                           int size,
+                           @NonNull final CacheMemoryUtils cacheMemoryUtils) {
+        cacheMemoryUtils.put(key, value, saveTime, size);
+    }
+
     /**
      * 缓存中读取字节数组
      * <p>
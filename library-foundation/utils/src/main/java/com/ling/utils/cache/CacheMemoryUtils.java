@@ -1,10 +1,22 @@
 package com.ling.utils.cache;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
 import androidx.annotation.NonNull;
 import androidx.collection.LruCache;
 
+import com.ling.utils.Utils;
 import com.ling.utils.constant.CacheConstants;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,11 +29,23 @@ import java.util.Map;
 public final class CacheMemoryUtils implements CacheConstants {
 
     private static final int DEFAULT_MAX_COUNT = 256;
+    /** 按字节计算时默认使用应用可用内存的 1/8 */
+    private static final int DEFAULT_MEMORY_FRACTION = 8;
+    /** 无法估算大小的对象按这个大小计算 */
+    private static final int DEFAULT_VALUE_SIZE = 64;
+    /** JSONObject 每个键值对、JSONArray 每个元素按这个大小估算 */
+    private static final int JSON_ENTRY_SIZE = 64;
 
     private static final Map<String, CacheMemoryUtils> CACHE_MAP = new HashMap<>();
 
+    private static boolean sTrimRegistered;
+
     private final String mCacheKey;
     private final LruCache<String, CacheValue> mMemoryCache;
+    /** 并发缓存，不为空时代替 {@link #mMemoryCache} */
+    private final ConcurrentMemoryCache mConcurrentCache;
+    /** 是否按字节大小计算缓存容量 */
+    private final boolean mWeighted;
 
     /**
      * 获取缓存实例
@@ -56,22 +80,155 @@ public final class CacheMemoryUtils implements CacheConstants {
      * @return the single {@link CacheMemoryUtils} instance
      */
     public static CacheMemoryUtils getInstance(final String cacheKey, final int maxCount) {
+        return getInstance(cacheKey, maxCount, false);
+    }
+
+    /**
+     * 获取缓存实例
+     * <p>
+     * Return the single {@link CacheMemoryUtils} instance.
+     * <p>A concurrent cache is split into independently locked segments and
+     * expires entries proactively by their save time.</p>
+     *
+     * @param cacheKey   The key of cache.
+     * @param maxCount   The max count of cache.
+     * @param concurrent True to use the concurrent cache, false otherwise.
+     * @return the single {@link CacheMemoryUtils} instance
+     */
+    public static CacheMemoryUtils getInstance(final String cacheKey, final int maxCount, final boolean concurrent) {
+        return getInstance(cacheKey, maxCount, false, concurrent);
+    }
+
+    /**
+     * 获取按字节计算容量的缓存实例
+     * <p>
+     * Return the single {@link CacheMemoryUtils} instance which is sized by bytes.
+     * <p>cache size: 1/8 of {@link ActivityManager#getMemoryClass()}</p>
+     *
+     * @return the single {@link CacheMemoryUtils} instance
+     */
+    public static CacheMemoryUtils getWeightedInstance() {
+        ActivityManager am = (ActivityManager) Utils.getApp().getSystemService(Context.ACTIVITY_SERVICE);
+        int maxSize = am.getMemoryClass() * 1024 * 1024 / DEFAULT_MEMORY_FRACTION;
+        return getWeightedInstance("weighted_" + maxSize, maxSize);
+    }
+
+    /**
+     * 获取按字节计算容量的缓存实例
+     * <p>
+     * Return the single {@link CacheMemoryUtils} instance which is sized by bytes,
+     * it will be trimmed automatically when {@link ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param cacheKey The key of cache.
+     * @param maxSize  The max size of cache, in bytes.
+     * @return the single {@link CacheMemoryUtils} instance
+     */
+    public static CacheMemoryUtils getWeightedInstance(final String cacheKey, final int maxSize) {
+        return getWeightedInstance(cacheKey, maxSize, false);
+    }
+
+    /**
+     * 获取按字节计算容量的缓存实例
+     * <p>
+     * Return the single {@link CacheMemoryUtils} instance which is sized by bytes,
+     * it will be trimmed automatically when {@link ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param cacheKey   The key of cache.
+     * @param maxSize    The max size of cache, in bytes.
+     * @param concurrent True to use the concurrent cache, false otherwise.
+     * @return the single {@link CacheMemoryUtils} instance
+     */
+    public static CacheMemoryUtils getWeightedInstance(final String cacheKey, final int maxSize, final boolean concurrent) {
+        return getInstance(cacheKey, maxSize, true, concurrent);
+    }
+
+    private static CacheMemoryUtils getInstance(final String cacheKey, final int maxSize,
+                                                final boolean weighted, final boolean concurrent) {
         CacheMemoryUtils cache = CACHE_MAP.get(cacheKey);
         if (cache == null) {
             synchronized (CacheMemoryUtils.class) {
                 cache = CACHE_MAP.get(cacheKey);
                 if (cache == null) {
-                    cache = new CacheMemoryUtils(cacheKey, new LruCache<String, CacheValue>(maxCount));
+                    cache = new CacheMemoryUtils(cacheKey, maxSize, weighted, concurrent);
                     CACHE_MAP.put(cacheKey, cache);
+                    if (weighted) registerTrimCallbacks();
                 }
             }
         }
         return cache;
     }
 
-    private CacheMemoryUtils(String cacheKey, LruCache<String, CacheValue> memoryCache) {
+    private CacheMemoryUtils(String cacheKey, int maxSize, boolean weighted, boolean concurrent) {
         mCacheKey = cacheKey;
-        mMemoryCache = memoryCache;
+        mWeighted = weighted;
+        if (concurrent) {
+            mMemoryCache = null;
+            mConcurrentCache = new ConcurrentMemoryCache(maxSize);
+        } else if (weighted) {
+            mMemoryCache = new LruCache<String, CacheValue>(maxSize) {
+                @Override
+                protected int sizeOf(@NonNull String key, @NonNull CacheValue value) {
+                    return value.size;
+                }
+            };
+            mConcurrentCache = null;
+        } else {
+            mMemoryCache = new LruCache<>(maxSize);
+            mConcurrentCache = null;
+        }
+    }
+
+    /**
+     * 注册内存不足的回调，按照系统给出的级别裁剪按字节计算容量的缓存
+     */
+    private static void registerTrimCallbacks() {
+        if (sTrimRegistered) return;
+        sTrimRegistered = true;
+        Utils.getApp().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimWeightedCaches(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+
+            @Override
+            public void onLowMemory() {
+                trimWeightedCaches(TRIM_MEMORY_COMPLETE);
+            }
+        });
+    }
+
+    private static void trimWeightedCaches(final int level) {
+        CacheMemoryUtils[] caches;
+        synchronized (CacheMemoryUtils.class) {
+            caches = CACHE_MAP.values().toArray(new CacheMemoryUtils[0]);
+        }
+        for (CacheMemoryUtils cache : caches) {
+            if (cache.mWeighted) cache.trimMemory(level);
+        }
+    }
+
+    /**
+     * 根据内存不足的级别裁剪缓存
+     * <p>
+     * Trim the cache by the level of {@link ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param level The level of trim memory.
+     */
+    public void trimMemory(final int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // 应用已经在后台的 LRU 列表中，随时可能被杀死
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            if (mConcurrentCache != null) {
+                mConcurrentCache.trimToSize(mConcurrentCache.maxSize() / 2);
+            } else {
+                mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+            }
+        }
     }
 
     @Override
@@ -102,8 +259,32 @@ public final class CacheMemoryUtils implements CacheConstants {
      */
     public void put(@NonNull final String key, final Object value, int saveTime) {
         if (value == null) return;
+        realPut(key, value, saveTime, mWeighted ? sizeOf(value) : 1);
+    }
+
+    /**
+     * 缓存中写入数据，按字节计算容量时使用调用者给出的大小
+     * <p>
+     * Put value in cache, the weighted cache uses the given size instead of estimating it.
+     *
+     * @param key      The key of cache.
+     * @param value    The value of cache.
+     * @param saveTime The save time of cache, in seconds.
+     * @param size     The size of value, in bytes.
+     */
+    public void put(@NonNull final String key, final Object value, int saveTime, int size) {
+        if (size < 0) throw new IllegalArgumentException("size < 0");
+        if (value == null) return;
+        realPut(key, value, saveTime, mWeighted ? size : 1);
+    }
+
+    private void realPut(final String key, final Object value, final int saveTime, final int size) {
         long dueTime = saveTime < 0 ? -1 : System.currentTimeMillis() + saveTime * 1000;
-        mMemoryCache.put(key, new CacheValue(dueTime, value));
+        if (mConcurrentCache != null) {
+            mConcurrentCache.put(key, value, dueTime, size);
+            return;
+        }
+        mMemoryCache.put(key, new CacheValue(dueTime, value, size));
     }
 
     /**
@@ -130,6 +311,11 @@ public final class CacheMemoryUtils implements CacheConstants {
      * @return the value if cache exists or defaultValue otherwise
      */
     public <T> T get(@NonNull final String key, final T defaultValue) {
+        if (mConcurrentCache != null) {
+            Object value = mConcurrentCache.get(key);
+            //noinspection unchecked
+            return value == null ? defaultValue : (T) value;
+        }
         CacheValue val = mMemoryCache.get(key);
         if (val == null) return defaultValue;
         if (val.dueTime == -1 || val.dueTime >= System.currentTimeMillis()) {
@@ -148,6 +334,20 @@ public final class CacheMemoryUtils implements CacheConstants {
      * @return the count of cache
      */
     public int getCacheCount() {
+        if (mConcurrentCache != null) return mConcurrentCache.count();
+        if (mWeighted) return mMemoryCache.snapshot().size();
+        return mMemoryCache.size();
+    }
+
+    /**
+     * 获取缓存大小
+     * <p>
+     * Return the size of cache, in bytes if it's weighted, or the count otherwise.
+     *
+     * @return the size of cache
+     */
+    public int getCacheSize() {
+        if (mConcurrentCache != null) return mConcurrentCache.size();
         return mMemoryCache.size();
     }
 
@@ -160,6 +360,7 @@ public final class CacheMemoryUtils implements CacheConstants {
      * @return {@code true}: success<br>{@code false}: fail
      */
     public Object remove(@NonNull final String key) {
+        if (mConcurrentCache != null) return mConcurrentCache.remove(key);
         CacheValue remove = mMemoryCache.remove(key);
         if (remove == null) return null;
         return remove.value;
@@ -171,17 +372,53 @@ public final class CacheMemoryUtils implements CacheConstants {
      * Clear all of the cache.
      */
     public void clear() {
+        if (mConcurrentCache != null) {
+            mConcurrentCache.clear();
+            return;
+        }
         mMemoryCache.evictAll();
     }
 
+    /**
+     * 估算对象占用的内存大小，只读取已有的长度，不会遍历或者序列化对象
+     *
+     * @param value 缓存的对象
+     * @return 估算的字节数
+     */
+    private static int sizeOf(final Object value) {
+        if (value instanceof Bitmap) {
+            return ((Bitmap) value).getAllocationByteCount();
+        } else if (value instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) value).getBitmap();
+            if (bitmap != null) return bitmap.getAllocationByteCount();
+        } else if (value instanceof Drawable) {
+            Drawable drawable = (Drawable) value;
+            int size = drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * 4;
+            if (size > 0) return size;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof CharSequence) {
+            return 40 + ((CharSequence) value).length() * 2;
+        } else if (value instanceof JSONObject) {
+            // 嵌套的对象不计算在内，需要准确的大小时使用 put(key, value, saveTime, size)
+            return 40 + ((JSONObject) value).length() * JSON_ENTRY_SIZE;
+        } else if (value instanceof JSONArray) {
+            return 40 + ((JSONArray) value).length() * JSON_ENTRY_SIZE;
+        }
+        return DEFAULT_VALUE_SIZE;
+    }
+
     private static final class CacheValue {
 
         long dueTime;
         Object value;
+        /** 占用的容量，按字节计算时为字节数，否则为 1 */
+        int size;
 
-        CacheValue(long dueTime, Object value) {
+        CacheValue(long dueTime, Object value, int size) {
             this.dueTime = dueTime;
             this.value = value;
+            this.size = size;
         }
     }
 }
@@ -0,0 +1,32 @@
+package com.ling.utils.cache;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : 缓存对象的序列化接口，通过 {@link CacheSerializers#register(Class, CacheSerializer)} 按类型注册
+ */
+public interface CacheSerializer<T> {
+
+    /**
+     * 将对象编码成字节
+     *
+     * @param value 缓存的对象
+     * @return 编码后的字节
+     */
+    @NonNull
+    byte[] encode(@NonNull T value) throws IOException;
+
+    /**
+     * 将字节解码成对象
+     *
+     * @param buffer 只读的数据视图，较大的数据是内存映射，不要持有它
+     * @return 解码后的对象
+     */
+    T decode(@NonNull ByteBuffer buffer) throws IOException;
+}
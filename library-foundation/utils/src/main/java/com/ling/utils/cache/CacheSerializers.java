@@ -0,0 +1,354 @@
+package com.ling.utils.cache;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.ling.utils.parse.GsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : 缓存对象的序列化器注册表以及内置的序列化器
+ * <p>
+ * 基本类型使用 varint 等紧凑编码，Bitmap 直接保存像素数据，其他没有注册的类型使用 Gson 流式读写，
+ * 都不再经过 Java 序列化。
+ */
+public final class CacheSerializers {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Map<Class<?>, CacheSerializer<?>> SERIALIZERS = new ConcurrentHashMap<>();
+
+    /** 整数，zigzag + varint 编码 */
+    public static final CacheSerializer<Integer> INT = new CacheSerializer<Integer>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull Integer value) {
+            return writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public Integer decode(@NonNull ByteBuffer buffer) throws IOException {
+            int value = (int) readVarLong(buffer);
+            return (value >>> 1) ^ -(value & 1);
+        }
+    };
+
+    /** 长整数，zigzag + varint 编码 */
+    public static final CacheSerializer<Long> LONG = new CacheSerializer<Long>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull Long value) {
+            return writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        @Override
+        public Long decode(@NonNull ByteBuffer buffer) throws IOException {
+            long value = readVarLong(buffer);
+            return (value >>> 1) ^ -(value & 1);
+        }
+    };
+
+    /** 布尔值，1 个字节 */
+    public static final CacheSerializer<Boolean> BOOLEAN = new CacheSerializer<Boolean>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull Boolean value) {
+            return new byte[]{(byte) (value ? 1 : 0)};
+        }
+
+        @Override
+        public Boolean decode(@NonNull ByteBuffer buffer) {
+            return buffer.get(buffer.position()) != 0;
+        }
+    };
+
+    /** 单精度浮点数，4 个字节 */
+    public static final CacheSerializer<Float> FLOAT = new CacheSerializer<Float>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull Float value) {
+            return ByteBuffer.allocate(4).putFloat(value).array();
+        }
+
+        @Override
+        public Float decode(@NonNull ByteBuffer buffer) {
+            return buffer.getFloat(buffer.position());
+        }
+    };
+
+    /** 双精度浮点数，8 个字节 */
+    public static final CacheSerializer<Double> DOUBLE = new CacheSerializer<Double>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull Double value) {
+            return ByteBuffer.allocate(8).putDouble(value).array();
+        }
+
+        @Override
+        public Double decode(@NonNull ByteBuffer buffer) {
+            return buffer.getDouble(buffer.position());
+        }
+    };
+
+    /** 字符串，UTF-8 编码 */
+    public static final CacheSerializer<String> STRING = new CacheSerializer<String>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull String value) {
+            return value.getBytes(UTF_8);
+        }
+
+        @Override
+        public String decode(@NonNull ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), UTF_8);
+            }
+            return UTF_8.decode(buffer.duplicate()).toString();
+        }
+    };
+
+    /**
+     * Bitmap 原始像素数据：宽(4) + 高(4) + 格式(1) + 像素
+     * <p>
+     * 不需要压缩和解码，读写速度最快，但是占用的磁盘空间和内存一样大
+     */
+    public static final CacheSerializer<Bitmap> BITMAP_RAW = new CacheSerializer<Bitmap>() {
+        @NonNull
+        @Override
+        public byte[] encode(@NonNull Bitmap value) {
+            Bitmap bitmap = value;
+            int config = getConfigCode(bitmap.getConfig());
+            if (config == 0) {
+                // 硬件位图等无法直接读取像素的格式
+                bitmap = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+                config = getConfigCode(Bitmap.Config.ARGB_8888);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(9 + bitmap.getByteCount());
+            buffer.putInt(bitmap.getWidth()).putInt(bitmap.getHeight()).put((byte) config);
+            bitmap.copyPixelsToBuffer(buffer);
+            return buffer.array();
+        }
+
+        @Override
+        public Bitmap decode(@NonNull ByteBuffer buffer) throws IOException {
+            ByteBuffer source = buffer.duplicate();
+            int width = source.getInt();
+            int height = source.getInt();
+            Bitmap.Config config = getConfig(source.get());
+            if (config == null || width <= 0 || height <= 0) {
+                throw new IOException("unexpected bitmap header");
+            }
+            Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+            bitmap.copyPixelsFromBuffer(source.slice());
+            return bitmap;
+        }
+    };
+
+    static {
+        register(Integer.class, INT);
+        register(int.class, INT);
+        register(Long.class, LONG);
+        register(long.class, LONG);
+        register(Boolean.class, BOOLEAN);
+        register(boolean.class, BOOLEAN);
+        register(Float.class, FLOAT);
+        register(float.class, FLOAT);
+        register(Double.class, DOUBLE);
+        register(double.class, DOUBLE);
+        register(String.class, STRING);
+        register(Bitmap.class, BITMAP_RAW);
+    }
+
+    private CacheSerializers() {
+        throw new UnsupportedOperationException("u can't instantiate me...");
+    }
+
+    /**
+     * 注册类型的序列化器
+     * <p>
+     * Register the serializer of type, it replaces the one registered before.
+     *
+     * @param type       The type of value.
+     * @param serializer The serializer.
+     * @param <T>        The value type.
+     */
+    public static <T> void register(@NonNull final Class<T> type, @NonNull final CacheSerializer<T> serializer) {
+        SERIALIZERS.put(type, serializer);
+    }
+
+    /**
+     * 获取类型的序列化器
+     * <p>
+     * Return the serializer of type, uses {@link #gson(Type)} if it isn't registered.
+     *
+     * @param type The type of value.
+     * @param <T>  The value type.
+     * @return the serializer of type
+     */
+    @NonNull
+    public static <T> CacheSerializer<T> get(@NonNull final Class<T> type) {
+        CacheSerializer<?> serializer = SERIALIZERS.get(type);
+        if (serializer == null) {
+            serializer = gson(type);
+            SERIALIZERS.put(type, serializer);
+        }
+        //noinspection unchecked
+        return (CacheSerializer<T>) serializer;
+    }
+
+    /**
+     * 使用 Gson 流式读写的序列化器
+     * <p>
+     * Return the serializer which streams json by {@link GsonUtils#getGson()}.
+     *
+     * @param type The type of value.
+     * @param <T>  The value type.
+     * @return the serializer
+     */
+    @NonNull
+    public static <T> CacheSerializer<T> gson(@NonNull final Type type) {
+        return new CacheSerializer<T>() {
+            @NonNull
+            @Override
+            public byte[] encode(@NonNull T value) throws IOException {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                Writer writer = new OutputStreamWriter(baos, UTF_8);
+                GsonUtils.getGson().toJson(value, type, writer);
+                writer.flush();
+                return baos.toByteArray();
+            }
+
+            @Override
+            public T decode(@NonNull ByteBuffer buffer) {
+                Gson gson = GsonUtils.getGson();
+                Reader reader = new InputStreamReader(new ByteBufferInputStream(buffer.duplicate()), UTF_8);
+                return gson.fromJson(reader, type);
+            }
+        };
+    }
+
+    /**
+     * 使用 WebP 压缩的 Bitmap 序列化器
+     * <p>
+     * Return the serializer which compresses bitmap to WebP, smaller than {@link #BITMAP_RAW} but slower.
+     *
+     * @param quality The quality of WebP, 0 ~ 100.
+     * @return the serializer
+     */
+    @NonNull
+    public static CacheSerializer<Bitmap> webp(final int quality) {
+        return new CacheSerializer<Bitmap>() {
+            @NonNull
+            @Override
+            @SuppressWarnings("deprecation")
+            public byte[] encode(@NonNull Bitmap value) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                value.compress(Bitmap.CompressFormat.WEBP, quality, baos);
+                return baos.toByteArray();
+            }
+
+            @Override
+            public Bitmap decode(@NonNull ByteBuffer buffer) throws IOException {
+                Bitmap bitmap;
+                if (buffer.hasArray()) {
+                    bitmap = BitmapFactory.decodeByteArray(buffer.array(),
+                            buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                } else {
+                    bitmap = BitmapFactory.decodeStream(new ByteBufferInputStream(buffer.duplicate()));
+                }
+                if (bitmap == null) throw new IOException("can't decode bitmap");
+                return bitmap;
+            }
+        };
+    }
+
+    private static byte[] writeVarLong(long value) {
+        byte[] bytes = new byte[10];
+        int count = 0;
+        while ((value & ~0x7FL) != 0) {
+            bytes[count++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[count++] = (byte) value;
+        byte[] result = new byte[count];
+        System.arraycopy(bytes, 0, result, 0, count);
+        return result;
+    }
+
+    private static long readVarLong(final ByteBuffer buffer) throws IOException {
+        long value = 0;
+        int position = buffer.position();
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= buffer.limit()) break;
+            byte b = buffer.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static int getConfigCode(final Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) return 1;
+        if (config == Bitmap.Config.RGB_565) return 2;
+        if (config == Bitmap.Config.ALPHA_8) return 3;
+        return 0;
+    }
+
+    private static Bitmap.Config getConfig(final int code) {
+        switch (code) {
+            case 1:
+                return Bitmap.Config.ARGB_8888;
+            case 2:
+                return Bitmap.Config.RGB_565;
+            case 3:
+                return Bitmap.Config.ALPHA_8;
+            default:
+                return null;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) {
+            if (!mBuffer.hasRemaining()) return -1;
+            int count = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
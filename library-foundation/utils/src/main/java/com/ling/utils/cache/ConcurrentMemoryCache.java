@@ -0,0 +1,415 @@
+package com.ling.utils.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : 分段加锁的并发内存缓存
+ * <p>
+ * 键值按哈希分到多个段中，每个段是一个独立加锁的 LRU，不同段的读写互不阻塞；
+ * 容量按所有段的总和计算，超出时淘汰各段中最久未访问的条目，单个条目可以超过平均每段的容量；
+ * 带有到期时间的条目登记在分层时间轮中，时间轮在读写时顺带推进，到期的条目会被主动移除，不会一直占用容量。
+ */
+final class ConcurrentMemoryCache {
+
+    private static final int MAX_SEGMENT_COUNT = 16;
+
+    private final Segment[] mSegments;
+    private final int mSegmentMask;
+    private final int mMaxSize;
+    /** 所有段的总容量，在段锁中修改 */
+    private final AtomicInteger mTotalSize = new AtomicInteger();
+
+    private final TimerWheel mTimerWheel = new TimerWheel();
+    private final ReentrantLock mWheelLock = new ReentrantLock();
+
+    ConcurrentMemoryCache(final int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+        int segmentCount = Integer.highestOneBit(Math.min(MAX_SEGMENT_COUNT, maxSize));
+        mSegments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            mSegments[i] = new Segment(mTotalSize);
+        }
+        mSegmentMask = segmentCount - 1;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 键值
+     * @return 缓存的对象，不存在或者已经到期返回 null
+     */
+    Object get(final String key) {
+        long now = System.currentTimeMillis();
+        Segment segment = segmentFor(key);
+        Node node;
+        boolean due = false;
+        synchronized (segment) {
+            node = segment.get(key);
+            if (node != null && node.isDue(now)) {
+                segment.removeNode(node);
+                due = true;
+            }
+        }
+        if (due) unschedule(node);
+        // 不能在持有段锁时推进时间轮，推进时需要获取其他段的锁
+        expireIfNeeded(now);
+        return node == null || due ? null : node.value;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key     键值
+     * @param value   对象
+     * @param dueTime 到期时间，-1 表示永久
+     * @param size    占用的容量
+     */
+    void put(final String key, final Object value, final long dueTime, final int size) {
+        Node node = new Node(key, value, dueTime, size);
+        Segment segment = segmentFor(key);
+        Node old;
+        synchronized (segment) {
+            old = segment.put(node);
+        }
+        if (old != null) unschedule(old);
+        evict(mMaxSize);
+        if (dueTime != -1 && !node.removed) {
+            mWheelLock.lock();
+            try {
+                if (!node.removed) mTimerWheel.schedule(node);
+            } finally {
+                mWheelLock.unlock();
+            }
+        }
+        expireIfNeeded(System.currentTimeMillis());
+    }
+
+    /**
+     * 移除缓存
+     *
+     * @param key 键值
+     * @return 被移除的对象
+     */
+    Object remove(final String key) {
+        Segment segment = segmentFor(key);
+        Node node;
+        synchronized (segment) {
+            node = segment.map.get(key);
+            if (node == null) return null;
+            segment.removeNode(node);
+        }
+        unschedule(node);
+        return node.value;
+    }
+
+    void clear() {
+        for (Segment segment : mSegments) {
+            List<Node> removed = new ArrayList<>();
+            synchronized (segment) {
+                segment.clear(removed);
+            }
+            for (Node node : removed) {
+                unschedule(node);
+            }
+        }
+    }
+
+    /**
+     * 裁剪到指定的总容量
+     *
+     * @param maxSize 裁剪后的总容量
+     */
+    void trimToSize(final int maxSize) {
+        evict(maxSize);
+    }
+
+    int maxSize() {
+        return mMaxSize;
+    }
+
+    int size() {
+        expireIfNeeded(System.currentTimeMillis());
+        return mTotalSize.get();
+    }
+
+    int count() {
+        expireIfNeeded(System.currentTimeMillis());
+        int count = 0;
+        for (Segment segment : mSegments) {
+            synchronized (segment) {
+                count += segment.map.size();
+            }
+        }
+        return count;
+    }
+
+    private Segment segmentFor(final String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return mSegments[h & mSegmentMask];
+    }
+
+    /**
+     * 总容量超出时，每次淘汰所有段中最久未访问的条目，直到不超过指定的容量
+     */
+    private void evict(final int maxSize) {
+        while (mTotalSize.get() > maxSize) {
+            Segment victim = null;
+            long eldestTime = Long.MAX_VALUE;
+            for (Segment segment : mSegments) {
+                long time = segment.eldestTime;
+                if (time < eldestTime) {
+                    eldestTime = time;
+                    victim = segment;
+                }
+            }
+            if (victim == null) return;
+            Node node;
+            synchronized (victim) {
+                // 其他线程可能已经淘汰过了
+                if (mTotalSize.get() <= maxSize) return;
+                node = victim.removeEldest();
+            }
+            if (node != null) unschedule(node);
+        }
+    }
+
+    private void unschedule(final Node node) {
+        if (node.dueTime == -1) return;
+        mWheelLock.lock();
+        try {
+            mTimerWheel.deschedule(node);
+        } finally {
+            mWheelLock.unlock();
+        }
+    }
+
+    /**
+     * 推进时间轮并移除到期的条目，其他线程正在推进时直接跳过
+     */
+    private void expireIfNeeded(final long now) {
+        if (now < mTimerWheel.nextTickTime) return;
+        if (!mWheelLock.tryLock()) return;
+        List<Node> expired;
+        try {
+            expired = mTimerWheel.advance(now);
+        } finally {
+            mWheelLock.unlock();
+        }
+        for (Node node : expired) {
+            Segment segment = segmentFor(node.key);
+            synchronized (segment) {
+                if (segment.map.get(node.key) == node) {
+                    segment.removeNode(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * 段，除了 {@link #eldestTime} 以外都只在持有段锁时访问
+     */
+    private static final class Segment {
+
+        /** 按访问顺序排列，最久未使用的在最前面 */
+        final LinkedHashMap<String, Node> map = new LinkedHashMap<>(16, 0.75f, true);
+        final AtomicInteger totalSize;
+        /** 段中最久未访问的条目的访问时间，段为空时是 Long.MAX_VALUE，淘汰时不加锁读取用于挑选段 */
+        volatile long eldestTime = Long.MAX_VALUE;
+
+        Segment(AtomicInteger totalSize) {
+            this.totalSize = totalSize;
+        }
+
+        Node get(final String key) {
+            Node node = map.get(key);
+            if (node != null) {
+                node.accessTime = System.nanoTime();
+                updateEldestTime();
+            }
+            return node;
+        }
+
+        /**
+         * 写入条目
+         *
+         * @return 被替换的条目
+         */
+        Node put(final Node node) {
+            Node old = map.put(node.key, node);
+            int delta = node.size;
+            if (old != null) {
+                old.removed = true;
+                delta -= old.size;
+            }
+            totalSize.addAndGet(delta);
+            updateEldestTime();
+            return old;
+        }
+
+        void removeNode(final Node node) {
+            map.remove(node.key);
+            totalSize.addAndGet(-node.size);
+            node.removed = true;
+            updateEldestTime();
+        }
+
+        Node removeEldest() {
+            if (map.isEmpty()) return null;
+            Node node = map.values().iterator().next();
+            removeNode(node);
+            return node;
+        }
+
+        void clear(final List<Node> removed) {
+            Iterator<Map.Entry<String, Node>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Node node = iterator.next().getValue();
+                iterator.remove();
+                totalSize.addAndGet(-node.size);
+                node.removed = true;
+                removed.add(node);
+            }
+            eldestTime = Long.MAX_VALUE;
+        }
+
+        private void updateEldestTime() {
+            eldestTime = map.isEmpty() ? Long.MAX_VALUE : map.values().iterator().next().accessTime;
+        }
+    }
+
+    private static final class Node {
+
+        final String key;
+        final Object value;
+        final long dueTime;
+        final int size;
+        volatile boolean removed;
+        /** 最近一次访问的时间，只在持有段锁时访问 */
+        long accessTime = System.nanoTime();
+
+        /** 时间轮中的前后节点，只在持有时间轮锁时访问 */
+        Node prev;
+        Node next;
+
+        Node(String key, Object value, long dueTime, int size) {
+            this.key = key;
+            this.value = value;
+            this.dueTime = dueTime;
+            this.size = size;
+        }
+
+        boolean isDue(final long now) {
+            return dueTime != -1 && dueTime < now;
+        }
+    }
+
+    /**
+     * 分层时间轮
+     * <p>
+     * 共 4 层，每层 64 个桶，每个桶的跨度依次约为 1 秒、1 分钟、1 小时、3 天；
+     * 推进时依次处理每一层经过的桶，到期的条目取出，没有到期的重新放到更精确的层中。
+     */
+    private static final class TimerWheel {
+
+        private static final int BUCKET_COUNT = 64;
+        private static final int[] SHIFT = {10, 16, 22, 28};
+
+        private final Node[][] mWheel = new Node[SHIFT.length][BUCKET_COUNT];
+
+        private long mTime = System.currentTimeMillis();
+        /** 下一次需要推进的时间，没到时间的读写不需要获取锁 */
+        volatile long nextTickTime = mTime + (1L << SHIFT[0]);
+
+        TimerWheel() {
+            for (Node[] buckets : mWheel) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    Node sentinel = new Node(null, null, -1, 0);
+                    sentinel.prev = sentinel;
+                    sentinel.next = sentinel;
+                    buckets[i] = sentinel;
+                }
+            }
+        }
+
+        void schedule(final Node node) {
+            Node sentinel = findBucket(node.dueTime);
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+        }
+
+        void deschedule(final Node node) {
+            if (node.next == null) return;
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+
+        List<Node> advance(final long now) {
+            List<Node> expired = new ArrayList<>();
+            long previousTime = mTime;
+            mTime = now;
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previousTime >>> SHIFT[i];
+                long currentTicks = now >>> SHIFT[i];
+                if (currentTicks - previousTicks <= 0) break;
+                expire(i, previousTicks, currentTicks, now, expired);
+            }
+            nextTickTime = ((now >>> SHIFT[0]) + 1) << SHIFT[0];
+            return expired;
+        }
+
+        private void expire(final int level, final long previousTicks, final long currentTicks,
+                            final long now, final List<Node> expired) {
+            Node[] buckets = mWheel[level];
+            long delta = Math.min(currentTicks - previousTicks, BUCKET_COUNT);
+            for (long ticks = previousTicks + 1; ticks <= previousTicks + delta; ticks++) {
+                Node sentinel = buckets[(int) (ticks & (BUCKET_COUNT - 1))];
+                Node node = sentinel.next;
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                while (node != sentinel) {
+                    Node next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    if (node.removed) {
+                        // 已经从缓存中移除，丢弃即可
+                    } else if (node.dueTime <= now) {
+                        expired.add(node);
+                    } else {
+                        schedule(node);
+                    }
+                    node = next;
+                }
+            }
+        }
+
+        private Node findBucket(final long dueTime) {
+            long duration = dueTime - mTime;
+            int length = SHIFT.length;
+            for (int i = 0; i < length - 1; i++) {
+                if (duration < (1L << SHIFT[i + 1])) {
+                    // 当前桶已经处理过，至少放到下一个桶中
+                    long ticks = Math.max(dueTime >>> SHIFT[i], (mTime >>> SHIFT[i]) + 1);
+                    return mWheel[i][(int) (ticks & (BUCKET_COUNT - 1))];
+                }
+            }
+            // 超出最高层范围的先放到最高层，推进到的时候再重新计算
+            long ticks = Math.min(dueTime, mTime + (1L << SHIFT[length - 1]) * (BUCKET_COUNT - 1)) >>> SHIFT[length - 1];
+            return mWheel[length - 1][(int) (ticks & (BUCKET_COUNT - 1))];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ling.utils;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLog;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : 单元测试基类，运行在 Robolectric 中，日志输出到控制台
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, shadows = {ShadowLog.class})
+public class BaseTest {
+
+    public BaseTest() {
+        ShadowLog.stream = System.out;
+    }
+
+    /**
+     * 基准测试默认跳过，需要时通过 ./gradlew test -Pbenchmark 运行
+     */
+    protected static void assumeBenchmark() {
+        assumeTrue("Run with -Pbenchmark to enable benchmarks", Boolean.getBoolean("benchmark"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.ling.utils;
+
+import android.util.Log;
+
+import org.junit.Test;
+import org.robolectric.shadows.ShadowLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : BusUtils 单元测试，验证反射调用和编译期生成的调用器的分发结果，以及对比分发速度（基准测试）
+ */
+public class BusUtilsTest extends BaseTest {
+
+    private static final String TAG_REFLECTIVE = "BusUtilsTest#reflective";
+    private static final String TAG_GENERATED = "BusUtilsTest#generated";
+    private static final String TAG_BOTH = "BusUtilsTest#both";
+
+    private static final int[] SUBSCRIBER_COUNTS = {1, 10, 100};
+    private static final int POST_COUNT = 100;
+    private static final long BENCHMARK_NANOS = 200_000_000L;
+
+    /**
+     * 没有 {@link BusUtils.Bus} 注解，由 {@link BusUtils#registerBus4Test} 模拟 bus 插件注入订阅信息
+     */
+    public static class ReflectiveSubscriber {
+
+        long count;
+
+        public void onPost(Object arg) {
+            count++;
+        }
+    }
+
+    /**
+     * 由 utils-compiler 生成调用器
+     */
+    public static class GeneratedSubscriber {
+
+        long count;
+
+        @BusUtils.Bus(tag = TAG_GENERATED)
+        public void onPost(Object arg) {
+            count++;
+        }
+
+        @BusUtils.Bus(tag = TAG_BOTH)
+        public void onBoth(Object arg) {
+            count++;
+        }
+    }
+
+    @Test
+    public void postGeneratedWithPlugin() {
+        // 同时应用了 bus 插件时，反射的订阅信息不再重复分发，也不输出错误日志
+        BusUtils.registerBus4Test(TAG_BOTH, GeneratedSubscriber.class.getName(),
+                "onBoth", "java.lang.Object", "arg", false, "POSTING", 0);
+        GeneratedSubscriber subscriber = new GeneratedSubscriber();
+        BusUtils.register(subscriber);
+        ShadowLog.reset();
+        for (int i = 0; i < 10; i++) {
+            BusUtils.post(TAG_BOTH, "arg");
+        }
+        BusUtils.unregister(subscriber);
+        assertEquals(10, subscriber.count);
+        for (ShadowLog.LogItem item : ShadowLog.getLogsForTag("BusUtils")) {
+            assertTrue(item.msg, item.type < Log.ERROR);
+        }
+    }
+
+    @Test
+    public void postToEverySubscriber() {
+        BusUtils.registerBus4Test(TAG_REFLECTIVE, ReflectiveSubscriber.class.getName(),
+                "onPost", "java.lang.Object", "arg", false, "POSTING", 0);
+        for (int subscriberCount : SUBSCRIBER_COUNTS) {
+            List<ReflectiveSubscriber> reflectiveSubscribers = new ArrayList<>();
+            List<GeneratedSubscriber> generatedSubscribers = new ArrayList<>();
+            register(subscriberCount, reflectiveSubscribers, generatedSubscribers);
+            for (int i = 0; i < POST_COUNT; i++) {
+                BusUtils.post(TAG_REFLECTIVE, "arg");
+                BusUtils.post(TAG_GENERATED, "arg");
+            }
+            unregister(reflectiveSubscribers, generatedSubscribers);
+
+            // 每个订阅者都收到了所有的事件
+            for (ReflectiveSubscriber subscriber : reflectiveSubscribers) {
+                assertEquals(POST_COUNT, subscriber.count);
+            }
+            for (GeneratedSubscriber subscriber : generatedSubscribers) {
+                assertEquals(POST_COUNT, subscriber.count);
+            }
+        }
+    }
+
+    @Test
+    public void postThroughput() {
+        assumeBenchmark();
+        BusUtils.registerBus4Test(TAG_REFLECTIVE, ReflectiveSubscriber.class.getName(),
+                "onPost", "java.lang.Object", "arg", false, "POSTING", 0);
+        for (int subscriberCount : SUBSCRIBER_COUNTS) {
+            List<ReflectiveSubscriber> reflectiveSubscribers = new ArrayList<>();
+            List<GeneratedSubscriber> generatedSubscribers = new ArrayList<>();
+            register(subscriberCount, reflectiveSubscribers, generatedSubscribers);
+
+            // 第一轮用于预热
+            measurePostsPerSecond(TAG_REFLECTIVE);
+            measurePostsPerSecond(TAG_GENERATED);
+            long reflective = measurePostsPerSecond(TAG_REFLECTIVE);
+            long generated = measurePostsPerSecond(TAG_GENERATED);
+            unregister(reflectiveSubscribers, generatedSubscribers);
+
+            assertTrue("subscribers: " + subscriberCount
+                            + ", reflective: " + reflective + " posts/s"
+                            + ", generated: " + generated + " posts/s",
+                    generated >= reflective);
+        }
+    }
+
+    private static void register(final int subscriberCount,
+                                 final List<ReflectiveSubscriber> reflectiveSubscribers,
+                                 final List<GeneratedSubscriber> generatedSubscribers) {
+        for (int i = 0; i < subscriberCount; i++) {
+            ReflectiveSubscriber reflectiveSubscriber = new ReflectiveSubscriber();
+            GeneratedSubscriber generatedSubscriber = new GeneratedSubscriber();
+            BusUtils.register(reflectiveSubscriber);
+            BusUtils.register(generatedSubscriber);
+            reflectiveSubscribers.add(reflectiveSubscriber);
+            generatedSubscribers.add(generatedSubscriber);
+        }
+    }
+
+    private static void unregister(final List<ReflectiveSubscriber> reflectiveSubscribers,
+                                   final List<GeneratedSubscriber> generatedSubscribers) {
+        for (ReflectiveSubscriber subscriber : reflectiveSubscribers) {
+            BusUtils.unregister(subscriber);
+        }
+        for (GeneratedSubscriber subscriber : generatedSubscribers) {
+            BusUtils.unregister(subscriber);
+        }
+    }
+
+    /**
+     * 在固定时间内持续发送事件
+     *
+     * @return 每秒发送的次数
+     */
+    private static long measurePostsPerSecond(final String tag) {
+        Object arg = "arg";
+        long posts = 0;
+        long start = System.nanoTime();
+        long now = start;
+        while (now - start < BENCHMARK_NANOS) {
+            for (int i = 0; i < 1000; i++) {
+                BusUtils.post(tag, arg);
+            }
+            posts += 1000;
+            now = System.nanoTime();
+        }
+        return posts * 1_000_000_000L / (now - start);
+    }
+}
@@ -0,0 +1,180 @@
+package com.ling.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Formatter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : LogUtils 单元测试，对比打开 head 开关时缓存调用位置和原来每次通过 Formatter 格式化的结果和耗时
+ */
+public class LogUtilsTest extends BaseTest {
+
+    private static final int WARM_UP_COUNT = 10_000;
+    private static final int BENCHMARK_COUNT = 50_000;
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig().setLogHeadSwitch(true).setStackDeep(1);
+    }
+
+    @Test
+    public void headMatchesFormatter() {
+        LogUtils.getConfig().setLogHeadSwitch(true).setStackDeep(1);
+        assertHeadEquals(formatterHead(null), head(null));
+
+        LogUtils.getConfig().setStackDeep(3);
+        assertHeadEquals(formatterHead(null), head(null));
+        assertHeadEquals(formatterHead("tag"), head("tag"));
+    }
+
+    @Test
+    public void headCallSiteVsFormatter() {
+        assumeBenchmark();
+        for (int stackDeep : new int[]{1, 3}) {
+            LogUtils.getConfig().setLogHeadSwitch(true).setStackDeep(stackDeep);
+
+            processHead(WARM_UP_COUNT, true);
+            processHead(WARM_UP_COUNT, false);
+            long formatter = processHead(BENCHMARK_COUNT, true);
+            long callSite = processHead(BENCHMARK_COUNT, false);
+
+            // 只打印一层时主要耗时在获取调用栈上，只要求不变慢（留出 10% 的测量误差）
+            double limit = stackDeep <= 1 ? formatter * 1.1 : formatter;
+            assertTrue("stackDeep " + stackDeep + ", formatter: " + formatter / BENCHMARK_COUNT
+                            + " ns, call site: " + callSite / BENCHMARK_COUNT + " ns",
+                    callSite < limit);
+        }
+    }
+
+    /**
+     * 连续处理 Tag 与 Head
+     *
+     * @param formatter 是否使用原来的 Formatter 格式化
+     * @return 总耗时（纳秒）
+     */
+    private static long processHead(final int count, final boolean formatter) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (formatter) {
+                formatterHead(null);
+            } else {
+                head(null);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void assertHeadEquals(final LogUtils.TagHead expected, final LogUtils.TagHead actual) {
+        assertEquals(expected.tag, actual.tag);
+        assertArrayEquals(expected.consoleHead, actual.consoleHead);
+        assertEquals(expected.fileHead, actual.fileHead);
+    }
+
+    /**
+     * 和 LogUtils.d → LogUtils.log 一样经过两层调用，调用位置落在调用这个方法的地方
+     */
+    private static LogUtils.TagHead head(final String tag) {
+        return headFrom(tag);
+    }
+
+    private static LogUtils.TagHead headFrom(final String tag) {
+        return LogUtils.processTagAndHead(tag);
+    }
+
+    private static LogUtils.TagHead formatterHead(final String tag) {
+        return formatterHeadFrom(tag);
+    }
+
+    private static LogUtils.TagHead formatterHeadFrom(final String tag) {
+        return processTagAndHeadWithFormatter(tag);
+    }
+
+    /**
+     * 原来的实现：每次都通过 Formatter 格式化调用位置
+     */
+    private static LogUtils.TagHead processTagAndHeadWithFormatter(String tag) {
+        final LogUtils.Config config = LogUtils.getConfig();
+        final boolean tagIsSpace = UtilsBridge.isSpace(config.getGlobalTag());
+        if (!tagIsSpace && !config.isLogHeadSwitch()) {
+            tag = config.getGlobalTag();
+        } else {
+            final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+            final int stackIndex = 3 + config.getStackOffset();
+            if (stackIndex >= stackTrace.length) {
+                StackTraceElement targetElement = stackTrace[3];
+                final String fileName = getFileName(targetElement);
+                if (tagIsSpace && UtilsBridge.isSpace(tag)) {
+                    int index = fileName.indexOf('.');// Use proguard may not find '.'.
+                    tag = index == -1 ? fileName : fileName.substring(0, index);
+                }
+                return new LogUtils.TagHead(tag, null, ": ", null, null);
+            }
+            StackTraceElement targetElement = stackTrace[stackIndex];
+            final String fileName = getFileName(targetElement);
+            if (tagIsSpace && UtilsBridge.isSpace(tag)) {
+                int index = fileName.indexOf('.');// Use proguard may not find '.'.
+                tag = index == -1 ? fileName : fileName.substring(0, index);
+            }
+            if (config.isLogHeadSwitch()) {
+                String tName = Thread.currentThread().getName();
+                final String head = new Formatter()
+                        .format("%s, %s.%s(%s:%d)",
+                                tName,
+                                targetElement.getClassName(),
+                                targetElement.getMethodName(),
+                                fileName,
+                                targetElement.getLineNumber())
+                        .toString();
+                final String fileHead = " [" + head + "]: ";
+                if (config.getStackDeep() <= 1) {
+                    return new LogUtils.TagHead(tag, new String[]{head}, fileHead, null, null);
+                } else {
+                    final String[] consoleHead =
+                            new String[Math.min(
+                                    config.getStackDeep(),
+                                    stackTrace.length - stackIndex
+                            )];
+                    consoleHead[0] = head;
+                    int spaceLen = tName.length() + 2;
+                    String space = new Formatter().format("%" + spaceLen + "s", "").toString();
+                    for (int i = 1, len = consoleHead.length; i < len; ++i) {
+                        targetElement = stackTrace[i + stackIndex];
+                        consoleHead[i] = new Formatter()
+                                .format("%s%s.%s(%s:%d)",
+                                        space,
+                                        targetElement.getClassName(),
+                                        targetElement.getMethodName(),
+                                        getFileName(targetElement),
+                                        targetElement.getLineNumber())
+                                .toString();
+                    }
+                    return new LogUtils.TagHead(tag, consoleHead, fileHead, null, null);
+                }
+            }
+        }
+        return new LogUtils.TagHead(tag, null, ": ", null, null);
+    }
+
+    private static String getFileName(final StackTraceElement targetElement) {
+        String fileName = targetElement.getFileName();
+        if (fileName != null) return fileName;
+        String className = targetElement.getClassName();
+        String[] classNameInfo = className.split("\\.");
+        if (classNameInfo.length > 0) {
+            className = classNameInfo[classNameInfo.length - 1];
+        }
+        int index = className.indexOf('$');
+        if (index != -1) {
+            className = className.substring(0, index);
+        }
+        return className + ".java";
+    }
+}
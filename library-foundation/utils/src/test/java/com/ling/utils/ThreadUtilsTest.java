@@ -0,0 +1,157 @@
+package com.ling.utils;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : ThreadUtils 单元测试，检查大量延时任务的调度延迟和取消后的调度队列
+ */
+public class ThreadUtilsTest extends BaseTest {
+
+    private static final int TASK_COUNT = 100_000;
+    /** 所有任务都在这之后到期，保证调度时还没有任务执行 */
+    private static final int START_DELAY_MILLIS = 3000;
+    private static final int MAX_DELAY_MILLIS = 1000;
+    /** 调度延迟的上限 */
+    private static final int MAX_LATENCY_MILLIS = 5000;
+
+    /** 直接在执行任务的线程中回调，不经过主线程 */
+    private static final Executor DIRECT_DELIVER = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void timeoutDeliveredOffScheduler() throws Exception {
+        ExecutorService deliver = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                return new Thread(r, "deliver");
+            }
+        });
+        final AtomicReference<String> timeoutThread = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ThreadUtils.Task<Void> task = new ThreadUtils.SimpleTask<Void>() {
+            @Override
+            public Void doInBackground() throws Throwable {
+                Thread.sleep(10_000);
+                return null;
+            }
+
+            @Override
+            public void onSuccess(Void result) {
+            }
+        };
+        task.setDeliver(deliver).setTimeout(50, new ThreadUtils.Task.OnTimeoutListener() {
+            @Override
+            public void onTimeout() {
+                timeoutThread.set(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        });
+        ThreadUtils.executeByCached(task);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("deliver", timeoutThread.get());
+        assertTrue(task.isDone());
+        deliver.shutdown();
+    }
+
+    @Test
+    public void delayedTasksLatency() throws Exception {
+        final long[] latencies = new long[TASK_COUNT];
+        final CountDownLatch latch = new CountDownLatch(TASK_COUNT);
+        Random random = new Random(0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            final int index = i;
+            final long dueTime = start + TimeUnit.MILLISECONDS.toNanos(
+                    START_DELAY_MILLIS + random.nextInt(MAX_DELAY_MILLIS));
+            ThreadUtils.Task<Void> task = new ThreadUtils.SimpleTask<Void>() {
+                @Override
+                public Void doInBackground() {
+                    latencies[index] = System.nanoTime() - dueTime;
+                    return null;
+                }
+
+                @Override
+                public void onSuccess(Void result) {
+                    latch.countDown();
+                }
+            };
+            task.setDeliver(DIRECT_DELIVER);
+            ThreadUtils.executeByCpuWithDelay(task, dueTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        assertEquals(TASK_COUNT, latch.getCount());
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Arrays.sort(latencies);
+        // 任务不会提前执行；调度器只负责提交，不应该因为任务数量多而明显延迟（宽松的上限，避免机器繁忙时误报）
+        assertTrue(latencies[0] >= 0);
+        assertTrue("p99: " + toMillis(latencies[TASK_COUNT * 99 / 100]) + " ms",
+                toMillis(latencies[TASK_COUNT * 99 / 100]) < MAX_LATENCY_MILLIS);
+    }
+
+    @Test
+    public void cancelledDelayedTasksLeaveQueue() {
+        final AtomicInteger cancelCount = new AtomicInteger();
+        List<ThreadUtils.Task<Void>> tasks = new ArrayList<>(TASK_COUNT);
+
+        int baseline = ThreadUtils.SCHEDULER.getQueue().size();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            ThreadUtils.Task<Void> task = new ThreadUtils.SimpleTask<Void>() {
+                @Override
+                public Void doInBackground() {
+                    return null;
+                }
+
+                @Override
+                public void onSuccess(Void result) {
+                }
+
+                @Override
+                public void onCancel() {
+                    cancelCount.incrementAndGet();
+                }
+            };
+            task.setDeliver(DIRECT_DELIVER);
+            ThreadUtils.executeByCpuWithDelay(task, 1, TimeUnit.HOURS);
+            tasks.add(task);
+        }
+        assertEquals(baseline + TASK_COUNT, ThreadUtils.SCHEDULER.getQueue().size());
+        for (ThreadUtils.Task<Void> task : tasks) {
+            task.cancel();
+        }
+
+        assertEquals(TASK_COUNT, cancelCount.get());
+        // 取消的任务立即从调度队列中移除，不会一直占用内存到原定的执行时间
+        assertEquals(baseline, ThreadUtils.SCHEDULER.getQueue().size());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ling.utils.cache;
+
+import com.ling.utils.BaseTest;
+import com.ling.utils.file.FileUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : CacheDoubleUtils 单元测试，验证延后写入磁盘时同一个键值的不同类型数据分开合并
+ */
+public class CacheDoubleUtilsTest extends BaseTest {
+
+    private static final String KEY = "key";
+    private static final byte[] BYTES = {1, 2, 3};
+
+    private File mCacheDir;
+    private CacheDiskUtils mCacheDiskUtils;
+    private CacheDoubleUtils mCacheDoubleUtils;
+
+    @Before
+    public void setUp() {
+        mCacheDir = new File(System.getProperty("java.io.tmpdir"), "CacheDoubleUtilsTest" + System.nanoTime());
+        mCacheDiskUtils = CacheDiskUtils.getInstance(mCacheDir);
+        mCacheDoubleUtils = CacheDoubleUtils.getInstance(
+                CacheMemoryUtils.getInstance(mCacheDir.getName(), 16), mCacheDiskUtils)
+                .setWriteBehind(true);
+    }
+
+    @After
+    public void tearDown() {
+        mCacheDoubleUtils.setWriteBehind(false);
+        mCacheDoubleUtils.clear();
+        FileUtils.delete(mCacheDir);
+    }
+
+    @Test
+    public void writeBehindKeepsEachType() {
+        // 占住磁盘缓存的初始化，让后台线程停在第一次写入上，之后的写入都在队列中合并
+        synchronized (CacheDiskUtils.class) {
+            mCacheDoubleUtils.put("other", "other");
+            mCacheDoubleUtils.put(KEY, "value");
+            mCacheDoubleUtils.put(KEY, BYTES);
+        }
+        mCacheDoubleUtils.flush();
+
+        // 磁盘中不同类型的数据互不覆盖，后一次写入不能丢掉前一次
+        assertEquals("value", mCacheDiskUtils.getString(KEY));
+        assertArrayEquals(BYTES, mCacheDiskUtils.getBytes(KEY));
+    }
+
+    @Test
+    public void writeBehindRemoveDropsPendingTypes() {
+        synchronized (CacheDiskUtils.class) {
+            mCacheDoubleUtils.put("other", "other");
+            mCacheDoubleUtils.put(KEY, "value");
+            mCacheDoubleUtils.put(KEY, BYTES);
+            mCacheDoubleUtils.remove(KEY);
+        }
+        assertNull(mCacheDoubleUtils.getString(KEY));
+        assertNull(mCacheDoubleUtils.getBytes(KEY));
+
+        mCacheDoubleUtils.flush();
+        assertNull(mCacheDiskUtils.getString(KEY));
+        assertNull(mCacheDiskUtils.getBytes(KEY));
+
+        // 删除之后再写入，写入排在删除之后
+        mCacheDoubleUtils.put(KEY, "again");
+        mCacheDoubleUtils.flush();
+        assertEquals("again", mCacheDiskUtils.getString(KEY));
+    }
+}
@@ -0,0 +1,138 @@
+package com.ling.utils.cache;
+
+import com.ling.utils.BaseTest;
+import com.ling.utils.UtilsBridge;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * author : wangchengzhen
+ * github : https://github.com/Blankj/AndroidUtilCode
+ * time   : 2021/11/13
+ * desc   : CacheSerializers 单元测试，对比内置序列化器和 CacheDiskUtils 原来使用的 Java 序列化的大小，以及速度（基准测试）
+ */
+public class CacheSerializersTest extends BaseTest {
+
+    private static final int WARM_UP_COUNT = 20_000;
+    private static final int BENCHMARK_COUNT = 100_000;
+
+    public static class User implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        long id;
+        String name;
+        int age;
+        boolean vip;
+        double score;
+        List<String> tags;
+
+        User() {
+        }
+
+        User(long id, String name, int age, boolean vip, double score, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.vip = vip;
+            this.score = score;
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof User)) return false;
+            User user = (User) o;
+            return id == user.id && age == user.age && vip == user.vip
+                    && Double.compare(user.score, score) == 0
+                    && name.equals(user.name) && tags.equals(user.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) id;
+        }
+    }
+
+    private static final User USER = new User(10086L, "blankj", 28, true, 99.5, Arrays.asList("android", "java"));
+    private static final String STRING = "The quick brown fox jumps over the lazy dog";
+
+    @Test
+    public void objectVsSerializable() throws IOException {
+        compare(USER, CacheSerializers.get(User.class));
+    }
+
+    @Test
+    public void intVsSerializable() throws IOException {
+        compare(123456, CacheSerializers.INT);
+    }
+
+    @Test
+    public void stringVsSerializable() throws IOException {
+        compare(STRING, CacheSerializers.STRING);
+    }
+
+    @Test
+    public void serializerVsSerializableSpeed() throws IOException {
+        assumeBenchmark();
+        benchmark("object", USER, CacheSerializers.get(User.class));
+        benchmark("int", 123456, CacheSerializers.INT);
+        benchmark("string", STRING, CacheSerializers.STRING);
+    }
+
+    /**
+     * 对比同一个值的两种序列化方式，都能还原出原来的值，并且内置序列化器的结果更小
+     */
+    private static <T extends Serializable> void compare(final T value, final CacheSerializer<T> serializer)
+            throws IOException {
+        byte[] encoded = serializer.encode(value);
+        assertEquals(value, serializer.decode(ByteBuffer.wrap(encoded)));
+        byte[] serialized = UtilsBridge.serializable2Bytes(value);
+        assertEquals(value, UtilsBridge.bytes2Object(serialized));
+
+        assertTrue(encoded.length + " bytes vs " + serialized.length + " bytes",
+                encoded.length < serialized.length);
+    }
+
+    /**
+     * 对比同一个值的两种序列化方式每次编解码的耗时，内置序列化器需要更快
+     */
+    private static <T extends Serializable> void benchmark(final String name, final T value,
+                                                           final CacheSerializer<T> serializer)
+            throws IOException {
+        roundTrip(value, serializer, WARM_UP_COUNT);
+        long serializerNanos = roundTrip(value, serializer, BENCHMARK_COUNT);
+        roundTrip(value, WARM_UP_COUNT);
+        long serializableNanos = roundTrip(value, BENCHMARK_COUNT);
+
+        assertTrue(name + ": serializer " + serializerNanos / BENCHMARK_COUNT + " ns, serializable "
+                        + serializableNanos / BENCHMARK_COUNT + " ns",
+                serializerNanos < serializableNanos);
+    }
+
+    private static <T> long roundTrip(final T value, final CacheSerializer<T> serializer, final int count)
+            throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            serializer.decode(ByteBuffer.wrap(serializer.encode(value)));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long roundTrip(final Serializable value, final int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            UtilsBridge.bytes2Object(UtilsBridge.serializable2Bytes(value));
+        }
+        return System.nanoTime() - start;
+    }
+}